@@ -6,7 +6,7 @@ import lombok.Data;
 import java.util.Map;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class Category {
     private long id;
     private String name;
@@ -0,0 +1,59 @@
+package ru.practicum.category.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.practicum.category.Category;
+import ru.practicum.util.RepositoryCache;
+
+import java.time.Duration;
+import java.util.List;
+
+@Repository
+@Primary
+public class CachingCategoryRepository implements CategoryRepository {
+    private final CategoryRepositoryImpl delegate;
+    private final RepositoryCache<Category> cache;
+
+    public CachingCategoryRepository(CategoryRepositoryImpl delegate,
+                                     MeterRegistry registry,
+                                     @Value("${ewm.cache.categories.max-size:1000}") long maxSize,
+                                     @Value("${ewm.cache.categories.ttl:10m}") Duration ttl) {
+        this.delegate = delegate;
+        this.cache = new RepositoryCache<>("categories", maxSize, ttl, registry, Category::getId,
+                category -> category.toBuilder().build());
+    }
+
+    @Override
+    public List<Category> getAll(int from, int size) {
+        return delegate.getAll(from, size);
+    }
+
+    @Override
+    public List<Category> findByIds(List<Long> categoryIds) {
+        return cache.getAll(categoryIds, delegate::findByIds);
+    }
+
+    @Override
+    public Category findById(Long categoryId) {
+        return cache.get(categoryId, delegate::findById);
+    }
+
+    @Override
+    public Category add(Category category) {
+        return delegate.add(category);
+    }
+
+    @Override
+    public Category update(Category category) {
+        cache.evict(category.getId());
+        return delegate.update(category);
+    }
+
+    @Override
+    public void delete(long catId) {
+        cache.evict(catId);
+        delegate.delete(catId);
+    }
+}
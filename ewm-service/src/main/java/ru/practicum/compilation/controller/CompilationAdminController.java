@@ -2,6 +2,7 @@ package ru.practicum.compilation.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
@@ -9,7 +10,9 @@ import ru.practicum.compilation.dto.CompilationDto;
 import ru.practicum.compilation.dto.NewCompilationDto;
 import ru.practicum.compilation.dto.UpdateCompilationRequest;
 import ru.practicum.compilation.service.CompilationService;
+import ru.practicum.util.VersionTag;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
 @RestController
@@ -29,8 +32,12 @@ public class CompilationAdminController {
 
     @PatchMapping("/{compId}")
     public CompilationDto patch(@PathVariable long compId,
-                                @Valid @RequestBody UpdateCompilationRequest updateCompilationRequest) {
-        return service.patch(compId, updateCompilationRequest);
+                                @Valid @RequestBody UpdateCompilationRequest updateCompilationRequest,
+                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                HttpServletResponse response) {
+        CompilationDto compilation = service.patch(compId, updateCompilationRequest, VersionTag.fromIfMatch(ifMatch));
+        response.setHeader(HttpHeaders.ETAG, VersionTag.toETag(compilation.getVersion()));
+        return compilation;
     }
 
     @DeleteMapping("/{compId}")
@@ -2,11 +2,14 @@ package ru.practicum.compilation.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.compilation.dto.CompilationDto;
 import ru.practicum.compilation.service.CompilationService;
+import ru.practicum.util.VersionTag;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 import java.util.List;
@@ -33,8 +36,11 @@ public class CompilationPublicController {
     }
 
     @GetMapping("/{compId}")
-    public CompilationDto getById(@PathVariable long compId) {
-        return service.findById(compId);
+    public CompilationDto getById(@PathVariable long compId,
+                                  HttpServletResponse response) {
+        CompilationDto compilation = service.findById(compId);
+        response.setHeader(HttpHeaders.ETAG, VersionTag.toETag(compilation.getVersion()));
+        return compilation;
     }
 
 }
@@ -1,5 +1,6 @@
 package ru.practicum.compilation.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Builder;
 import lombok.Data;
 import ru.practicum.event.dto.EventShortDto;
@@ -13,6 +14,8 @@ public class CompilationDto {
     private long id;
     private boolean pinned;
     private String title;
+    @JsonIgnore
+    private long version;
 
     private final List<EventShortDto> events = new ArrayList<>();
 
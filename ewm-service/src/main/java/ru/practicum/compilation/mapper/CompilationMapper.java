@@ -7,7 +7,7 @@ import ru.practicum.compilation.model.Compilation;
 import ru.practicum.dto.ViewStatsDto;
 import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.event.mapper.EventMapper;
-import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventShort;
 import ru.practicum.user.User;
 
 import java.util.List;
@@ -27,7 +27,7 @@ public class CompilationMapper {
     }
 
     public static CompilationDto toCompilationDto(Compilation compilation,
-                                                  List<Event> events,
+                                                  List<EventShort> events,
                                                   List<Category> categories,
                                                   List<User> users,
                                                   Map<Long, Integer> confirmedRequestsByEventId,
@@ -45,7 +45,7 @@ public class CompilationMapper {
     }
 
     public static List<CompilationDto> toCompilationDto(List<Compilation> compilations,
-                                                        List<Event> events,
+                                                        List<EventShort> events,
                                                         List<Category> categories,
                                                         List<User> users,
                                                         Map<Long, Integer> confirmedRequestsByEventId,
@@ -78,6 +78,7 @@ public class CompilationMapper {
                 .id(compilation.getId())
                 .pinned(compilation.isPinned())
                 .title(compilation.getTitle())
+                .version(compilation.getVersion())
                 .build();
     }
 
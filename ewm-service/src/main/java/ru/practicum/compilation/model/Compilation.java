@@ -14,6 +14,7 @@ public class Compilation {
     private long id;
     private String title;
     private boolean pinned;
+    private long version;
 
     private final List<Long> events = new ArrayList<>();
 
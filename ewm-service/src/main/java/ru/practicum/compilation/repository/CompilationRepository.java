@@ -14,7 +14,7 @@ public interface CompilationRepository {
 
     void deleteById(long compId);
 
-    Compilation update(Compilation compilation);
+    boolean update(Compilation compilation);
 
     void clearEventsByCompId(long compId);
 
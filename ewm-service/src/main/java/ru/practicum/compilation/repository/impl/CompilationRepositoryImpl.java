@@ -69,15 +69,19 @@ public class CompilationRepositoryImpl implements CompilationRepository {
     }
 
     @Override
-    public Compilation update(Compilation compilation) {
-        String sql = "update compilations set pinned = :pinned, title = :title where id = :id";
+    public boolean update(Compilation compilation) {
+        //Запись меняется, только если ее версия не изменилась с момента чтения
+        String sql = "update compilations set pinned = :pinned, title = :title, version = version + 1 " +
+                "where id = :id and version = :version";
         MapSqlParameterSource parameters = new MapSqlParameterSource("id", compilation.getId());
         parameters.addValue("pinned", compilation.isPinned());
         parameters.addValue("title", compilation.getTitle());
-        if (namedJdbcTemplate.update(sql, parameters) < 0) {
-            reportNotFound(compilation.getId());
+        parameters.addValue("version", compilation.getVersion());
+        if (namedJdbcTemplate.update(sql, parameters) == 0) {
+            return false;
         }
-        return compilation;
+        compilation.setVersion(compilation.getVersion() + 1);
+        return true;
     }
 
     @Override
@@ -133,11 +137,13 @@ public class CompilationRepositoryImpl implements CompilationRepository {
         long id = rs.getLong("id");
         String title = rs.getString("title");
         boolean pinned = rs.getBoolean("pinned");
+        long version = rs.getLong("version");
 
         return Compilation.builder()
                 .id(id)
                 .title(title)
                 .pinned(pinned)
+                .version(version)
                 .build();
     }
 
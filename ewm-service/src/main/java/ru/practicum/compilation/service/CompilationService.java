@@ -13,7 +13,7 @@ public interface CompilationService {
 
     CompilationDto add(NewCompilationDto newCompilationDto);
 
-    CompilationDto patch(long compId, UpdateCompilationRequest updateCompilationRequest);
+    CompilationDto patch(long compId, UpdateCompilationRequest updateCompilationRequest, Long expectedVersion);
 
     void delete(long compId);
 }
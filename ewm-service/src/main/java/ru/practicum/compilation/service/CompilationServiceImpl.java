@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 import ru.practicum.category.Category;
 import ru.practicum.category.repository.CategoryRepository;
 import ru.practicum.compilation.dto.CompilationDto;
@@ -14,35 +15,37 @@ import ru.practicum.compilation.model.Compilation;
 import ru.practicum.compilation.repository.CompilationRepository;
 import ru.practicum.dto.ViewStatsDto;
 import ru.practicum.error.exceptions.ConflictException;
-import ru.practicum.event.model.Event;
+import ru.practicum.event.mapper.EventMapper;
+import ru.practicum.event.model.EventShort;
 import ru.practicum.event.repository.EventRepository;
-import ru.practicum.request.repository.RequestRepository;
 import ru.practicum.user.User;
 import ru.practicum.user.repository.UserRepository;
+import ru.practicum.util.EnrichmentExecutor;
 import ru.practicum.util.StatisticRequestService;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static ru.practicum.util.Validation.validateStringField;
 
 @Service
-@Transactional
 @Slf4j
 @RequiredArgsConstructor
 public class CompilationServiceImpl implements CompilationService {
+    private static final String STATS_BRANCH = "stats";
 
     private final CompilationRepository repository;
     private final CategoryRepository categoryRepo;
     private final EventRepository eventRepo;
-    private final RequestRepository requestRepo;
     private final UserRepository userRepo;
     private final StatisticRequestService statsRequestService;
+    private final EnrichmentExecutor enrichmentExecutor;
+    private final TransactionOperations transactions;
 
     @Override
-    @Transactional(readOnly = true)
     public List<CompilationDto> getAll(Boolean pinned, int from, int size) {
         List<Compilation> compilations;
         if (pinned != null) {
@@ -59,7 +62,6 @@ public class CompilationServiceImpl implements CompilationService {
     }
 
     @Override
-    @Transactional(readOnly = true)
     public CompilationDto findById(long compId) {
         Compilation compilation = repository.findById(compId);
         addEventIdsToCompilation(compilation);
@@ -68,37 +70,52 @@ public class CompilationServiceImpl implements CompilationService {
 
     @Override
     public CompilationDto add(NewCompilationDto newCompilationDto) {
-        Compilation compilation = CompilationMapper.toCompilation(newCompilationDto);
-        try {
-            compilation = repository.add(compilation);
-        } catch (RuntimeException e) {
-            reportTitleUniqueConflict(e, compilation);
-        }
-        if (!newCompilationDto.getEvents().isEmpty()) {
-            repository.addEventsByCompId(compilation.getId(), compilation.getEvents());
-        }
+        Compilation compilation = transactions.execute(status -> {
+            Compilation added = CompilationMapper.toCompilation(newCompilationDto);
+            try {
+                added = repository.add(added);
+            } catch (RuntimeException e) {
+                reportTitleUniqueConflict(e, added);
+            }
+            if (!newCompilationDto.getEvents().isEmpty()) {
+                repository.addEventsByCompId(added.getId(), added.getEvents());
+            }
+            return added;
+        });
+        //События и просмотры читаются после коммита, соединение не ждет сервер статистики
         return makeCompilationDto(compilation);
     }
 
     @Override
-    public CompilationDto patch(long compId, UpdateCompilationRequest updateCompilationRequest) {
-        Compilation compilation = repository.findById(compId);
-        updateNotNullFields(compilation, updateCompilationRequest);
-        try {
-            compilation = repository.update(compilation);
-        } catch (RuntimeException e) {
-            reportTitleUniqueConflict(e, compilation);
-        }
-        List<Long> eventIds = updateCompilationRequest.getEvents();
-        if (eventIds != null && !eventIds.isEmpty()) {
-            repository.clearEventsByCompId(compId);
-            repository.addEventsByCompId(compId, eventIds);
-            compilation.addEvents(updateCompilationRequest.getEvents());
-        }
+    public CompilationDto patch(long compId, UpdateCompilationRequest updateCompilationRequest, Long expectedVersion) {
+        Compilation compilation = transactions.execute(status -> {
+            Compilation patched = repository.findById(compId);
+            if (expectedVersion != null && patched.getVersion() != expectedVersion) {
+                reportVersionConflict(compId);
+            }
+            updateNotNullFields(patched, updateCompilationRequest);
+            boolean updated = false;
+            try {
+                updated = repository.update(patched);
+            } catch (RuntimeException e) {
+                reportTitleUniqueConflict(e, patched);
+            }
+            if (!updated) {
+                reportVersionConflict(compId);
+            }
+            List<Long> eventIds = updateCompilationRequest.getEvents();
+            if (eventIds != null && !eventIds.isEmpty()) {
+                repository.clearEventsByCompId(compId);
+                repository.addEventsByCompId(compId, eventIds);
+                patched.addEvents(updateCompilationRequest.getEvents());
+            }
+            return patched;
+        });
         return makeCompilationDto(compilation);
     }
 
     @Override
+    @Transactional
     public void delete(long compId) {
         repository.deleteById(compId);
     }
@@ -133,12 +150,12 @@ public class CompilationServiceImpl implements CompilationService {
         if (eventIds.isEmpty()) {
             return CompilationMapper.toEmptyCompilationDto(compilation);
         }
-        List<Event> events = eventRepo.finByIds(eventIds);
+        List<EventShort> events = eventRepo.findShortByIds(eventIds);
+        CompletableFuture<List<ViewStatsDto>> viewStats = requestViewStats(events);
         List<Category> categories = getCategoriesByEvents(events);
         List<User> users = getUsersByEvents(events);
-        Map<Long, Integer> confirmedRequestsByEventIds =
-                requestRepo.countConfirmedRequestsByEventIds(eventIds);
-        List<ViewStatsDto> viewStatsDtos = statsRequestService.makeStatRequest(events);
+        Map<Long, Integer> confirmedRequestsByEventIds = EventMapper.makeConfirmedRequestsMap(events);
+        List<ViewStatsDto> viewStatsDtos = enrichmentExecutor.join(STATS_BRANCH, viewStats);
 
         return CompilationMapper.toCompilationDto(compilation, events,
                 categories, users, confirmedRequestsByEventIds, viewStatsDtos);
@@ -149,16 +166,21 @@ public class CompilationServiceImpl implements CompilationService {
         if (eventIds.isEmpty()) {
             return CompilationMapper.toEmptyCompilationDto(compilations);
         }
-        List<Event> events = eventRepo.finByIds(eventIds);
+        List<EventShort> events = eventRepo.findShortByIds(eventIds);
+        CompletableFuture<List<ViewStatsDto>> viewStats = requestViewStats(events);
         List<Category> categories = getCategoriesByEvents(events);
         List<User> users = getUsersByEvents(events);
-        Map<Long, Integer> confirmedRequestsByEventIds =
-                requestRepo.countConfirmedRequestsByEventIds(eventIds);
-        List<ViewStatsDto> viewStatsDtos = statsRequestService.makeStatRequest(events);
+        Map<Long, Integer> confirmedRequestsByEventIds = EventMapper.makeConfirmedRequestsMap(events);
+        List<ViewStatsDto> viewStatsDtos = enrichmentExecutor.join(STATS_BRANCH, viewStats);
         return CompilationMapper.toCompilationDto(compilations, events, categories, users,
                 confirmedRequestsByEventIds, viewStatsDtos);
     }
 
+    //Запрос к серверу статистики идет параллельно с чтением категорий и пользователей
+    private CompletableFuture<List<ViewStatsDto>> requestViewStats(List<EventShort> events) {
+        return enrichmentExecutor.submit(STATS_BRANCH, () -> statsRequestService.makeStatRequest(events));
+    }
+
     private List<Long> getEventIdsByCompilations(List<Compilation> compilations) {
         return compilations.stream()
                 .map(Compilation::getEvents)
@@ -167,22 +189,27 @@ public class CompilationServiceImpl implements CompilationService {
                 .collect(Collectors.toList());
     }
 
-    private List<Category> getCategoriesByEvents(List<Event> events) {
+    private List<Category> getCategoriesByEvents(List<EventShort> events) {
         List<Long> categoryIds = events.stream()
-                .map(Event::getCategoryId)
+                .map(EventShort::getCategoryId)
                 .distinct()
                 .collect(Collectors.toList());
         return categoryRepo.findByIds(categoryIds);
     }
 
-    private List<User> getUsersByEvents(List<Event> events) {
+    private List<User> getUsersByEvents(List<EventShort> events) {
         List<Long> userIds = events.stream()
-                .map(Event::getInitiator)
+                .map(EventShort::getInitiator)
                 .distinct()
                 .collect(Collectors.toList());
         return userRepo.findByIds(userIds);
     }
 
+    private void reportVersionConflict(long compId) {
+        log.warn("Подборка с id {} изменена другим запросом", compId);
+        throw new ConflictException(String.format("Подборка с id %d была изменена другим запросом", compId));
+    }
+
     private void reportTitleUniqueConflict(RuntimeException e, Compilation compilation) {
         String error = e.getMessage();
         String constraint = "uq_compilation_title";
@@ -12,6 +12,8 @@ import org.springframework.web.method.annotation.MethodArgumentTypeMismatchExcep
 import org.springframework.web.servlet.NoHandlerFoundException;
 import ru.practicum.client.exception.StatsRequestException;
 import ru.practicum.error.exceptions.ConflictException;
+import ru.practicum.error.exceptions.DependencyTimeoutException;
+import ru.practicum.error.exceptions.DependencyUnavailableException;
 import ru.practicum.error.exceptions.ForbiddenException;
 import ru.practicum.error.exceptions.NotFoundException;
 import ru.practicum.error.model.ApiError;
@@ -49,6 +51,30 @@ public class ErrorHandler {
                 .build();
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    public ApiError handleDependencyTimeoutException(final DependencyTimeoutException e) {
+        log.error(e.getMessage(), e);
+        return ApiError.builder()
+                .status(HttpStatus.GATEWAY_TIMEOUT)
+                .reason("The dependent service did not respond in time.")
+                .message(e.getMessage())
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ApiError handleDependencyUnavailableException(final DependencyUnavailableException e) {
+        log.error(e.getMessage(), e);
+        return ApiError.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .reason("The dependent service is temporarily unavailable.")
+                .message(e.getMessage())
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ApiError handleNotFoundException(final NotFoundException e) {
@@ -0,0 +1,7 @@
+package ru.practicum.error.exceptions;
+
+public class DependencyTimeoutException extends RuntimeException {
+    public DependencyTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.error.exceptions;
+
+public class DependencyUnavailableException extends RuntimeException {
+    public DependencyUnavailableException(String message) {
+        super(message);
+    }
+}
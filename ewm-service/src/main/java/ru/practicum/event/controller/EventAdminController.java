@@ -3,13 +3,17 @@ package ru.practicum.event.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.event.dto.EventFullDto;
 import ru.practicum.event.dto.UpdateEventDto;
 import ru.practicum.event.enums.EventState;
 import ru.practicum.event.service.EventService;
+import ru.practicum.util.PageCursor;
+import ru.practicum.util.VersionTag;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.Positive;
@@ -49,10 +53,12 @@ public class EventAdminController {
                                      @RequestParam(required = false) Float lon,
                                      @PositiveOrZero(message = "Радиус поиска должен быть положительным")
                                      @RequestParam(required = false) Integer radius,
+                                     @RequestParam(required = false) String cursor,
                                      @PositiveOrZero(message = FROM_ERROR_MESSAGE)
                                      @RequestParam(defaultValue = "0") Integer from,
                                      @Positive(message = SIZE_ERROR_MESSAGE)
-                                     @RequestParam(defaultValue = "10") Integer size) {
+                                     @RequestParam(defaultValue = "10") Integer size,
+                                     HttpServletResponse response) {
 
         if (states != null) {
             states.forEach(stateParam -> EventState.from(stateParam)
@@ -63,12 +69,21 @@ public class EventAdminController {
         if (start != null && end != null) {
             validateStartEndDates(start, end);
         }
-        return service.getAllByCriteriaByAdmin(users, states, categories, start, end, lat, lon, radius, from, size);
+        PageCursor pageCursor = PageCursor.decode(cursor, false);
+        List<EventFullDto> events = service.getAllByCriteriaByAdmin(users, states, categories, start, end,
+                lat, lon, radius, pageCursor, from, size);
+        PageCursor.next(events, size, false)
+                .ifPresent(next -> response.setHeader(PageCursor.NEXT_CURSOR_HEADER, next.encode()));
+        return events;
     }
 
     @PatchMapping("/{eventId}")
     public EventFullDto patch(@PathVariable long eventId,
-                              @RequestBody UpdateEventDto updateEventDto) {
-        return service.patchByAdmin(eventId, updateEventDto);
+                              @RequestBody UpdateEventDto updateEventDto,
+                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                              HttpServletResponse response) {
+        EventFullDto event = service.patchByAdmin(eventId, updateEventDto, VersionTag.fromIfMatch(ifMatch));
+        response.setHeader(HttpHeaders.ETAG, VersionTag.toETag(event.getVersion()));
+        return event;
     }
 }
@@ -2,6 +2,7 @@ package ru.practicum.event.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
@@ -13,7 +14,10 @@ import ru.practicum.request.dto.EventRequestStatusUpdateRequest;
 import ru.practicum.request.dto.EventRequestStatusUpdateResult;
 import ru.practicum.request.dto.ParticipationRequestDto;
 import ru.practicum.request.service.RequestService;
+import ru.practicum.util.PageCursor;
+import ru.practicum.util.VersionTag;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
@@ -33,17 +37,26 @@ public class EventPrivateController {
 
     @GetMapping
     public List<EventFullDto> getByUserId(@PathVariable long userId,
+                                          @RequestParam(required = false) String cursor,
                                           @PositiveOrZero(message = FROM_ERROR_MESSAGE)
                                           @RequestParam(defaultValue = "0") Integer from,
                                           @Positive(message = SIZE_ERROR_MESSAGE)
-                                          @RequestParam(defaultValue = "10") Integer size) {
-        return service.getByUserId(userId, from, size);
+                                          @RequestParam(defaultValue = "10") Integer size,
+                                          HttpServletResponse response) {
+        PageCursor pageCursor = PageCursor.decode(cursor, false);
+        List<EventFullDto> events = service.getByUserId(userId, pageCursor, from, size);
+        PageCursor.next(events, size, false)
+                .ifPresent(next -> response.setHeader(PageCursor.NEXT_CURSOR_HEADER, next.encode()));
+        return events;
     }
 
     @GetMapping("/{eventId}")
     public EventFullDto getUsersEventById(@PathVariable long userId,
-                                          @PathVariable long eventId) {
-        return service.getUsersEventById(userId, eventId);
+                                          @PathVariable long eventId,
+                                          HttpServletResponse response) {
+        EventFullDto event = service.getUsersEventById(userId, eventId);
+        response.setHeader(HttpHeaders.ETAG, VersionTag.toETag(event.getVersion()));
+        return event;
     }
 
     @PostMapping
@@ -56,9 +69,12 @@ public class EventPrivateController {
     @PatchMapping("/{eventId}")
     public EventFullDto update(@PathVariable long userId,
                                @PathVariable long eventId,
-                               @Valid @RequestBody UpdateEventDto updateEventDto) {
-
-        return service.update(userId, eventId, updateEventDto);
+                               @Valid @RequestBody UpdateEventDto updateEventDto,
+                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                               HttpServletResponse response) {
+        EventFullDto event = service.update(userId, eventId, updateEventDto, VersionTag.fromIfMatch(ifMatch));
+        response.setHeader(HttpHeaders.ETAG, VersionTag.toETag(event.getVersion()));
+        return event;
     }
 
     @GetMapping("/{eventId}/requests")
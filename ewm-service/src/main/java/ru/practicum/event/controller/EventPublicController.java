@@ -7,8 +7,10 @@ import org.springframework.web.bind.annotation.*;
 import ru.practicum.event.dto.EventFullDto;
 import ru.practicum.event.enums.EventSort;
 import ru.practicum.event.service.EventService;
+import ru.practicum.util.PageCursor;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 import java.time.Instant;
@@ -39,24 +41,40 @@ public class EventPublicController {
                                                  LocalDateTime endLocal,
                                                  @RequestParam(defaultValue = "false") boolean onlyAvailable,
                                                  @RequestParam(required = false, name = "sort") String sortParam,
+                                                 @RequestParam(required = false) String cursor,
                                                  @PositiveOrZero(message = FROM_ERROR_MESSAGE)
                                                  @RequestParam(defaultValue = "0") Integer from,
                                                  @Positive(message = SIZE_ERROR_MESSAGE)
                                                  @RequestParam(defaultValue = "10") Integer size,
-                                                 HttpServletRequest request) {
+                                                 HttpServletRequest request,
+                                                 HttpServletResponse response) {
         EventSort sort = null;
         if (sortParam != null) {
             sort = EventSort.from(sortParam)
                     .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + sortParam));
         }
-        Instant start = startLocal == null ? Instant.now() : toInstant(startLocal);
+        //Без rangeStart поиск идет от текущего момента, сервис подставляет его сам, чтобы запрос можно было кэшировать
+        Instant start = startLocal == null ? null : toInstant(startLocal);
         Instant end = endLocal == null ? null : toInstant(endLocal);
 
         if (end != null) {
-            validateStartEndDates(start, end);
+            validateStartEndDates(start == null ? Instant.now() : start, end);
         }
+        //Просмотры и релевантность не образуют устойчивого ключа, для них остается только from/size
+        boolean keyset = sort == null || sort == EventSort.EVENT_DATE;
+        if (cursor != null && !keyset) {
+            throw new IllegalArgumentException("Курсор не поддерживается для сортировки " + sort);
+        }
+        boolean byEventDate = sort == EventSort.EVENT_DATE;
+        PageCursor pageCursor = PageCursor.decode(cursor, byEventDate);
         String ip = request.getRemoteAddr();
-        return service.getByFiltersPublic(text, categories, paid, start, end, onlyAvailable, sort, from, size, ip);
+        List<EventFullDto> events = service.getByFiltersPublic(text, categories, paid, start, end, onlyAvailable,
+                sort, pageCursor, from, size, ip);
+        if (keyset) {
+            PageCursor.next(events, size, byEventDate)
+                    .ifPresent(next -> response.setHeader(PageCursor.NEXT_CURSOR_HEADER, next.encode()));
+        }
+        return events;
     }
 
     @GetMapping("/{id}")
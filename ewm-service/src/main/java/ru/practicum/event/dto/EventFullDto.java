@@ -1,6 +1,7 @@
 package ru.practicum.event.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import ru.practicum.category.dto.CategoryDto;
 import ru.practicum.event.enums.EventState;
@@ -35,4 +36,6 @@ public class EventFullDto {
     private EventState state;
     private String title;
     private long views;
+    @JsonIgnore
+    private long version;
 }
\ No newline at end of file
@@ -4,7 +4,8 @@ import java.util.Optional;
 
 public enum EventSort {
     EVENT_DATE,
-    VIEWS;
+    VIEWS,
+    RELEVANCE;
 
     public static Optional<EventSort> from(String stringSort) {
         for (EventSort sort : values()) {
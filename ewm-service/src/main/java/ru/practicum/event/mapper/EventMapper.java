@@ -9,6 +9,8 @@ import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.event.dto.NewEventDto;
 import ru.practicum.event.enums.EventState;
 import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventDetails;
+import ru.practicum.event.model.EventShort;
 import ru.practicum.location.mapper.LocationMapper;
 import ru.practicum.location.model.Location;
 import ru.practicum.user.User;
@@ -64,6 +66,7 @@ public class EventMapper {
                 .title(event.getTitle())
                 .views(views)
                 .state(event.getEventState())
+                .version(event.getVersion())
                 .build();
         if (event.getPublishedOn() != null) {
             eventFullDto.setPublishedOn(toLocalDateTime(event.getPublishedOn()));
@@ -71,41 +74,26 @@ public class EventMapper {
         return eventFullDto;
     }
 
-    public static List<EventFullDto> toEventFullDtoList(List<Event> events,
-                                                        List<Category> categories,
-                                                        List<User> users,
-                                                        List<Location> locations,
-                                                        Map<Long, Integer> confirmedRequestsByEventId,
-                                                        List<ViewStatsDto> viewStatsDtos) {
-
-        Map<Long, Integer> viewsByEventId = makeViewMap(viewStatsDtos, events);
-        return toEventFullDtoList(events, categories, users, locations, confirmedRequestsByEventId, viewsByEventId);
+    public static Map<Long, Integer> makeConfirmedRequestsMap(List<? extends EventShort> events) {
+        return events.stream()
+                .collect(Collectors.toMap(EventShort::getId, EventShort::getConfirmedRequests));
     }
 
-    public static List<EventFullDto> toEventFullDtoList(List<Event> events,
-                                                        List<Category> categories,
-                                                        List<User> users,
-                                                        List<Location> locations,
-                                                        Map<Long, Integer> confirmedRequestsByEventId,
-                                                        Map<Long, Integer> viewsByEventId) {
-        Map<Long, Category> categoriesById = makeCategoryMap(categories);
-        Map<Long, User> usersById = makeUsersMap(users);
-        Map<Long, Location> locationsById = makeLocationsMap(locations);
-
-        return events.stream().map(event -> {
-            long eventId = event.getId();
-            return toEventFullDto(event,
-                    categoriesById.get(event.getCategoryId()),
-                    usersById.get(event.getInitiator()),
-                    locationsById.get(event.getLocationId()),
-                    confirmedRequestsByEventId.get(eventId),
-                    viewsByEventId.get(eventId)
-            );
-        }).collect(Collectors.toList());
+    public static EventFullDto toEventFullDto(EventDetails details, int views) {
+        Event event = details.getEvent();
+        return toEventFullDto(event, details.getCategory(), details.getInitiator(), details.getLocation(),
+                event.getConfirmedRequests(), views);
+    }
 
+    public static List<EventFullDto> toEventFullDtoList(List<EventDetails> details, List<ViewStatsDto> viewStatsDtos) {
+        List<Event> events = details.stream().map(EventDetails::getEvent).collect(Collectors.toList());
+        Map<Long, Integer> viewsByEventId = makeViewMap(viewStatsDtos, events);
+        return details.stream()
+                .map(eventDetails -> toEventFullDto(eventDetails, viewsByEventId.get(eventDetails.getEvent().getId())))
+                .collect(Collectors.toList());
     }
 
-    public static EventShortDto toEventShortDto(Event event,
+    public static EventShortDto toEventShortDto(EventShort event,
                                                 Category category,
                                                 int confirmedRequests,
                                                 User user,
@@ -123,7 +111,7 @@ public class EventMapper {
                 .build();
     }
 
-    public static List<EventShortDto> toEventShortDto(List<Event> events,
+    public static List<EventShortDto> toEventShortDto(List<EventShort> events,
                                                       List<Category> categories,
                                                       List<User> users,
                                                       Map<Long, Integer> confirmedRequestsByEventId,
@@ -153,10 +141,5 @@ public class EventMapper {
                 .collect(Collectors.toMap(Category::getId, Function.identity()));
     }
 
-    private static Map<Long, Location> makeLocationsMap(List<Location> locations) {
-        return locations.stream()
-                .collect(Collectors.toMap(Location::getId, Function.identity()));
-    }
-
 
 }
\ No newline at end of file
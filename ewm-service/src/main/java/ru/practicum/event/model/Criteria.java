@@ -3,6 +3,7 @@ package ru.practicum.event.model;
 import lombok.Builder;
 import lombok.Data;
 import ru.practicum.event.enums.EventSort;
+import ru.practicum.util.PageCursor;
 
 import java.time.Instant;
 import java.util.List;
@@ -16,10 +17,12 @@ public class Criteria {
     private List<String> states;
     private List<Long> categories;
     private Boolean paid;
+    private boolean onlyAvailable;
     private Instant start;
     private Instant end;
     private EventSort sort;
     private List<Long> locationIds;
+    private PageCursor cursor;
     private int from;
     private int size;
 
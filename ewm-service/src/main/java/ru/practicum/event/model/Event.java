@@ -1,8 +1,9 @@
 package ru.practicum.event.model;
 
-import lombok.Builder;
 import lombok.Data;
-import ru.practicum.event.enums.EventState;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import lombok.experimental.SuperBuilder;
 
 import java.sql.Timestamp;
 import java.time.Instant;
@@ -10,36 +11,30 @@ import java.util.HashMap;
 import java.util.Map;
 
 @Data
-@Builder
-public class Event {
-    long id;
-    private String annotation;
-    private long categoryId;
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+@SuperBuilder
+public class Event extends EventShort {
     private String description;
-    private Instant eventDate;
     private long locationId;
-    private boolean paid;
     private int participantLimit;
     private boolean requestModeration;
-    private String title;
-    private long initiator;
     private Instant createdOn;
-    private Instant publishedOn;
-    private EventState eventState;
+    private long version;
 
     public Map<String, Object> toMap() {
         Map<String, Object> map = new HashMap<>();
-        map.put("annotation", annotation);
-        map.put("category_id", categoryId);
+        map.put("annotation", getAnnotation());
+        map.put("category_id", getCategoryId());
         map.put("description", description);
-        map.put("event_date", Timestamp.from(eventDate));
+        map.put("event_date", Timestamp.from(getEventDate()));
         map.put("location_id", locationId);
-        map.put("paid", paid);
+        map.put("paid", isPaid());
         map.put("participant_limit", participantLimit);
         map.put("request_moderation", requestModeration);
-        map.put("title", title);
-        map.put("initiator", initiator);
-        map.put("state", eventState.toString());
+        map.put("title", getTitle());
+        map.put("initiator", getInitiator());
+        map.put("state", getEventState().toString());
         return map;
     }
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package ru.practicum.event.model;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.practicum.category.Category;
+import ru.practicum.location.model.Location;
+import ru.practicum.user.User;
+
+//Событие вместе со связанными записями, читается одним запросом. Заполнены только поля, нужные для EventFullDto
+@Data
+@Builder
+public class EventDetails {
+    private Event event;
+    private Category category;
+    private User initiator;
+    private Location location;
+}
@@ -0,0 +1,36 @@
+package ru.practicum.event.model;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.practicum.event.enums.EventState;
+
+import java.time.Instant;
+import java.util.Set;
+
+//Изменение события: null - поле не меняется
+@Data
+@Builder
+public class EventPatch {
+    private String annotation;
+    private Long categoryId;
+    private String description;
+    private Instant eventDate;
+    private Long locationId;
+    private Boolean paid;
+    private Integer participantLimit;
+    private Boolean requestModeration;
+    private String title;
+    private EventState state;
+    private Instant publishedOn;
+    //Условия применения: событие в одном из состояний, принадлежит инициатору и не менялось с указанной версии
+    private Set<EventState> expectedStates;
+    private Long initiator;
+    private Long expectedVersion;
+
+    //Пустое изменение не меняет ни полей, ни версии события
+    public boolean isEmpty() {
+        return annotation == null && categoryId == null && description == null && eventDate == null
+                && locationId == null && paid == null && participantLimit == null && requestModeration == null
+                && title == null && state == null && publishedOn == null;
+    }
+}
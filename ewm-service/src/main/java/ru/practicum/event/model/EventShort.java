@@ -0,0 +1,23 @@
+package ru.practicum.event.model;
+
+import lombok.Data;
+import lombok.experimental.SuperBuilder;
+import ru.practicum.event.enums.EventState;
+
+import java.time.Instant;
+
+//Поля события, нужные для краткого представления и запроса статистики, без описания и служебных колонок
+@Data
+@SuperBuilder
+public class EventShort {
+    long id;
+    private String annotation;
+    private long categoryId;
+    private Instant eventDate;
+    private boolean paid;
+    private String title;
+    private long initiator;
+    private Instant publishedOn;
+    private EventState eventState;
+    private int confirmedRequests;
+}
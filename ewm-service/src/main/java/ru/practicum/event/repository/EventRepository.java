@@ -2,24 +2,42 @@ package ru.practicum.event.repository;
 
 import ru.practicum.event.model.Criteria;
 import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventDetails;
+import ru.practicum.event.model.EventPatch;
+import ru.practicum.event.model.EventShort;
+import ru.practicum.util.PageCursor;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
 public interface EventRepository {
 
-    List<Event> getByCriteria(Criteria criteria);
+    List<EventDetails> getByCriteria(Criteria criteria);
 
-    List<Event> findByInitiatorId(long userId, int from, int size);
+    List<EventDetails> findByInitiatorId(long userId, PageCursor cursor, int from, int size);
+
+    List<EventShort> findUpcomingPublishedAfterId(Instant now, long afterId, int limit);
+
+    int updateViews(Map<Long, Long> viewsByEventId);
+
+    void addConfirmedRequests(long eventId, int delta);
+
+    boolean reserveSeats(long eventId, int seats);
 
     Event add(Event event);
 
     Event findById(long eventId);
 
-    Event update(Event event);
+    Event findByIdForUpdate(long eventId);
+
+    EventDetails findDetailsById(long eventId);
+
+    boolean patch(long eventId, EventPatch patch);
 
     long countEventsByCategoryId(long catId);
 
-    List<Event> finByIds(List<Long> eventIds);
+    List<EventShort> findShortByIds(List<Long> eventIds);
 
     long countEventsByLocationId(long locId);
 }
@@ -9,19 +9,29 @@ import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import ru.practicum.category.Category;
 import ru.practicum.error.exceptions.ConflictException;
 import ru.practicum.error.exceptions.NotFoundException;
 import ru.practicum.event.enums.EventSort;
 import ru.practicum.event.enums.EventState;
 import ru.practicum.event.model.Criteria;
 import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventDetails;
+import ru.practicum.event.model.EventPatch;
+import ru.practicum.event.model.EventShort;
 import ru.practicum.event.repository.EventRepository;
+import ru.practicum.location.model.Location;
+import ru.practicum.user.User;
+import ru.practicum.util.DatabaseDialect;
+import ru.practicum.util.PageCursor;
+import ru.practicum.util.TextSearch;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -31,93 +41,211 @@ import java.util.stream.Collectors;
 @Slf4j
 @RequiredArgsConstructor
 public class EventRepositoryImpl implements EventRepository {
+    //Явный список колонок: search_vector и views в ответы не попадают
+    private static final String SHORT_COLUMNS = "id, annotation, category_id, event_date, paid, title, initiator, " +
+            "published_on, state, confirmed_requests";
+    private static final String FULL_COLUMNS = SHORT_COLUMNS + ", description, location_id, participant_limit, " +
+            "request_moderation, created_on, version";
+    //Карточка события вместе с категорией, инициатором и локацией за один запрос
+    private static final String DETAILS_SELECT = "select " +
+            Arrays.stream(FULL_COLUMNS.split(", ")).map(column -> "e." + column).collect(Collectors.joining(", ")) +
+            ", c.name as category_name, u.name as initiator_name, l.lat as location_lat, l.lon as location_lon " +
+            "from events e " +
+            "join categories c on c.id = e.category_id " +
+            "join users u on u.id = e.initiator " +
+            "join locations l on l.id = e.location_id";
+
     private final JdbcTemplate jdbcTemplate;
     private final NamedParameterJdbcTemplate namedJdbcTemplate;
-
+    private final DatabaseDialect dialect;
 
     @Override
-    public List<Event> getByCriteria(Criteria criteria) {
-        StringBuilder sql = new StringBuilder("select * from events");
+    public List<EventDetails> getByCriteria(Criteria criteria) {
+        StringBuilder sql = new StringBuilder(DETAILS_SELECT);
         List<String> conditions = new ArrayList<>();
         MapSqlParameterSource parameters = new MapSqlParameterSource();
 
         if (criteria.getPublished() != null) {
-            conditions.add("state = 'PUBLISHED'");
+            conditions.add("e.state = 'PUBLISHED'");
         }
 
-        if (criteria.getText() != null) {
-            List<String> textParams = List.of("annotation", "description", "title");
-            String textConditions = textParams.stream()
-                    .map(param -> "lower(" + param + ") like concat('%', :text, '%')")
-                    .collect(Collectors.joining(" OR ", "(", ")"));
-            conditions.add(textConditions);
-            parameters.addValue("text", criteria.getText());
+        List<String> tokens = TextSearch.tokenize(criteria.getText());
+        if (!tokens.isEmpty()) {
+            conditions.add(makeTextCondition(tokens, parameters));
         }
 
         if (criteria.getPaid() != null) {
-            conditions.add("paid = :paid");
+            conditions.add("e.paid = :paid");
             parameters.addValue("paid", criteria.getPaid());
         }
 
+        if (criteria.isOnlyAvailable()) {
+            conditions.add("(e.participant_limit = 0 OR e.confirmed_requests < e.participant_limit)");
+        }
+
         if (criteria.getStart() != null) {
-            conditions.add("event_date >= :start");
+            conditions.add("e.event_date >= :start");
             parameters.addValue("start", Timestamp.from(criteria.getStart()));
         }
 
         if (criteria.getEnd() != null) {
-            conditions.add("(event_date <= :end)");
+            conditions.add("(e.event_date <= :end)");
             parameters.addValue("end", Timestamp.from(criteria.getEnd()));
         }
 
         if (criteria.getUsers() != null) {
-            conditions.add("initiator in (:initiators)");
+            conditions.add("e.initiator in (:initiators)");
             parameters.addValue("initiators", criteria.getUsers());
         }
 
+        if (criteria.getCategories() != null && !criteria.getCategories().isEmpty()) {
+            conditions.add("e.category_id in (:categories)");
+            parameters.addValue("categories", criteria.getCategories());
+        }
+
         if (criteria.getStates() != null) {
-            conditions.add("state in (:states)");
+            conditions.add("e.state in (:states)");
             parameters.addValue("states", criteria.getStates());
         }
 
         if (criteria.getLocationIds() != null && !criteria.getLocationIds().isEmpty()) {
-            conditions.add("location_id in (:locationIds)");
+            conditions.add("e.location_id in (:locationIds)");
             parameters.addValue("locationIds", criteria.getLocationIds());
         }
 
+        PageCursor cursor = criteria.getCursor();
+        if (cursor != null) {
+            conditions.add(cursor.isByEventDate() ? "(e.event_date, e.id) > (:cursorDate, :cursorId)" : "e.id > :cursorId");
+            if (cursor.isByEventDate()) {
+                parameters.addValue("cursorDate", Timestamp.from(cursor.getEventDate()));
+            }
+            parameters.addValue("cursorId", cursor.getId());
+        }
+
         if (!conditions.isEmpty()) {
             String allConditions = conditions.stream()
                     .collect(Collectors.joining(" AND ", "(", ")"));
             sql.append(" where ").append(allConditions);
         }
 
-        if (criteria.getSort() != null && criteria.getSort() == EventSort.EVENT_DATE) {
-            sql.append(" order by event_date");
+        //Порядок по id делает страницы стабильными и позволяет продолжить выборку с курсора
+        if (criteria.getSort() == null) {
+            sql.append(" order by e.id");
+        } else if (criteria.getSort() == EventSort.EVENT_DATE) {
+            sql.append(" order by e.event_date, e.id");
+        } else if (criteria.getSort() == EventSort.VIEWS) {
+            sql.append(" order by e.views desc, e.id");
+        } else if (criteria.getSort() == EventSort.RELEVANCE) {
+            sql.append(tokens.isEmpty() ? " order by e.id" : makeRelevanceOrder());
         }
-        if (criteria.getSort() == null || criteria.getSort() != EventSort.VIEWS) {
-            sql.append(" limit :size offset :from");
-            parameters.addValue("size", criteria.getSize());
-            parameters.addValue("from", criteria.getFrom());
+        appendPage(sql, parameters, cursor, criteria.getFrom(), criteria.getSize());
+
+        return namedJdbcTemplate.query(sql.toString(), parameters, (rs, rowNum) -> mapRowToEventDetails(rs));
+    }
+
+    private String makeTextCondition(List<String> tokens, MapSqlParameterSource parameters) {
+        if (dialect.isPostgres()) {
+            parameters.addValue("textQuery", TextSearch.toPrefixQuery(tokens));
+            return "e.search_vector @@ to_tsquery('" + TextSearch.TEXT_CONFIG + "', :textQuery)";
+        }
+        //В H2 нет полнотекстового индекса, каждое слово ищется как подстрока
+        List<String> textParams = List.of("e.annotation", "e.description", "e.title");
+        List<String> tokenConditions = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String name = "text" + i;
+            parameters.addValue(name, tokens.get(i));
+            tokenConditions.add(textParams.stream()
+                    .map(param -> "lower(" + param + ") like concat('%', :" + name + ", '%')")
+                    .collect(Collectors.joining(" OR ", "(", ")")));
         }
+        return String.join(" AND ", tokenConditions);
+    }
 
-        return namedJdbcTemplate.query(sql.toString(), parameters, (rs, rowNum) -> mapRowToEvent(rs));
+    private String makeRelevanceOrder() {
+        if (dialect.isPostgres()) {
+            return " order by ts_rank(e.search_vector, to_tsquery('" + TextSearch.TEXT_CONFIG + "', :textQuery)) desc, e.id";
+        }
+        return " order by case when lower(e.title) like concat('%', :text0, '%') then 0 else 1 end, e.id";
     }
 
     @Override
-    public List<Event> findByInitiatorId(long userId, int from, int size) {
-        String sql = "select * from events where initiator = :userId " +
-                "order by id limit :size offset :from";
+    public List<EventDetails> findByInitiatorId(long userId, PageCursor cursor, int from, int size) {
+        StringBuilder sql = new StringBuilder(DETAILS_SELECT + " where e.initiator = :userId");
         MapSqlParameterSource parameters = new MapSqlParameterSource("userId", userId);
-        parameters.addValue("from", from);
+        if (cursor != null) {
+            sql.append(" and e.id > :cursorId");
+            parameters.addValue("cursorId", cursor.getId());
+        }
+        sql.append(" order by e.id");
+        appendPage(sql, parameters, cursor, from, size);
+        return namedJdbcTemplate.query(sql.toString(), parameters, (rs, rowNum) -> mapRowToEventDetails(rs));
+    }
+
+    private void appendPage(StringBuilder sql, MapSqlParameterSource parameters, PageCursor cursor, int from, int size) {
+        //С курсором смещение не нужно: выборка начинается сразу после последней строки предыдущей страницы
+        sql.append(" limit :size");
         parameters.addValue("size", size);
-        return namedJdbcTemplate.query(sql, parameters, (rs, rowNum) -> mapRowToEvent(rs));
+        if (cursor == null) {
+            sql.append(" offset :from");
+            parameters.addValue("from", from);
+        }
+    }
+
+    @Override
+    public List<EventShort> findUpcomingPublishedAfterId(Instant now, long afterId, int limit) {
+        String sql = "select id, published_on from events " +
+                "where state = 'PUBLISHED' and event_date > :now and id > :afterId " +
+                "order by id limit :limit";
+        MapSqlParameterSource parameters = new MapSqlParameterSource("afterId", afterId);
+        parameters.addValue("now", Timestamp.from(now));
+        parameters.addValue("limit", limit);
+        return namedJdbcTemplate.query(sql, parameters, (rs, rowNum) -> EventShort.builder()
+                .id(rs.getLong("id"))
+                .publishedOn(rs.getTimestamp("published_on").toInstant())
+                .eventState(EventState.PUBLISHED)
+                .build());
+    }
+
+    @Override
+    public int updateViews(Map<Long, Long> viewsByEventId) {
+        String sql = "update events set views = :views where id = :id and views <> :views";
+        MapSqlParameterSource[] batch = viewsByEventId.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource("id", entry.getKey())
+                        .addValue("views", entry.getValue()))
+                .toArray(MapSqlParameterSource[]::new);
+        return Arrays.stream(namedJdbcTemplate.batchUpdate(sql, batch)).sum();
+    }
+
+    @Override
+    public void addConfirmedRequests(long eventId, int delta) {
+        String sql = "update events set confirmed_requests = confirmed_requests + :delta where id = :id";
+        MapSqlParameterSource parameters = new MapSqlParameterSource("id", eventId);
+        parameters.addValue("delta", delta);
+        if (namedJdbcTemplate.update(sql, parameters) == 0) {
+            log.warn("Событие с id {} не найдено", eventId);
+            throw new NotFoundException(String.format("Событие с id %d не найдено", eventId));
+        }
+    }
+
+    @Override
+    public boolean reserveSeats(long eventId, int seats) {
+        //Проверка лимита и увеличение счетчика одним оператором, строка блокируется до конца транзакции
+        String sql = "update events set confirmed_requests = confirmed_requests + :seats " +
+                "where id = :id and (participant_limit = 0 or confirmed_requests + :seats <= participant_limit)";
+        MapSqlParameterSource parameters = new MapSqlParameterSource("id", eventId);
+        parameters.addValue("seats", seats);
+        return namedJdbcTemplate.update(sql, parameters) > 0;
     }
 
     @Override
     public Event add(Event event) {
+        Map<String, Object> values = event.toMap();
+        //Счетчики и вычисляемые колонки заполняет база, в insert идут только колонки события
         SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
                 .withTableName("events")
+                .usingColumns(values.keySet().toArray(String[]::new))
                 .usingGeneratedKeyColumns("id", "created_on");
-        KeyHolder generatedKeys = simpleJdbcInsert.executeAndReturnKeyHolder(event.toMap());
+        KeyHolder generatedKeys = simpleJdbcInsert.executeAndReturnKeyHolder(values);
         Map<String, Object> keys = generatedKeys.getKeys();
         long id = (long) Objects.requireNonNull(keys).get("id");
         Timestamp createdOn = (Timestamp) keys.get("created_on");
@@ -128,7 +256,18 @@ public class EventRepositoryImpl implements EventRepository {
 
     @Override
     public Event findById(long id) {
-        String sql = "select * from events where id = ?";
+        String sql = "select " + FULL_COLUMNS + " from events where id = ?";
+        try {
+            return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> mapRowToEvent(rs), id);
+        } catch (DataRetrievalFailureException e) {
+            log.warn("Событие с id {} не найдено", id);
+            throw new NotFoundException(String.format("Событие с id %d не найдено", id));
+        }
+    }
+
+    @Override
+    public Event findByIdForUpdate(long id) {
+        String sql = "select " + FULL_COLUMNS + " from events where id = ? for update";
         try {
             return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> mapRowToEvent(rs), id);
         } catch (DataRetrievalFailureException e) {
@@ -138,30 +277,65 @@ public class EventRepositoryImpl implements EventRepository {
     }
 
     @Override
-    public Event update(Event event) {
-        String sql = "update events set annotation = :annotation, " +
-                "category_id = :categoryId, " +
-                "description = :description, " +
-                "event_date = :eventDate, " +
-                "location_id = :locationId, " +
-                "paid = :paid, " +
-                "participant_limit = :participantLimit, " +
-                "request_moderation = :requestModeration, " +
-                "title = :title, " +
-                "initiator = :initiator, " +
-                "created_on = :createdOn ";
-        MapSqlParameterSource parameters = makeParameterMap(event);
-        if (event.getEventState() == EventState.PUBLISHED) {
-            sql = sql + ", published_on = :publishedOn , state = 'PUBLISHED' ";
-        } else if (event.getEventState() == EventState.CANCELED) {
-            sql = sql + ", state = 'CANCELED' ";
-        }
-        sql = sql + "where id = :id";
-        if (namedJdbcTemplate.update(sql, parameters) > 0) {
-            return event;
-        }
-        log.warn("Событие с id {} не найдено", event.getId());
-        throw new NotFoundException(String.format("Событие с id %d не найдено", event.getId()));
+    public EventDetails findDetailsById(long id) {
+        String sql = DETAILS_SELECT + " where e.id = ?";
+        try {
+            return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> mapRowToEventDetails(rs), id);
+        } catch (DataRetrievalFailureException e) {
+            log.warn("Событие с id {} не найдено", id);
+            throw new NotFoundException(String.format("Событие с id %d не найдено", id));
+        }
+    }
+
+    @Override
+    public boolean patch(long eventId, EventPatch patch) {
+        //Пишутся только переданные поля, допустимость перехода состояния проверяется в том же операторе
+        List<String> columns = new ArrayList<>();
+        MapSqlParameterSource parameters = new MapSqlParameterSource("id", eventId);
+        addColumn(columns, parameters, "annotation", patch.getAnnotation());
+        addColumn(columns, parameters, "category_id", patch.getCategoryId());
+        addColumn(columns, parameters, "description", patch.getDescription());
+        addColumn(columns, parameters, "event_date",
+                patch.getEventDate() == null ? null : Timestamp.from(patch.getEventDate()));
+        addColumn(columns, parameters, "location_id", patch.getLocationId());
+        addColumn(columns, parameters, "paid", patch.getPaid());
+        addColumn(columns, parameters, "participant_limit", patch.getParticipantLimit());
+        addColumn(columns, parameters, "request_moderation", patch.getRequestModeration());
+        addColumn(columns, parameters, "title", patch.getTitle());
+        addColumn(columns, parameters, "state", patch.getState() == null ? null : patch.getState().toString());
+        addColumn(columns, parameters, "published_on",
+                patch.getPublishedOn() == null ? null : Timestamp.from(patch.getPublishedOn()));
+        StringBuilder conditions = new StringBuilder(" where id = :id");
+        if (patch.getExpectedStates() != null) {
+            conditions.append(" and state in (:expectedStates)");
+            parameters.addValue("expectedStates", patch.getExpectedStates().stream()
+                    .map(EventState::toString)
+                    .collect(Collectors.toList()));
+        }
+        if (patch.getInitiator() != null) {
+            conditions.append(" and initiator = :initiator");
+            parameters.addValue("initiator", patch.getInitiator());
+        }
+        if (patch.getExpectedVersion() != null) {
+            conditions.append(" and version = :version");
+            parameters.addValue("version", patch.getExpectedVersion());
+        }
+        if (patch.isEmpty()) {
+            //Пустое изменение не пишет строку и не меняет версию, проверяются только условия применения
+            Integer matched = namedJdbcTemplate.queryForObject("select count(*) from events" + conditions,
+                    parameters, Integer.class);
+            return matched != null && matched > 0;
+        }
+        columns.add("version = version + 1");
+        String sql = "update events set " + String.join(", ", columns) + conditions;
+        return namedJdbcTemplate.update(sql, parameters) > 0;
+    }
+
+    private void addColumn(List<String> columns, MapSqlParameterSource parameters, String column, Object value) {
+        if (value != null) {
+            columns.add(column + " = :" + column);
+            parameters.addValue(column, value);
+        }
     }
 
     @Override
@@ -174,10 +348,10 @@ public class EventRepositoryImpl implements EventRepository {
     }
 
     @Override
-    public List<Event> finByIds(List<Long> ids) {
-        String sql = "select * from events where id in (:ids)";
+    public List<EventShort> findShortByIds(List<Long> ids) {
+        String sql = "select " + SHORT_COLUMNS + " from events where id in (:ids)";
         MapSqlParameterSource parameters = new MapSqlParameterSource("ids", ids);
-        return namedJdbcTemplate.query(sql, parameters, (rs, rowNum) -> mapRowToEvent(rs));
+        return namedJdbcTemplate.query(sql, parameters, (rs, rowNum) -> mapRowToEventShort(rs));
     }
 
     @Override
@@ -189,27 +363,6 @@ public class EventRepositoryImpl implements EventRepository {
         return countEventsByLocId == null ? 0 : countEventsByLocId;
     }
 
-    private MapSqlParameterSource makeParameterMap(Event event) {
-        MapSqlParameterSource parameters = new MapSqlParameterSource();
-        parameters.addValue("id", event.getId());
-        parameters.addValue("annotation", event.getAnnotation());
-        parameters.addValue("categoryId", event.getCategoryId());
-        parameters.addValue("description", event.getDescription());
-        parameters.addValue("eventDate", Timestamp.from(event.getEventDate()));
-        parameters.addValue("locationId", event.getLocationId());
-        parameters.addValue("paid", event.isPaid());
-        parameters.addValue("participantLimit", event.getParticipantLimit());
-        parameters.addValue("requestModeration", event.isRequestModeration());
-        parameters.addValue("title", event.getTitle());
-        parameters.addValue("initiator", event.getInitiator());
-        parameters.addValue("createdOn", Timestamp.from(event.getCreatedOn()));
-        Timestamp publishedOnTimestamp = event.getPublishedOn() == null ? null :
-                Timestamp.from(event.getPublishedOn());
-        parameters.addValue("publishedOn", publishedOnTimestamp);
-        parameters.addValue("eventState", event.getEventState());
-        return parameters;
-    }
-
     private Event mapRowToEvent(ResultSet rs) throws SQLException {
         long id = rs.getLong("id");
         String annotation = rs.getString("annotation");
@@ -223,6 +376,8 @@ public class EventRepositoryImpl implements EventRepository {
         String title = rs.getString("title");
         long initiator = rs.getLong("initiator");
         Instant createdOn = rs.getTimestamp("created_on").toInstant();
+        long version = rs.getLong("version");
+        int confirmedRequests = rs.getInt("confirmed_requests");
         EventState eventState = EventState.from(rs.getString("state"))
                 .orElseThrow(() -> new ConflictException("В базу попало что-то не то"));
 
@@ -239,7 +394,9 @@ public class EventRepositoryImpl implements EventRepository {
                 .title(title)
                 .initiator(initiator)
                 .createdOn(createdOn)
+                .version(version)
                 .eventState(eventState)
+                .confirmedRequests(confirmedRequests)
                 .build();
 
         if (eventState == EventState.PUBLISHED) {
@@ -248,4 +405,49 @@ public class EventRepositoryImpl implements EventRepository {
         }
         return event;
     }
+
+    private EventDetails mapRowToEventDetails(ResultSet rs) throws SQLException {
+        Event event = mapRowToEvent(rs);
+        Category category = Category.builder()
+                .id(event.getCategoryId())
+                .name(rs.getString("category_name"))
+                .build();
+        User initiator = User.builder()
+                .id(event.getInitiator())
+                .name(rs.getString("initiator_name"))
+                .build();
+        Location location = Location.builder()
+                .id(event.getLocationId())
+                .lat(rs.getFloat("location_lat"))
+                .lon(rs.getFloat("location_lon"))
+                .build();
+        return EventDetails.builder()
+                .event(event)
+                .category(category)
+                .initiator(initiator)
+                .location(location)
+                .build();
+    }
+
+    private EventShort mapRowToEventShort(ResultSet rs) throws SQLException {
+        EventState eventState = EventState.from(rs.getString("state"))
+                .orElseThrow(() -> new ConflictException("В базу попало что-то не то"));
+
+        EventShort event = EventShort.builder()
+                .id(rs.getLong("id"))
+                .annotation(rs.getString("annotation"))
+                .categoryId(rs.getLong("category_id"))
+                .eventDate(rs.getTimestamp("event_date").toInstant())
+                .paid(rs.getBoolean("paid"))
+                .title(rs.getString("title"))
+                .initiator(rs.getLong("initiator"))
+                .eventState(eventState)
+                .confirmedRequests(rs.getInt("confirmed_requests"))
+                .build();
+
+        if (eventState == EventState.PUBLISHED) {
+            event.setPublishedOn(rs.getTimestamp("published_on").toInstant());
+        }
+        return event;
+    }
 }
\ No newline at end of file
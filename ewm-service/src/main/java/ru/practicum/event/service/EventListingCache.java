@@ -0,0 +1,96 @@
+package ru.practicum.event.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.event.dto.EventFullDto;
+import ru.practicum.event.enums.EventSort;
+import ru.practicum.util.PageCursor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/*
+ * Кэш ответов публичного поиска событий по нормализованному запросу.
+ * Публикация, изменение события и изменение числа подтвержденных заявок сбрасывают кэш целиком,
+ * просмотры и данные категорий устаревают не дольше чем на время жизни записи.
+ */
+@Component
+public class EventListingCache {
+    private final Cache<Key, List<EventFullDto>> responses;
+
+    public EventListingCache(MeterRegistry registry,
+                             @Value("${ewm.cache.event-listing.max-size:1000}") long maxSize,
+                             @Value("${ewm.cache.event-listing.ttl:10s}") Duration ttl) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, responses, "event.listing");
+    }
+
+    public List<EventFullDto> get(Key key, Supplier<List<EventFullDto>> loader) {
+        return responses.get(key, k -> List.copyOf(loader.get()));
+    }
+
+    //Внутри транзакции кэш сбрасывается после коммита, иначе параллельный запрос закэширует старые данные
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    responses.invalidateAll();
+                }
+            });
+        } else {
+            responses.invalidateAll();
+        }
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class Key {
+        private final String text;
+        private final List<Long> categories;
+        private final Boolean paid;
+        private final Instant start; //null - с текущего момента
+        private final Instant end;
+        private final boolean onlyAvailable;
+        private final EventSort sort;
+        private final PageCursor cursor;
+        private final int from;
+        private final int size;
+
+        public static Key of(String text,
+                             List<Long> categories,
+                             Boolean paid,
+                             Instant start,
+                             Instant end,
+                             boolean onlyAvailable,
+                             EventSort sort,
+                             PageCursor cursor,
+                             int from,
+                             int size) {
+            String normalizedText = text == null ? null : text.toLowerCase();
+            List<Long> normalizedCategories = categories == null
+                    ? null
+                    : categories.stream().distinct().sorted().collect(Collectors.toUnmodifiableList());
+            return new Key(normalizedText, normalizedCategories, paid, start, end, onlyAvailable, sort, cursor,
+                    from, size);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import ru.practicum.event.dto.EventFullDto;
 import ru.practicum.event.dto.NewEventDto;
 import ru.practicum.event.dto.UpdateEventDto;
 import ru.practicum.event.enums.EventSort;
+import ru.practicum.util.PageCursor;
 
 import java.time.Instant;
 import java.util.List;
@@ -17,10 +18,11 @@ public interface EventService {
                                                Float lat,
                                                Float lon,
                                                Integer radius,
+                                               PageCursor cursor,
                                                int from,
                                                int size);
 
-    EventFullDto patchByAdmin(long eventId, UpdateEventDto updateEventDto);
+    EventFullDto patchByAdmin(long eventId, UpdateEventDto updateEventDto, Long expectedVersion);
 
     List<EventFullDto> getByFiltersPublic(String text,
                                           List<Long> categories,
@@ -29,18 +31,19 @@ public interface EventService {
                                           Instant end,
                                           boolean onlyAvailable,
                                           EventSort sort,
+                                          PageCursor cursor,
                                           int from,
                                           int size,
                                           String ip);
 
     EventFullDto getByIdPublic(long id, String ip);
 
-    List<EventFullDto> getByUserId(long userId, int from, int size);
+    List<EventFullDto> getByUserId(long userId, PageCursor cursor, int from, int size);
 
     EventFullDto getUsersEventById(long userId, long eventId);
 
     EventFullDto add(long userId, NewEventDto newEventDto);
 
-    EventFullDto update(long userId, long eventId, UpdateEventDto updateEventDto);
+    EventFullDto update(long userId, long eventId, UpdateEventDto updateEventDto, Long expectedVersion);
 
 }
\ No newline at end of file
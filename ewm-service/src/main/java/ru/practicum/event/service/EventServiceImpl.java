@@ -3,10 +3,8 @@ package ru.practicum.event.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.category.Category;
-import ru.practicum.category.repository.CategoryRepository;
-import ru.practicum.client.StatsClient;
+import org.springframework.transaction.support.TransactionOperations;
+import ru.practicum.client.buffer.HitBuffer;
 import ru.practicum.client.exception.StatsRequestException;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.ViewStatsDto;
@@ -22,6 +20,9 @@ import ru.practicum.event.enums.StateActionPrivate;
 import ru.practicum.event.mapper.EventMapper;
 import ru.practicum.event.model.Criteria;
 import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventDetails;
+import ru.practicum.event.model.EventPatch;
+import ru.practicum.event.model.EventShort;
 import ru.practicum.event.repository.EventRepository;
 import ru.practicum.location.dto.LocationDto;
 import ru.practicum.location.mapper.LocationMapper;
@@ -29,42 +30,42 @@ import ru.practicum.location.model.Location;
 import ru.practicum.location.model.LocationCriteria;
 import ru.practicum.location.model.SearchArea;
 import ru.practicum.location.repository.LocationRepository;
-import ru.practicum.request.repository.RequestRepository;
-import ru.practicum.user.User;
-import ru.practicum.user.repository.UserRepository;
+import ru.practicum.util.EnrichmentExecutor;
+import ru.practicum.util.PageCursor;
 import ru.practicum.util.StatisticRequestService;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Function;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static ru.practicum.event.enums.EventState.PUBLISHED;
 import static ru.practicum.util.DateTime.toInstant;
 import static ru.practicum.util.LocationSearch.makeSearchArea;
 import static ru.practicum.util.Statistics.getEventId;
-import static ru.practicum.util.Statistics.makeViewMap;
 import static ru.practicum.util.Validation.*;
 
+//Чтение идет без общей транзакции: каждый запрос к базе берет соединение из пула и сразу возвращает его.
+//Изменения выполняются в транзакции, а ответ с просмотрами собирается уже после ее завершения
 @Service
-@Transactional(readOnly = true)
 @Slf4j
 @RequiredArgsConstructor
 public class EventServiceImpl implements EventService {
     private static final String APP = "ewm-main-service";
     private static final String URI = "/events";
+    private static final String STATS_BRANCH = "stats";
 
     private final EventRepository repository;
-    private final CategoryRepository categoryRepo;
-    private final RequestRepository requestRepo;
-    private final UserRepository userRepo;
     private final LocationRepository locationRepo;
-    private final StatsClient client;
+    private final HitBuffer hitBuffer;
     private final StatisticRequestService statsRequestService;
+    private final EnrichmentExecutor enrichmentExecutor;
+    private final EventListingCache listingCache;
+    private final TransactionOperations transactions;
 
     @Override
     public List<EventFullDto> getAllByCriteriaByAdmin(List<Long> users,
@@ -75,6 +76,7 @@ public class EventServiceImpl implements EventService {
                                                       Float lat,
                                                       Float lon,
                                                       Integer radius,
+                                                      PageCursor cursor,
                                                       int from,
                                                       int size) {
         List<Long> locationIds = null;
@@ -88,28 +90,36 @@ public class EventServiceImpl implements EventService {
                 .start(start)
                 .end(end)
                 .locationIds(locationIds)
+                .cursor(cursor)
                 .from(from)
                 .size(size)
                 .build();
-        List<Event> events = repository.getByCriteria(criteria);
+        List<EventDetails> events = repository.getByCriteria(criteria);
         return makeFullResponseDtoList(events);
     }
 
     @Override
-    @Transactional
-    public EventFullDto patchByAdmin(long eventId, UpdateEventDto updateEventDto) {
-        Event event = repository.findById(eventId);
-        updateNotNullFields(event, updateEventDto);
-        String stateAction = updateEventDto.getStateAction();
-        if (stateAction != null) {
-            if (event.getEventState() != EventState.PENDING) {
+    public EventFullDto patchByAdmin(long eventId, UpdateEventDto updateEventDto, Long expectedVersion) {
+        EventDetails details = transactions.execute(status -> {
+            EventPatch.EventPatchBuilder patch = makePatch(updateEventDto)
+                    .expectedVersion(expectedVersion);
+            String stateAction = updateEventDto.getStateAction();
+            if (stateAction != null) {
+                setEventStateByAdminAction(patch, stateAction);
+                patch.expectedStates(Set.of(EventState.PENDING));
+            }
+            EventPatch eventPatch = patch.build();
+            if (!repository.patch(eventId, eventPatch)) {
+                checkVersion(repository.findById(eventId), expectedVersion);
                 log.warn("Событие можно опубликовать или отклонить только в состоянии PENDING");
                 throw new ConflictException("Событие можно опубликовать или отклонить только в состоянии PENDING");
             }
-            setEventStateByAdminAction(event, stateAction);
-        }
-        event = repository.update(event);
-        return makeFullResponseDto(event);
+            if (!eventPatch.isEmpty()) {
+                listingCache.invalidate();
+            }
+            return repository.findDetailsById(eventId);
+        });
+        return makeFullResponseDto(details);
     }
 
     @Override
@@ -120,79 +130,90 @@ public class EventServiceImpl implements EventService {
                                                  Instant end,
                                                  boolean onlyAvailable,
                                                  EventSort sort,
+                                                 PageCursor cursor,
                                                  int from,
                                                  int size,
                                                  String ip) {
-
-        if (text != null) {
-            text = text.toLowerCase();
+        EventListingCache.Key key = EventListingCache.Key.of(text, categoryIds, paid, start, end, onlyAvailable,
+                sort, cursor, from, size);
+        List<EventFullDto> events = listingCache.get(key, () -> findByFiltersPublic(key));
+        //Просмотры учитываются и для ответов из кэша
+        List<EndpointHitDto> hitDtos = new ArrayList<>();
+        hitDtos.add(makeHitDto(URI, ip));
+        if (sort != EventSort.VIEWS) {
+            events.forEach(event -> hitDtos.add(makeHitDto(URI + "/" + event.getId(), ip)));
         }
+        hitBuffer.addAll(hitDtos);
+        return events;
+    }
 
+    private List<EventFullDto> findByFiltersPublic(EventListingCache.Key key) {
         Criteria criteria = Criteria.builder()
-                .text(text)
-                .categories(categoryIds)
-                .paid(paid)
-                .start(start)
-                .end(end)
-                .sort(sort)
-                .from(from)
-                .size(size)
+                .text(key.getText())
+                .categories(key.getCategories())
+                .paid(key.getPaid())
+                .onlyAvailable(key.isOnlyAvailable())
+                .start(key.getStart() == null ? Instant.now() : key.getStart())
+                .end(key.getEnd())
+                .sort(key.getSort())
+                .cursor(key.getCursor())
+                .from(key.getFrom())
+                .size(key.getSize())
                 .published(true)
                 .build();
-        List<Event> events = repository.getByCriteria(criteria);
-        addEndHitPoint(URI, ip);
-        if (onlyAvailable) {
-            List<Long> eventIds = events.stream().map(Event::getId).collect(Collectors.toList());
-            Map<Long, Integer> confirmedRequestsQty = requestRepo.countConfirmedRequestsByEventIds(eventIds);
-            events = events.stream()
-                    .filter(event -> confirmedRequestsQty.get(event.getId()) < event.getParticipantLimit())
-                    .collect(Collectors.toList());
-        }
-        if (sort == EventSort.VIEWS) {
-            return makeSortedByViewsFullResponseDtoList(events, from, size);
-
-        }
-        events.forEach(event -> addEndHitPoint(URI + "/" + event.getId(), ip));
-        return makeFullResponseDtoList(events);
+        return makeFullResponseDtoList(repository.getByCriteria(criteria));
     }
 
     @Override
     public EventFullDto getByIdPublic(long id, String ip) {
-        Event event = repository.findById(id);
-        if (event.getEventState() != PUBLISHED) {
+        //Просмотры запрашиваются параллельно с чтением события, дата публикации еще неизвестна
+        CompletableFuture<List<ViewStatsDto>> views = submitViews(
+                EventShort.builder().id(id).eventState(PUBLISHED).build());
+        EventDetails details;
+        try {
+            details = repository.findDetailsById(id);
+        } catch (RuntimeException e) {
+            views.cancel(false);
+            throw e;
+        }
+        if (details.getEvent().getEventState() != PUBLISHED) {
+            views.cancel(false);
             log.warn("Попытка просмотра неопубликованного события с id {} пользователем с ip {}",
                     id, ip);
             throw new NotFoundException(String.format("Событие с id %d еще не опубликовано", id));
         }
-        addEndHitPoint(URI + "/" + id, ip);
-        return makeFullResponseDto(event);
+        hitBuffer.add(makeHitDto(URI + "/" + id, ip));
+        return makeFullResponseDto(details, views);
     }
 
 
     @Override
-    public List<EventFullDto> getByUserId(long userId, int from, int size) {
-        List<Event> events = repository.findByInitiatorId(userId, from, size);
+    public List<EventFullDto> getByUserId(long userId, PageCursor cursor, int from, int size) {
+        List<EventDetails> events = repository.findByInitiatorId(userId, cursor, from, size);
         return makeFullResponseDtoList(events);
     }
 
     @Override
     public EventFullDto getUsersEventById(long userId, long eventId) {
-        Event event = repository.findById(eventId);
-        checkInitiator(event, userId);
-        return makeFullResponseDto(event);
+        EventDetails details = repository.findDetailsById(eventId);
+        checkInitiator(details.getEvent(), userId);
+        return makeFullResponseDto(details);
     }
 
     @Override
-    @Transactional
     public EventFullDto add(long userId, NewEventDto newEventDto) {
         if (newEventDto.getRequestModeration() == null) {
             newEventDto.setRequestModeration(true);
         }
         Location location = LocationMapper.toLocation(newEventDto.getLocation());
-        long locationId = setIdToLocation(location);
-        Event event = EventMapper.toEvent(newEventDto, locationId, userId);
-        event = repository.add(event);
-        return makeFullResponseDto(event, location);
+        EventDetails details = transactions.execute(status -> {
+            long locationId = setIdToLocation(location);
+            Event event = repository.add(EventMapper.toEvent(newEventDto, locationId, userId));
+            return repository.findDetailsById(event.getId());
+        });
+        //В ответе остаются координаты из запроса, даже если событие привязано к ближайшей сохраненной локации
+        details.setLocation(location);
+        return makeFullResponseDto(details);
     }
 
     private long setIdToLocation(Location location) {
@@ -208,20 +229,30 @@ public class EventServiceImpl implements EventService {
     }
 
     @Override
-    @Transactional
-    public EventFullDto update(long userId, long eventId, UpdateEventDto updateEventDto) {
-        Event event = repository.findById(eventId);
-        if (event.getEventState() == PUBLISHED) {
-            throw new ConflictException("Only pending or canceled events can be changed");
-        }
-        checkInitiator(event, userId);
-        updateNotNullFields(event, updateEventDto);
-        String stateAction = updateEventDto.getStateAction();
-        if (stateAction != null) {
-            setEventStateByPrivateAction(event, stateAction);
-        }
-        event = repository.update(event);
-        return makeFullResponseDto(event);
+    public EventFullDto update(long userId, long eventId, UpdateEventDto updateEventDto, Long expectedVersion) {
+        EventDetails details = transactions.execute(status -> {
+            EventPatch.EventPatchBuilder patch = makePatch(updateEventDto)
+                    .expectedStates(Set.of(EventState.PENDING, EventState.CANCELED))
+                    .initiator(userId)
+                    .expectedVersion(expectedVersion);
+            String stateAction = updateEventDto.getStateAction();
+            if (stateAction != null) {
+                setEventStateByPrivateAction(patch, stateAction);
+            }
+            if (!repository.patch(eventId, patch.build())) {
+                //Изменение не применилось: причину определяет повторное чтение
+                Event event = repository.findById(eventId);
+                if (event.getEventState() == PUBLISHED) {
+                    throw new ConflictException("Only pending or canceled events can be changed");
+                }
+                checkInitiator(event, userId);
+                checkVersion(event, expectedVersion);
+                throw new ConflictException(
+                        String.format("Событие с id %d было изменено другим запросом", eventId));
+            }
+            return repository.findDetailsById(eventId);
+        });
+        return makeFullResponseDto(details);
     }
 
     private List<Long> getLocationIdsInArea(Float lat, Float lon, Integer radius) {
@@ -234,87 +265,80 @@ public class EventServiceImpl implements EventService {
                 .collect(Collectors.toList());
     }
 
-    private void setEventStateByPrivateAction(Event event, String stateAction) {
+    private void setEventStateByPrivateAction(EventPatch.EventPatchBuilder patch, String stateAction) {
         StateActionPrivate action = StateActionPrivate.from(stateAction)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateAction));
         if (action == StateActionPrivate.SEND_TO_REVIEW) {
-            event.setEventState(EventState.PENDING);
+            patch.state(EventState.PENDING);
         } else {
-            event.setEventState(EventState.CANCELED);
+            patch.state(EventState.CANCELED);
         }
     }
 
-    private void setEventStateByAdminAction(Event event, String stateAction) {
+    private void setEventStateByAdminAction(EventPatch.EventPatchBuilder patch, String stateAction) {
         StateActionAdmin action = StateActionAdmin.from(stateAction)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateAction));
         if (action == StateActionAdmin.PUBLISH_EVENT) {
-            event.setEventState(PUBLISHED);
-            event.setPublishedOn(Instant.now());
+            patch.state(PUBLISHED);
+            patch.publishedOn(Instant.now());
         } else {
-            event.setEventState(EventState.CANCELED);
+            patch.state(EventState.CANCELED);
         }
     }
 
-    private void updateNotNullFields(Event event, UpdateEventDto updateEventDto) {
+    private EventPatch.EventPatchBuilder makePatch(UpdateEventDto updateEventDto) {
         String annotationToUpdate = updateEventDto.getAnnotation();
         Long categoryToUpdate = updateEventDto.getCategory();
         String descriptionToUpdate = updateEventDto.getDescription();
         LocalDateTime eventDateToUpdate = updateEventDto.getEventDate();
         LocationDto locationToUpdate = updateEventDto.getLocation();
-        Boolean paidToUpdate = updateEventDto.getPaid();
         Integer participantLimitToUpdate = updateEventDto.getParticipantLimit();
-        Boolean requestModerationToUpdate = updateEventDto.getRequestModeration();
         String titleToUpdate = updateEventDto.getTitle();
 
+        EventPatch.EventPatchBuilder patch = EventPatch.builder()
+                .paid(updateEventDto.getPaid())
+                .requestModeration(updateEventDto.getRequestModeration());
         if (annotationToUpdate != null) {
             validateStringField(annotationToUpdate, "аннотация", 20, 2000);
-            event.setAnnotation(annotationToUpdate);
+            patch.annotation(annotationToUpdate);
         }
         if (categoryToUpdate != null) {
             validatePositive(categoryToUpdate, "id категории");
-            event.setCategoryId(categoryToUpdate);
+            patch.categoryId(categoryToUpdate);
         }
         if (descriptionToUpdate != null) {
             validateStringField(descriptionToUpdate, "описание", 20, 7000);
-            event.setDescription(descriptionToUpdate);
+            patch.description(descriptionToUpdate);
         }
         if (eventDateToUpdate != null) {
             validateEventDate(eventDateToUpdate);
-            event.setEventDate(toInstant(eventDateToUpdate));
+            patch.eventDate(toInstant(eventDateToUpdate));
         }
         if (locationToUpdate != null) {
             Location location = LocationMapper.toLocation(locationToUpdate);
-            long locationId = setIdToLocation(location);
-            event.setLocationId(locationId);
-        }
-        if (paidToUpdate != null) {
-            event.setPaid(paidToUpdate);
+            patch.locationId(setIdToLocation(location));
         }
         if (participantLimitToUpdate != null) {
             validatePositive(participantLimitToUpdate, "максимальное количество участников");
-            event.setParticipantLimit(participantLimitToUpdate);
-        }
-        if (requestModerationToUpdate != null) {
-            event.setRequestModeration(requestModerationToUpdate);
+            patch.participantLimit(participantLimitToUpdate);
         }
         if (titleToUpdate != null) {
             validateStringField(titleToUpdate, "заголовок", 3, 120);
-            event.setTitle(titleToUpdate);
+            patch.title(titleToUpdate);
         }
+        return patch;
     }
 
-    private EventFullDto makeFullResponseDto(Event event) {
-        Location location = locationRepo.findById(event.getLocationId());
-        return makeFullResponseDto(event, location);
+    private EventFullDto makeFullResponseDto(EventDetails details) {
+        Event event = details.getEvent();
+        return makeFullResponseDto(details, event.getEventState() == PUBLISHED ? submitViews(event) : null);
     }
 
-    private EventFullDto makeFullResponseDto(Event event, Location location) {
-        User user = userRepo.findById(event.getInitiator());
-        Category category = categoryRepo.findById(event.getCategoryId());
-        int confirmedRequests = requestRepo.countConfirmedRequestsByEventId(event.getId());
+    private EventFullDto makeFullResponseDto(EventDetails details, CompletableFuture<List<ViewStatsDto>> viewsFuture) {
+        Event event = details.getEvent();
         int views = 0;
         if (event.getEventState() == PUBLISHED) {
-            List<ViewStatsDto> viewStatsDto = statsRequestService.makeStatRequest(List.of(event));
+            List<ViewStatsDto> viewStatsDto = enrichmentExecutor.join(STATS_BRANCH, viewsFuture);
             if (!viewStatsDto.isEmpty()) {
                 long eventId = getEventId(viewStatsDto.get(0));
                 if (event.getId() != eventId) {
@@ -327,84 +351,39 @@ public class EventServiceImpl implements EventService {
             views = viewStatsDto.isEmpty() ? 0 : (int) viewStatsDto.get(0).getHits();
         }
 
-        return EventMapper.toEventFullDto(event, category, user, location, confirmedRequests, views);
+        return EventMapper.toEventFullDto(details, views);
     }
 
-    private List<EventFullDto> makeSortedByViewsFullResponseDtoList(List<Event> events, int from, int size) {
-        if (events.isEmpty()) {
+    private List<EventFullDto> makeFullResponseDtoList(List<EventDetails> details) {
+        if (details.isEmpty()) {
             return Collections.emptyList();
         }
-        List<ViewStatsDto> viewStatsDtos = statsRequestService.makeStatRequest(events);
-        Map<Long, Integer> viewsByEventId = makeViewMap(viewStatsDtos, events);
-        viewsByEventId = viewsByEventId.entrySet().stream()
-                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-                .skip(from)
-                .limit(size)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-
-        Map<Long, Event> eventsByIds = events.stream().collect(Collectors.toMap(Event::getId, Function.identity()));
-
-
-        events = viewsByEventId.keySet().stream()
-                .map(eventsByIds::get)
-                .collect(Collectors.toList());
-
-        List<Category> categories = findCategoriesByEvents(events);
-        List<User> users = findUsersByEvents(events);
-        List<Location> locations = findLocationsByEvents(events);
-        List<Long> eventIds = events.stream().map(Event::getId).collect(Collectors.toList());
-        Map<Long, Integer> confirmedRequestsByEventId = requestRepo.countConfirmedRequestsByEventIds(eventIds);
-
-        return EventMapper.toEventFullDtoList(events, categories, users, locations,
-                confirmedRequestsByEventId, viewsByEventId);
+        List<Event> events = details.stream().map(EventDetails::getEvent).collect(Collectors.toList());
+        //Категории, инициаторы и локации уже пришли одним запросом, остается только статистика с ограничением по времени
+        List<ViewStatsDto> viewStatsDtos = enrichmentExecutor.join(STATS_BRANCH,
+                enrichmentExecutor.submit(STATS_BRANCH, () -> statsRequestService.makeStatRequest(events)));
+        return EventMapper.toEventFullDtoList(details, viewStatsDtos);
     }
 
-    private List<EventFullDto> makeFullResponseDtoList(List<Event> events) {
-        if (events.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        List<Long> eventIds = events.stream().map(Event::getId).collect(Collectors.toList());
-
-        List<Category> categories = findCategoriesByEvents(events);
-        List<User> users = findUsersByEvents(events);
-        List<Location> locations = findLocationsByEvents(events);
-        Map<Long, Integer> confirmedRequestsByEventId = requestRepo.countConfirmedRequestsByEventIds(eventIds);
-
-        List<ViewStatsDto> viewStatsDtos = statsRequestService.makeStatRequest(events);
-
-        return EventMapper.toEventFullDtoList(events, categories, users, locations,
-                confirmedRequestsByEventId, viewStatsDtos);
-    }
-
-    private List<Location> findLocationsByEvents(List<Event> events) {
-        List<Long> locationIds = events.stream().map(Event::getLocationId).distinct().collect(Collectors.toList());
-        return locationRepo.findByIds(locationIds);
-    }
-
-    private List<User> findUsersByEvents(List<Event> events) {
-        List<Long> userIds = events.stream().map(Event::getInitiator).distinct().collect(Collectors.toList());
-        return userRepo.findByIds(userIds);
+    private CompletableFuture<List<ViewStatsDto>> submitViews(EventShort event) {
+        return enrichmentExecutor.submit(STATS_BRANCH, () -> statsRequestService.makeStatRequest(List.of(event)));
     }
 
-    private List<Category> findCategoriesByEvents(List<Event> events) {
-        List<Long> categoryIds = events.stream().map(Event::getCategoryId).distinct().collect(Collectors.toList());
-        return categoryRepo.findByIds(categoryIds);
-    }
-
-    private void addEndHitPoint(String uri, String ip) {
-        EndpointHitDto hitDto = EndpointHitDto.builder()
+    private EndpointHitDto makeHitDto(String uri, String ip) {
+        return EndpointHitDto.builder()
                 .app(APP)
                 .uri(uri)
                 .ip(ip)
                 .timestamp(LocalDateTime.now())
                 .build();
-        try {
-            client.addEndPointHit(hitDto);
-        } catch (StatsRequestException e) {
-            throw new StatsRequestException(
-                    String.format("Ошибка добавления просмотра страницы %s пользователем %s: ", uri, ip)
-                            + e.getMessage());
+    }
+
+    private void checkVersion(Event event, Long expectedVersion) {
+        if (expectedVersion != null && event.getVersion() != expectedVersion) {
+            log.warn("Версия события с id {} {} не совпадает с ожидаемой {}",
+                    event.getId(), event.getVersion(), expectedVersion);
+            throw new ConflictException(
+                    String.format("Событие с id %d было изменено другим запросом", event.getId()));
         }
     }
 
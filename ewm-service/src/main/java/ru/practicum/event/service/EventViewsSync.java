@@ -0,0 +1,115 @@
+package ru.practicum.event.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.client.exception.StatsRequestException;
+import ru.practicum.event.model.EventShort;
+import ru.practicum.event.repository.EventRepository;
+import ru.practicum.util.StatisticRequestService;
+import ru.practicum.util.TaskLease;
+import ru.practicum.util.ViewCounterFeed;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ru.practicum.util.Statistics.makeViewMap;
+
+/*
+ * Колонка views нужна только для сортировки по просмотрам, поэтому может немного отставать от статистики.
+ * Синхронизацию выполняет один экземпляр сервиса, владеющий арендой. При подключенном потоке счетчиков
+ * обновляются только события, чьи счетчики пришли в потоке; без потока просмотры запрашиваются
+ * только для предстоящих опубликованных событий.
+ */
+@Component
+@Slf4j
+public class EventViewsSync {
+    static final String LEASE = "event-views-sync";
+
+    private final EventRepository repository;
+    private final StatisticRequestService statsRequestService;
+    private final ViewCounterFeed feed;
+    private final TaskLease lease;
+    private final int batchSize;
+    private final Duration leaseTime;
+    private boolean leader;
+
+    public EventViewsSync(EventRepository repository,
+                          StatisticRequestService statsRequestService,
+                          ViewCounterFeed feed,
+                          TaskLease lease,
+                          @Value("${stats.views.sync.batch-size:200}") int batchSize,
+                          @Value("${stats.views.sync.lease-time:PT3M}") Duration leaseTime) {
+        this.repository = repository;
+        this.statsRequestService = statsRequestService;
+        this.feed = feed;
+        this.lease = lease;
+        this.batchSize = batchSize;
+        this.leaseTime = leaseTime;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.views.sync.interval:PT1M}",
+            initialDelayString = "${stats.views.sync.interval:PT1M}")
+    public void sync() {
+        if (!lease.tryAcquire(LEASE, leaseTime)) {
+            //Изменения синхронизирует владелец аренды по своему потоку
+            leader = false;
+            feed.drainChangedEventIds();
+            return;
+        }
+        if (!leader) {
+            //Изменения, пришедшие до получения аренды, были отброшены
+            leader = true;
+            feed.markAllChanged();
+        }
+        int updated = feed.isConnected() ? syncChanged() : syncUpcoming();
+        log.debug("Обновлены просмотры {} событий", updated);
+    }
+
+    private int syncChanged() {
+        List<Long> eventIds = new ArrayList<>(feed.drainChangedEventIds());
+        int updated = 0;
+        for (int from = 0; from < eventIds.size(); from += batchSize) {
+            List<Long> batch = eventIds.subList(from, Math.min(from + batchSize, eventIds.size()));
+            Map<Long, Long> viewsByEventId = new HashMap<>();
+            batch.forEach(eventId -> viewsByEventId.put(eventId, feed.getViews(eventId)));
+            try {
+                updated += repository.updateViews(viewsByEventId);
+            } catch (RuntimeException e) {
+                //Необновленные события попадут в следующий запуск
+                feed.markChanged(eventIds.subList(from, eventIds.size()));
+                throw e;
+            }
+        }
+        return updated;
+    }
+
+    private int syncUpcoming() {
+        Instant now = Instant.now();
+        long afterId = 0;
+        int updated = 0;
+        List<EventShort> events;
+        do {
+            events = repository.findUpcomingPublishedAfterId(now, afterId, batchSize);
+            if (events.isEmpty()) {
+                break;
+            }
+            Map<Long, Long> viewsByEventId = new HashMap<>();
+            try {
+                makeViewMap(statsRequestService.makeStatRequest(events), events)
+                        .forEach((eventId, views) -> viewsByEventId.put(eventId, views.longValue()));
+            } catch (StatsRequestException e) {
+                log.warn("Не удалось обновить просмотры событий: {}", e.getMessage());
+                return updated;
+            }
+            updated += repository.updateViews(viewsByEventId);
+            afterId = events.get(events.size() - 1).getId();
+        } while (events.size() == batchSize);
+        return updated;
+    }
+}
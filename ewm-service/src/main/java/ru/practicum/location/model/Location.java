@@ -7,7 +7,7 @@ import ru.practicum.location.enums.LocationType;
 import java.util.Map;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class Location {
     private long id;
     private float lat;
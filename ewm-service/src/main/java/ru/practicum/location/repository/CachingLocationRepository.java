@@ -0,0 +1,70 @@
+package ru.practicum.location.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.practicum.location.model.Location;
+import ru.practicum.location.model.LocationCriteria;
+import ru.practicum.util.RepositoryCache;
+
+import java.time.Duration;
+import java.util.List;
+
+@Repository
+@Primary
+public class CachingLocationRepository implements LocationRepository {
+    private final LocationRepositoryImpl delegate;
+    private final RepositoryCache<Location> cache;
+
+    public CachingLocationRepository(LocationRepositoryImpl delegate,
+                                     MeterRegistry registry,
+                                     @Value("${ewm.cache.locations.max-size:10000}") long maxSize,
+                                     @Value("${ewm.cache.locations.ttl:10m}") Duration ttl) {
+        this.delegate = delegate;
+        this.cache = new RepositoryCache<>("locations", maxSize, ttl, registry, Location::getId,
+                location -> location.toBuilder().build());
+    }
+
+    @Override
+    public List<Location> findByIds(List<Long> locationIds) {
+        return cache.getAll(locationIds, delegate::findByIds);
+    }
+
+    @Override
+    public Location findById(long locationId) {
+        return cache.get(locationId, delegate::findById);
+    }
+
+    @Override
+    public List<Location> findNearestByLatAndLon(Location location) {
+        return delegate.findNearestByLatAndLon(location);
+    }
+
+    @Override
+    public long add(Location location) {
+        return delegate.add(location);
+    }
+
+    @Override
+    public long addByUser(Location location) {
+        return delegate.addByUser(location);
+    }
+
+    @Override
+    public List<Location> getByCriteria(LocationCriteria criteria) {
+        return delegate.getByCriteria(criteria);
+    }
+
+    @Override
+    public void delete(long locId) {
+        cache.evict(locId);
+        delegate.delete(locId);
+    }
+
+    @Override
+    public Location update(Location location) {
+        cache.evict(location.getId());
+        return delegate.update(location);
+    }
+}
@@ -4,14 +4,14 @@ import ru.practicum.request.Request;
 import ru.practicum.request.enums.RequestStatus;
 
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 
 public interface RequestRepository {
-    Map<Long, Integer> countConfirmedRequestsByEventIds(List<Long> eventIds);
+    Request add(Request request);
 
-    int countConfirmedRequestsByEventId(long id);
+    List<Request> addAll(List<Request> requests);
 
-    Request add(Request request);
+    List<Long> findRequesterIdsByEventId(long eventId, List<Long> requesterIds);
 
     List<Request> getAllByRequesterId(long requesterId);
 
@@ -23,9 +23,9 @@ public interface RequestRepository {
 
     List<Request> findByIds(List<Long> requestIds);
 
-    void updateStatuses(List<Long> requestIds, RequestStatus requestStatus);
+    int updateStatuses(List<Long> requestIds, RequestStatus requestStatus);
 
-    void cancel(long requestId);
+    Optional<RequestStatus> cancel(long requestId);
 
     List<Long> findEventIdsByRequestorId(long userId);
 }
@@ -7,6 +7,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 import ru.practicum.error.exceptions.ConflictException;
@@ -19,10 +20,9 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import java.util.Map;
 import java.util.Objects;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 @Repository
 @Slf4j
@@ -31,31 +31,6 @@ public class RequestRepositoryImpl implements RequestRepository {
     private final JdbcTemplate jdbcTemplate;
     private final NamedParameterJdbcTemplate namedJdbcTemplate;
 
-    @Override
-    public Map<Long, Integer> countConfirmedRequestsByEventIds(List<Long> eventIds) {
-        String sql = "select event_id, COUNT(id) as requests_qty from requests " +
-                "where status = 'CONFIRMED' group by event_id";
-        Map<Long, Integer> confirmedRequestsByEventIds = eventIds.stream()
-                .collect(Collectors.toMap(Function.identity(), eventId -> 0));
-        MapSqlParameterSource parameters = new MapSqlParameterSource("eventIds", eventIds);
-        namedJdbcTemplate.query(sql, parameters,
-                rs -> {
-                    long eventId = rs.getLong("event_id");
-                    int requestQty = rs.getInt("requests_qty");
-                    confirmedRequestsByEventIds.put(eventId, requestQty);
-                });
-        return confirmedRequestsByEventIds;
-    }
-
-    @Override
-    public int countConfirmedRequestsByEventId(long eventId) {
-        String sql = "select COUNT(id) as requests_qty from requests " +
-                "where status = 'CONFIRMED' and event_id = :eventId";
-        MapSqlParameterSource parameters = new MapSqlParameterSource("eventId", eventId);
-        Integer confirmedRequestsByEventIds = namedJdbcTemplate.queryForObject(sql, parameters, Integer.class);
-        return confirmedRequestsByEventIds != null ? confirmedRequestsByEventIds : 0;
-    }
-
     @Override
     public Request add(Request request) {
         SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
@@ -70,6 +45,38 @@ public class RequestRepositoryImpl implements RequestRepository {
         return request;
     }
 
+    @Override
+    public List<Request> addAll(List<Request> requests) {
+        //Одна многострочная вставка на весь пакет заявок
+        StringBuilder sql = new StringBuilder("insert into requests (event_id, requester_id, status) values ");
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        for (int i = 0; i < requests.size(); i++) {
+            Request request = requests.get(i);
+            sql.append(i == 0 ? "" : ", ")
+                    .append(String.format("(:eventId%1$d, :requesterId%1$d, :status%1$d)", i));
+            parameters.addValue("eventId" + i, request.getEventId());
+            parameters.addValue("requesterId" + i, request.getRequesterId());
+            parameters.addValue("status" + i, request.getStatus().toString());
+        }
+        KeyHolder generatedKeys = new GeneratedKeyHolder();
+        namedJdbcTemplate.update(sql.toString(), parameters, generatedKeys, new String[]{"id", "created"});
+        List<Map<String, Object>> keys = generatedKeys.getKeyList();
+        for (int i = 0; i < requests.size(); i++) {
+            Request request = requests.get(i);
+            request.setId(((Number) keys.get(i).get("id")).longValue());
+            request.setCreated(((Timestamp) keys.get(i).get("created")).toInstant());
+        }
+        return requests;
+    }
+
+    @Override
+    public List<Long> findRequesterIdsByEventId(long eventId, List<Long> requesterIds) {
+        String sql = "select requester_id from requests where event_id = :eventId and requester_id in (:requesterIds)";
+        MapSqlParameterSource parameters = new MapSqlParameterSource("eventId", eventId);
+        parameters.addValue("requesterIds", requesterIds);
+        return namedJdbcTemplate.query(sql, parameters, (rs, rowNum) -> rs.getLong("requester_id"));
+    }
+
     @Override
     public List<Request> getAllByRequesterId(long requesterId) {
         String sql = "select * from requests where requester_id = :requesterId";
@@ -118,19 +125,27 @@ public class RequestRepositoryImpl implements RequestRepository {
         return namedJdbcTemplate.query(sql, parameters, (rs, rowNum) -> mapRowToRequest(rs));
     }
 
+    //Меняются только ожидающие заявки: заявка, отмененная параллельно, не попадет в число подтвержденных
     @Override
-    public void updateStatuses(List<Long> requestIds, RequestStatus requestStatus) {
-        String sql = "update requests set status = :status where id in (:requestIds)";
+    public int updateStatuses(List<Long> requestIds, RequestStatus requestStatus) {
+        String sql = "update requests set status = :status where id in (:requestIds) and status = 'PENDING'";
         MapSqlParameterSource parameters = new MapSqlParameterSource("requestIds", requestIds);
         parameters.addValue("status", requestStatus.toString());
-        namedJdbcTemplate.update(sql, parameters);
+        return namedJdbcTemplate.update(sql, parameters);
     }
 
+    //Возвращает статус, из которого заявка отменена; пусто, если отменять было нечего
     @Override
-    public void cancel(long requestId) {
-        String sql = "update requests set status = 'CANCELED' where id = :requestId";
-        MapSqlParameterSource parameters = new MapSqlParameterSource("requestId", requestId);
-        namedJdbcTemplate.update(sql, parameters);
+    public Optional<RequestStatus> cancel(long requestId) {
+        for (RequestStatus status : List.of(RequestStatus.CONFIRMED, RequestStatus.PENDING)) {
+            String sql = "update requests set status = 'CANCELED' where id = :requestId and status = :status";
+            MapSqlParameterSource parameters = new MapSqlParameterSource("requestId", requestId);
+            parameters.addValue("status", status.toString());
+            if (namedJdbcTemplate.update(sql, parameters) > 0) {
+                return Optional.of(status);
+            }
+        }
+        return Optional.empty();
     }
 
     private Request mapRowToRequest(ResultSet rs) throws SQLException {
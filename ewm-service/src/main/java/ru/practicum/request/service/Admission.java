@@ -0,0 +1,59 @@
+package ru.practicum.request.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import ru.practicum.request.Request;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+//Заявка на участие, ожидающая решения в пакете своего события
+@Getter
+class Admission {
+    private final long requesterId;
+    private final long eventId;
+    private final CompletableFuture<Request> result = new CompletableFuture<>();
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+    private Request admitted;
+    private RuntimeException rejection;
+
+    Admission(long requesterId, long eventId) {
+        this.requesterId = requesterId;
+        this.eventId = eventId;
+    }
+
+    //Заявку решает тот, кто первым забрал ее из очереди; брошенную по таймауту заявку уже никто не решает
+    boolean take() {
+        return state.compareAndSet(State.QUEUED, State.TAKEN);
+    }
+
+    boolean abandon() {
+        return state.compareAndSet(State.QUEUED, State.ABANDONED);
+    }
+
+    void admit(Request request) {
+        admitted = request;
+        rejection = null;
+    }
+
+    void reject(RuntimeException e) {
+        admitted = null;
+        rejection = e;
+    }
+
+    //Результат отдается только после коммита пакета
+    void complete() {
+        if (rejection != null) {
+            result.completeExceptionally(rejection);
+        } else {
+            result.complete(admitted);
+        }
+    }
+
+    private enum State {
+        QUEUED,
+        TAKEN,
+        ABANDONED
+    }
+}
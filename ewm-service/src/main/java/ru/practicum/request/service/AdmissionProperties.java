@@ -0,0 +1,20 @@
+package ru.practicum.request.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "ewm.admission")
+@Getter
+@Setter
+public class AdmissionProperties {
+    private int stripes = 8;
+    private int queueCapacity = 1000;
+    private int maxBatch = 100;
+    private Duration window = Duration.ofMillis(5);
+    private Duration timeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,167 @@
+package ru.practicum.request.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.error.exceptions.DependencyTimeoutException;
+import ru.practicum.request.Request;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+ * Заявки на участие раскладываются по полосам по id события. Поток полосы собирает заявки
+ * в течение короткого окна и решает заявки каждого события одним пакетом в одной транзакции,
+ * поэтому заявки на популярное событие не ждут друг друга на блокировке строки события.
+ */
+@Component
+@Slf4j
+public class RequestAdmissionQueue {
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final RequestAdmitter admitter;
+    private final AdmissionProperties properties;
+    private final List<BlockingQueue<Admission>> stripes = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final DistributionSummary batchSize;
+    private final Timer batchTimer;
+    private final Counter callerRuns;
+    private final Counter splits;
+    private final Counter abandoned;
+    private volatile boolean stopping;
+
+    public RequestAdmissionQueue(RequestAdmitter admitter, AdmissionProperties properties, MeterRegistry registry) {
+        this.admitter = admitter;
+        this.properties = properties;
+        this.batchSize = registry.summary("ewm.admission.batch.size");
+        this.batchTimer = registry.timer("ewm.admission.batch");
+        this.callerRuns = registry.counter("ewm.admission.caller-runs");
+        this.splits = registry.counter("ewm.admission.splits");
+        this.abandoned = registry.counter("ewm.admission.abandoned");
+        for (int i = 0; i < properties.getStripes(); i++) {
+            BlockingQueue<Admission> stripe = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+            Thread worker = new Thread(() -> run(stripe), "request-admission-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            stripes.add(stripe);
+            workers.add(worker);
+        }
+    }
+
+    public Request admit(long requesterId, long eventId) {
+        Admission admission = new Admission(requesterId, eventId);
+        BlockingQueue<Admission> stripe = stripes.get(Math.floorMod(Long.hashCode(eventId), stripes.size()));
+        if (stopping || !stripe.offer(admission)) {
+            //Полоса переполнена: заявка решается в вызывающем потоке отдельным пакетом
+            callerRuns.increment();
+            admission.take();
+            decide(eventId, List.of(admission));
+        }
+        try {
+            try {
+                return admission.getResult().get(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (admission.abandon()) {
+                    //Заявка еще в очереди: поток полосы ее пропустит, и ответ 504 означает, что она не создана
+                    abandoned.increment();
+                    log.warn("Превышено время ожидания {} решения по заявке пользователя с id {} на событие с id {}",
+                            properties.getTimeout(), requesterId, eventId);
+                    throw new DependencyTimeoutException("Превышено время ожидания решения по заявке на участие");
+                }
+                //Пакет с заявкой уже решается, его результат нельзя отменить
+                return admission.getResult().get(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException e) {
+            log.warn("Решение по заявке пользователя с id {} на событие с id {} еще принимается",
+                    requesterId, eventId);
+            throw new DependencyTimeoutException("Решение по заявке на участие еще принимается, " +
+                    "проверьте список заявок позже");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание решения по заявке прервано", e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopping = true;
+        //Потоки полос останавливаются параллельно, поэтому ожидание общее для всех
+        long deadline = System.nanoTime() + properties.getTimeout().toNanos();
+        for (Thread worker : workers) {
+            TimeUnit.NANOSECONDS.timedJoin(worker, deadline - System.nanoTime());
+        }
+        //Заявки, оставшиеся в полосах после остановки потоков, решаются здесь
+        for (BlockingQueue<Admission> stripe : stripes) {
+            List<Admission> rest = new ArrayList<>();
+            stripe.drainTo(rest);
+            decideByEvent(rest);
+        }
+    }
+
+    private void run(BlockingQueue<Admission> stripe) {
+        List<Admission> batch = new ArrayList<>(properties.getMaxBatch());
+        while (!stopping) {
+            try {
+                Admission first = stripe.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + properties.getWindow().toNanos();
+                while (batch.size() < properties.getMaxBatch()) {
+                    Admission next = stripe.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopping = true;
+            }
+            decideByEvent(batch);
+            batch.clear();
+        }
+    }
+
+    private void decideByEvent(List<Admission> admissions) {
+        Map<Long, List<Admission>> byEventId = new LinkedHashMap<>();
+        admissions.stream()
+                .filter(Admission::take)
+                .forEach(admission ->
+                        byEventId.computeIfAbsent(admission.getEventId(), id -> new ArrayList<>()).add(admission));
+        byEventId.forEach(this::decide);
+    }
+
+    private void decide(long eventId, List<Admission> admissions) {
+        batchSize.record(admissions.size());
+        try {
+            batchTimer.record(() -> admitter.admit(eventId, admissions));
+        } catch (RuntimeException e) {
+            if (admissions.size() > 1) {
+                //Пакет откатился целиком, заявки решаются по одной, чтобы ошибка досталась только своей заявке
+                splits.increment();
+                admissions.forEach(admission -> decide(eventId, List.of(admission)));
+                return;
+            }
+            admissions.get(0).reject(e);
+        }
+        admissions.forEach(Admission::complete);
+    }
+}
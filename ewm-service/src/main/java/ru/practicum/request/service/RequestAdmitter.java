@@ -0,0 +1,137 @@
+package ru.practicum.request.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.error.exceptions.ConflictException;
+import ru.practicum.event.enums.EventState;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.service.EventListingCache;
+import ru.practicum.request.Request;
+import ru.practicum.request.enums.RequestStatus;
+import ru.practicum.request.repository.RequestRepository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static ru.practicum.request.enums.RequestStatus.CONFIRMED;
+
+@Component
+@Transactional
+@Slf4j
+@RequiredArgsConstructor
+public class RequestAdmitter {
+    private final RequestRepository repository;
+    private final EventRepository eventRepo;
+    private final EventListingCache listingCache;
+
+    //Заявки одного события решаются по одному снимку события: одна вставка и одно изменение счетчика
+    public void admit(long eventId, List<Admission> admissions) {
+        Event event = eventRepo.findById(eventId);
+        List<Long> requesterIds = admissions.stream()
+                .map(Admission::getRequesterId)
+                .distinct()
+                .collect(Collectors.toList());
+        Set<Long> requested = new HashSet<>(repository.findRequesterIdsByEventId(eventId, requesterIds));
+        int limit = event.getParticipantLimit();
+        boolean autoConfirm = !event.isRequestModeration() || limit == 0;
+        int freeSeats = limit - event.getConfirmedRequests();
+
+        List<Request> requests = new ArrayList<>();
+        List<Admission> accepted = new ArrayList<>();
+        for (Admission admission : admissions) {
+            long userId = admission.getRequesterId();
+            try {
+                validateRequest(event, eventId, userId);
+                if (!requested.add(userId)) {
+                    reportRepeatedRequest(eventId, userId);
+                }
+                if (autoConfirm && limit != 0 && freeSeats <= 0) {
+                    reportLimitConflict(eventId, limit);
+                }
+            } catch (ConflictException e) {
+                admission.reject(e);
+                continue;
+            }
+            if (autoConfirm) {
+                freeSeats--;
+            }
+            requests.add(Request.builder()
+                    .requesterId(userId)
+                    .eventId(eventId)
+                    .status(autoConfirm ? CONFIRMED : RequestStatus.PENDING)
+                    .build());
+            accepted.add(admission);
+        }
+        if (requests.isEmpty()) {
+            return;
+        }
+        if (autoConfirm) {
+            //Места могли занять в обход очереди: модерацией или другим экземпляром сервиса
+            if (!eventRepo.reserveSeats(eventId, requests.size())) {
+                reportLimitConflict(eventId, limit);
+            }
+            listingCache.invalidate();
+        }
+        try {
+            repository.addAll(requests);
+        } catch (RuntimeException e) {
+            reportRequesterEventUniqueConflict(e, eventId);
+        }
+        for (int i = 0; i < accepted.size(); i++) {
+            accepted.get(i).admit(requests.get(i));
+        }
+    }
+
+    private void validateRequest(Event event, long eventId, long userId) {
+        int confirmedRequests = event.getConfirmedRequests();
+        int limit = event.getParticipantLimit();
+        if (limit != 0 && confirmedRequests >= limit) {
+            reportLimitConflict(eventId, event.getParticipantLimit());
+        }
+        if (event.getInitiator() == userId) {
+            log.warn("Попытка запроса на участие в событии с id {} от инициатора с id {}",
+                    eventId, userId);
+            throw new ConflictException(
+                    String.format("Инициатор события с id %d не может добавить запрос на участие в своём событии с id %d",
+                            userId, eventId));
+        }
+        if (event.getEventState() != EventState.PUBLISHED) {
+            log.warn("Попытка заявки на участие в неопубликованном событии с id {} от пользователя с id {}",
+                    eventId, userId);
+            throw new ConflictException(
+                    String.format("Нельзя участвовать в неопубликованном событии с id %d", eventId));
+        }
+    }
+
+    private void reportLimitConflict(long eventId, int participantLimit) {
+        log.warn("У события с id {} достигнут лимит запросов на участие {}",
+                eventId, participantLimit);
+        throw new ConflictException(
+                String.format("У события с id  %d достигнут лимит запросов на участие %d",
+                        eventId, participantLimit));
+    }
+
+    private void reportRepeatedRequest(long eventId, long userId) {
+        log.warn("Попытка повторного запроса на участие в событии с id {} от пользователя с id {}",
+                eventId, userId);
+        throw new ConflictException(
+                String.format("Нельзя добавить повторный запрос на участие событии с id %d", eventId));
+    }
+
+    private void reportRequesterEventUniqueConflict(RuntimeException e, long eventId) {
+        String error = e.getMessage();
+        String constraint = "uq_requester_id_by_event_id";
+        if (error != null && error.toLowerCase().contains(constraint)) {
+            log.warn("Повторный запрос на участие в событии с id {} записан в обход очереди", eventId);
+            throw new ConflictException(
+                    String.format("Нельзя добавить повторный запрос на участие событии с id %d", eventId));
+        }
+        throw new RuntimeException("Ошибка при передаче данных в БД");
+    }
+}
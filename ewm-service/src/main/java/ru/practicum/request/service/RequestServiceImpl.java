@@ -3,12 +3,13 @@ package ru.practicum.request.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.error.exceptions.ConflictException;
 import ru.practicum.error.exceptions.NotFoundException;
-import ru.practicum.event.enums.EventState;
 import ru.practicum.event.model.Event;
 import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.service.EventListingCache;
 import ru.practicum.request.Request;
 import ru.practicum.request.dto.EventRequestStatusUpdateRequest;
 import ru.practicum.request.dto.EventRequestStatusUpdateResult;
@@ -21,6 +22,7 @@ import javax.validation.ValidationException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -34,6 +36,8 @@ public class RequestServiceImpl implements RequestService {
 
     private final RequestRepository repository;
     private final EventRepository eventRepo;
+    private final EventListingCache listingCache;
+    private final RequestAdmissionQueue admissionQueue;
 
     @Override
     @Transactional(readOnly = true)
@@ -46,26 +50,10 @@ public class RequestServiceImpl implements RequestService {
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ParticipationRequestDto add(long userId, long eventId) {
-        Event event = eventRepo.findById(eventId);
-        validateRequest(event, eventId, userId);
-        Request request = Request.builder()
-                .requesterId(userId)
-                .eventId(eventId)
-                .build();
-        int confirmedRequests = repository.countConfirmedRequestsByEventId(eventId);
-        int limit = event.getParticipantLimit();
-        if (!event.isRequestModeration() && (confirmedRequests < limit) || limit == 0) {
-            request.setStatus(CONFIRMED);
-        } else {
-            request.setStatus(RequestStatus.PENDING);
-        }
-        try {
-            request = repository.add(request);
-        } catch (RuntimeException e) {
-            reportRequesterEventUniqueConflict(e, request);
-        }
-        return RequestMapper.toParticipationRequestDto(request);
+        //Заявки на одно событие решаются пакетами в очереди, транзакцию открывает очередь
+        return RequestMapper.toParticipationRequestDto(admissionQueue.admit(userId, eventId));
     }
 
     @Override
@@ -77,7 +65,21 @@ public class RequestServiceImpl implements RequestService {
                     String.format("Редактирование запроса с id %d недоступно для пользователя с id %d",
                             requestId, userId));
         }
-        repository.cancel(requestId);
+        //Счетчик уменьшается по статусу, из которого заявку отменило само обновление, а не по прочитанному ранее
+        Optional<RequestStatus> canceledFrom = repository.cancel(requestId);
+        if (canceledFrom.isEmpty()) {
+            Request current = repository.findById(requestId);
+            if (current.getStatus() == CANCELED) {
+                return RequestMapper.toParticipationRequestDto(current);
+            }
+            log.warn("Заявку с id {} в статусе {} нельзя отменить", requestId, current.getStatus());
+            throw new ConflictException(
+                    String.format("Заявку с id %d в статусе %s нельзя отменить", requestId, current.getStatus()));
+        }
+        if (canceledFrom.get() == CONFIRMED) {
+            eventRepo.addConfirmedRequests(request.getEventId(), -1);
+            listingCache.invalidate();
+        }
         request.setStatus(CANCELED);
         return RequestMapper.toParticipationRequestDto(request);
     }
@@ -102,7 +104,8 @@ public class RequestServiceImpl implements RequestService {
         RequestStatus newStatus = RequestStatus.from(statusParam)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown status: " + statusParam));
 
-        Event event = eventRepo.findById(eventId);
+        //Строка события блокируется до конца транзакции, чтобы свободные места не раздали дважды
+        Event event = eventRepo.findByIdForUpdate(eventId);
 
         int participantLimit = event.getParticipantLimit();
         if (participantLimit == 0 || !event.isRequestModeration()) {
@@ -126,7 +129,7 @@ public class RequestServiceImpl implements RequestService {
         });
 
         if (newStatus == CONFIRMED) {
-            int confirmedBeforeRequestsQty = repository.countConfirmedRequestsByEventId(eventId);
+            int confirmedBeforeRequestsQty = event.getConfirmedRequests();
             if (confirmedBeforeRequestsQty >= event.getParticipantLimit()) {
                 reportLimitConflict(eventId, participantLimit);
             }
@@ -140,23 +143,22 @@ public class RequestServiceImpl implements RequestService {
             if (freeQtyToConfirm >= requestsQty) {
                 requestsToUpdate.forEach(request -> request.setStatus(CONFIRMED));
                 confirmedRequests = requestsToUpdate;
-                repository.updateStatuses(requestIds, CONFIRMED);
             } else {
                 IntStream.range(0, freeQtyToConfirm).forEach(i -> requestsToUpdate.get(i).setStatus(CONFIRMED));
                 IntStream.range(freeQtyToConfirm, requestsQty).forEach(i -> requestsToUpdate.get(i).setStatus(REJECTED));
                 confirmedRequests = requestsToUpdate.stream().limit(freeQtyToConfirm).collect(Collectors.toList());
                 rejectedRequests = requestsToUpdate.stream().skip(freeQtyToConfirm).collect(Collectors.toList());
-                repository.updateStatuses(confirmedRequests.stream()
-                        .map(Request::getId).collect(Collectors.toList()), CONFIRMED);
-                repository.updateStatuses(rejectedRequests.stream()
-                        .map(Request::getId).collect(Collectors.toList()), REJECTED);
             }
+            int confirmedQty = updatePending(confirmedRequests, CONFIRMED);
+            updatePending(rejectedRequests, REJECTED);
+            eventRepo.addConfirmedRequests(eventId, confirmedQty);
+            listingCache.invalidate();
 
             return RequestMapper.toEventRequestStatusUpdateResult(confirmedRequests, rejectedRequests);
 
         } else if (newStatus == REJECTED) {
             requestsToUpdate.forEach(request -> request.setStatus(REJECTED));
-            repository.updateStatuses(requestIds, REJECTED);
+            updatePending(requestsToUpdate, REJECTED);
             return RequestMapper.toEventRequestStatusUpdateResult(Collections.emptyList(), requestsToUpdate);
         } else {
             log.warn("Нельзя изменить статус на PENDING");
@@ -164,25 +166,18 @@ public class RequestServiceImpl implements RequestService {
         }
     }
 
-    private void validateRequest(Event event, long eventId, long userId) {
-        int confirmedRequests = repository.countConfirmedRequestsByEventId(eventId);
-        int limit = event.getParticipantLimit();
-        if (limit != 0 && confirmedRequests >= limit) {
-            reportLimitConflict(eventId, event.getParticipantLimit());
-        }
-        if (event.getInitiator() == userId) {
-            log.warn("Попытка запроса на участие в событии с id {} от инициатора с id {}",
-                    eventId, userId);
-            throw new ConflictException(
-                    String.format("Инициатор события с id %d не может добавить запрос на участие в своём событии с id %d",
-                            userId, eventId));
+    //Заявки проверены как ожидающие, но могли быть отменены после чтения: тогда транзакция откатывается целиком
+    private int updatePending(List<Request> requests, RequestStatus status) {
+        if (requests.isEmpty()) {
+            return 0;
         }
-        if (event.getEventState() != EventState.PUBLISHED) {
-            log.warn("Попытка заявки на участие в неопубликованном событии с id {} от пользователя с id {}",
-                    eventId, userId);
-            throw new ConflictException(
-                    String.format("Нельзя участвовать в неопубликованном событии с id %d", eventId));
+        int updated = repository.updateStatuses(requests.stream()
+                .map(Request::getId).collect(Collectors.toList()), status);
+        if (updated != requests.size()) {
+            log.warn("Часть заявок на событие с id {} уже не в состоянии ожидания", requests.get(0).getEventId());
+            throw new ConflictException("Можно изменить статус только у заявок, находящихся в состоянии ожидания");
         }
+        return updated;
     }
 
     private void reportLimitConflict(long eventId, int participantLimit) {
@@ -192,16 +187,4 @@ public class RequestServiceImpl implements RequestService {
                 String.format("У события с id  %d достигнут лимит запросов на участие %d",
                         eventId, participantLimit));
     }
-
-    private void reportRequesterEventUniqueConflict(RuntimeException e, Request request) {
-        String error = e.getMessage();
-        String constraint = "uq_requester_id_by_event_id";
-        if (error.contains(constraint)) {
-            error = String.format("Нельзя добавить повторный запрос на участие событии с id %d", request.getEventId());
-            log.warn("Попытка повторного запроса на участие в событии с id {} от пользователя с id {}",
-                    request.getEventId(), request.getRequesterId());
-            throw new ConflictException(error);
-        }
-        throw new RuntimeException("Ошибка при передаче данных в БД");
-    }
-}
\ No newline at end of file
+}
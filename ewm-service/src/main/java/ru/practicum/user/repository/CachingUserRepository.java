@@ -0,0 +1,58 @@
+package ru.practicum.user.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.practicum.user.User;
+import ru.practicum.util.RepositoryCache;
+
+import java.time.Duration;
+import java.util.List;
+
+@Repository
+@Primary
+public class CachingUserRepository implements UserRepository {
+    private final UserRepositoryImpl delegate;
+    private final RepositoryCache<User> cache;
+
+    public CachingUserRepository(UserRepositoryImpl delegate,
+                                 MeterRegistry registry,
+                                 @Value("${ewm.cache.users.max-size:10000}") long maxSize,
+                                 @Value("${ewm.cache.users.ttl:10m}") Duration ttl) {
+        this.delegate = delegate;
+        this.cache = new RepositoryCache<>("users", maxSize, ttl, registry, User::getId,
+                user -> user.toBuilder().build());
+    }
+
+    @Override
+    public List<User> findByIds(List<Long> userIds) {
+        return cache.getAll(userIds, delegate::findByIds);
+    }
+
+    @Override
+    public User findById(long initiator) {
+        return cache.get(initiator, delegate::findById);
+    }
+
+    @Override
+    public User add(User user) {
+        return delegate.add(user);
+    }
+
+    @Override
+    public List<User> findByIds(List<Long> ids, int from, int size) {
+        return delegate.findByIds(ids, from, size);
+    }
+
+    @Override
+    public void deleteById(Long userId) {
+        cache.evict(userId);
+        delegate.deleteById(userId);
+    }
+
+    @Override
+    public List<User> get(int from, int size) {
+        return delegate.get(from, size);
+    }
+}
@@ -0,0 +1,119 @@
+package ru.practicum.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.error.exceptions.DependencyTimeoutException;
+import ru.practicum.error.exceptions.DependencyUnavailableException;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+//Ограниченный пул для независимых частей ответа, которые можно получать параллельно с основным запросом
+@Component
+@Slf4j
+public class EnrichmentExecutor {
+    private static final String BRANCH_TIMER = "ewm.enrichment.branch";
+    private static final String BRANCH_TIMEOUTS = "ewm.enrichment.timeouts";
+
+    private final EnrichmentProperties properties;
+    private final MeterRegistry registry;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+
+    public EnrichmentExecutor(EnrichmentProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+        this.rejected = registry.counter("ewm.enrichment.rejected");
+        AtomicInteger threadNumber = new AtomicInteger();
+        //Ветка, не принятая пулом, завершается ошибкой сразу, а не занимает вызывающий поток без ограничения времени
+        this.executor = new ThreadPoolExecutor(properties.getPoolSize(), properties.getPoolSize(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "enrichment-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("ewm.enrichment.queue.size", executor.getQueue(), BlockingQueue::size).register(registry);
+    }
+
+    public <T> CompletableFuture<T> submit(String branch, Supplier<T> supplier) {
+        Timer timer = registry.timer(BRANCH_TIMER, "branch", branch);
+        Duration timeout = properties.getTimeout(branch);
+        //Время ожидания отсчитывается от отправки ветки, в том числе пока она стоит в очереди
+        CompletableFuture<T> future = new CompletableFuture<T>()
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            executor.execute(new Branch<>(future, () -> timer.record(supplier)));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public <T> T join(String branch, CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                registry.counter(BRANCH_TIMEOUTS, "branch", branch).increment();
+                log.warn("Превышено время ожидания {} для {}", properties.getTimeout(branch), branch);
+                throw new DependencyTimeoutException(
+                        String.format("Превышено время ожидания данных: %s", branch));
+            }
+            if (cause instanceof RejectedExecutionException) {
+                log.warn("Пул обогащения перегружен или остановлен, ветка {} не выполнена", branch);
+                throw new DependencyUnavailableException(
+                        String.format("Нет свободных потоков для получения данных: %s", branch));
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Runnable queued : executor.shutdownNow()) {
+            ((Branch<?>) queued).future.completeExceptionally(
+                    new RejectedExecutionException("Пул обогащения остановлен"));
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Branch<T> implements Runnable {
+        private final CompletableFuture<T> future;
+        private final Supplier<T> supplier;
+
+        @Override
+        public void run() {
+            //Ветка, которую уже перестали ждать, не выполняется
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(supplier.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.util;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "ewm.enrichment")
+@Getter
+@Setter
+public class EnrichmentProperties {
+    private int poolSize = 8;
+    private int queueCapacity = 100;
+    private Duration timeout = Duration.ofSeconds(2);
+    private Map<String, Duration> timeouts = new HashMap<>();
+
+    public Duration getTimeout(String branch) {
+        return timeouts.getOrDefault(branch, timeout);
+    }
+}
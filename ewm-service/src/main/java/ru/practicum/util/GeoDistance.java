@@ -0,0 +1,18 @@
+package ru.practicum.util;
+
+//Повторяет функцию distance из миграции PostgreSQL, в H2 подключается через CREATE ALIAS
+public class GeoDistance {
+    public static double distance(double lat1, double lon1, double lat2, double lon2) {
+        if (lat1 == lat2 && lon1 == lon2) {
+            return 0;
+        }
+        double radLat1 = Math.PI * lat1 / 180;
+        double radLat2 = Math.PI * lat2 / 180;
+        double radTheta = Math.PI * (lon1 - lon2) / 180;
+        double dist = Math.sin(radLat1) * Math.sin(radLat2) +
+                Math.cos(radLat1) * Math.cos(radLat2) * Math.cos(radTheta);
+        dist = Math.acos(Math.min(dist, 1));
+        //радианы в градусы, затем в километры
+        return dist * 180 / Math.PI * 60 * 1.8524;
+    }
+}
@@ -0,0 +1,81 @@
+package ru.practicum.util;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import ru.practicum.event.dto.EventFullDto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import static ru.practicum.util.DateTime.toInstant;
+
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class PageCursor {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String SEPARATOR = "|";
+
+    private final Instant eventDate; //null - страницы упорядочены только по id
+    private final long id;
+
+    public static PageCursor afterId(long id) {
+        return new PageCursor(null, id);
+    }
+
+    public static PageCursor afterEventDate(Instant eventDate, long id) {
+        return new PageCursor(eventDate, id);
+    }
+
+    public boolean isByEventDate() {
+        return eventDate != null;
+    }
+
+    //Курсор на следующую страницу выдается только для полной страницы
+    public static Optional<PageCursor> next(List<EventFullDto> page, int size, boolean byEventDate) {
+        if (page.isEmpty() || page.size() < size) {
+            return Optional.empty();
+        }
+        EventFullDto last = page.get(page.size() - 1);
+        return Optional.of(byEventDate
+                ? afterEventDate(toInstant(last.getEventDate()), last.getId())
+                : afterId(last.getId()));
+    }
+
+    public String encode() {
+        String value = (eventDate == null ? "" : eventDate.toString()) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor, boolean byEventDate) {
+        if (cursor == null) {
+            return null;
+        }
+        PageCursor pageCursor = decode(cursor);
+        if (pageCursor.isByEventDate() != byEventDate) {
+            throw new IllegalArgumentException("Курсор относится к другой сортировке: " + cursor);
+        }
+        return pageCursor;
+    }
+
+    public static PageCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+            }
+            String eventDate = value.substring(0, separator);
+            long id = Long.parseLong(value.substring(separator + 1));
+            return new PageCursor(eventDate.isEmpty() ? null : Instant.parse(eventDate), id);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+        }
+    }
+}
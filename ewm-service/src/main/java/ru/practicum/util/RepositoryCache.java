@@ -0,0 +1,93 @@
+package ru.practicum.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/*
+ * Кэш записей справочника по id перед репозиторием.
+ * Наружу отдаются копии: сервисы меняют загруженные модели перед сохранением.
+ * Отсутствующие записи не кэшируются.
+ */
+public class RepositoryCache<T> {
+    private final Cache<Long, T> cache;
+    private final ToLongFunction<T> idOf;
+    private final UnaryOperator<T> copyOf;
+    private final AtomicLong evictions = new AtomicLong();
+
+    public RepositoryCache(String name,
+                           long maxSize,
+                           Duration ttl,
+                           MeterRegistry registry,
+                           ToLongFunction<T> idOf,
+                           UnaryOperator<T> copyOf) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.idOf = idOf;
+        this.copyOf = copyOf;
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+    }
+
+    public T get(long id, LongFunction<T> loader) {
+        return copyOf.apply(cache.get(id, loader::apply));
+    }
+
+    /*
+     * Пакетная загрузка не атомарна относительно удаления записи, как get: если за время загрузки
+     * что-то удалили из кэша, загруженные записи могли устареть и удаляются сразу после добавления.
+     */
+    public List<T> getAll(List<Long> ids, Function<List<Long>, List<T>> loader) {
+        Map<Long, T> cached = cache.getAllPresent(ids);
+        List<T> values = new ArrayList<>(cached.values());
+        List<Long> missingIds = ids.stream()
+                .distinct()
+                .filter(id -> !cached.containsKey(id))
+                .collect(Collectors.toList());
+        if (!missingIds.isEmpty()) {
+            long evictionsBefore = evictions.get();
+            List<T> loaded = loader.apply(missingIds);
+            loaded.forEach(value -> cache.put(idOf.applyAsLong(value), value));
+            if (evictions.get() != evictionsBefore) {
+                loaded.forEach(value -> cache.invalidate(idOf.applyAsLong(value)));
+            }
+            values.addAll(loaded);
+        }
+        return values.stream().map(copyOf).collect(Collectors.toList());
+    }
+
+    //Запись удаляется сразу и повторно после завершения транзакции, чтобы параллельное чтение не вернуло старые данные
+    public void evict(long id) {
+        invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(id);
+                }
+            });
+        }
+    }
+
+    //Счетчик растет до удаления: пакетная загрузка, добавившая запись после удаления, увидит новое значение
+    private void invalidate(long id) {
+        evictions.incrementAndGet();
+        cache.invalidate(id);
+    }
+}
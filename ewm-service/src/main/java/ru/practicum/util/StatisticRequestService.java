@@ -1,36 +1,142 @@
 package ru.practicum.util;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.practicum.client.StatsClient;
 import ru.practicum.dto.ViewStatsDto;
-import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventShort;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static ru.practicum.event.enums.EventState.PUBLISHED;
-import static ru.practicum.util.Statistics.getStartTime;
+import static ru.practicum.util.Statistics.getEventId;
 import static ru.practicum.util.Statistics.makeUris;
 
 @Service
-@RequiredArgsConstructor
 public class StatisticRequestService {
+    private static final String APP = "ewm-main-service";
+    /*
+     * Просмотры события записываются только после публикации, поэтому запрос начинается за час до самой ранней
+     * публикации и совпадает со счетчиками из потока. Раньше любого сохраненного просмотра начинается запрос
+     * по событию, дата публикации которого еще не прочитана.
+     */
+    static final LocalDateTime UNKNOWN_PUBLICATION_START = LocalDateTime.of(2000, 1, 1, 0, 0);
+
     private final StatsClient client;
+    private final ViewCounterFeed feed;
+    private final AsyncCache<Long, CachedViews> viewsByEventId;
+    private final Timer staleness;
+
+    public StatisticRequestService(StatsClient client,
+                                   ViewCounterFeed feed,
+                                   MeterRegistry registry,
+                                   @Value("${stats.views.cache.max-size:10000}") long maxSize,
+                                   @Value("${stats.views.cache.staleness:30s}") Duration maxStaleness) {
+        this.client = client;
+        this.feed = feed;
+        this.viewsByEventId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(maxStaleness)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(registry, viewsByEventId.synchronous(), "event.views");
+        this.staleness = registry.timer("stats.views.cache.staleness");
+    }
 
-    public List<ViewStatsDto> makeStatRequest(List<Event> events) {
-        if (events.stream().noneMatch(event -> event.getEventState() == PUBLISHED)) {
+    public List<ViewStatsDto> makeStatRequest(List<? extends EventShort> events) {
+        Map<Long, EventShort> eventsPublished = events.stream()
+                .filter(event -> event.getEventState() == PUBLISHED)
+                .collect(Collectors.toMap(EventShort::getId, Function.identity(), (first, second) -> first));
+        if (eventsPublished.isEmpty()) {
             return Collections.emptyList();
         }
-        List<Event> eventsPublished = events.stream()
-                .filter(event -> event.getEventState() == PUBLISHED)
+        if (feed.isConnected()) {
+            //Счетчики приходят от сервера статистики, удаленный запрос не нужен
+            return eventsPublished.keySet().stream()
+                    .map(eventId -> makeViewStats(eventId, feed.getViews(eventId)))
+                    .filter(viewStats -> viewStats.getHits() > 0)
+                    .collect(Collectors.toList());
+        }
+        Map<Long, CachedViews> views;
+        try {
+            // Отсутствующие в кэше id запрашиваются одним запросом, параллельные промахи по тем же id ждут его
+            views = viewsByEventId.getAll(eventsPublished.keySet(),
+                    (missingIds, executor) -> load(missingIds, eventsPublished)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        long now = System.nanoTime();
+        return views.entrySet().stream()
+                .peek(entry -> staleness.record(now - entry.getValue().loadedAt, TimeUnit.NANOSECONDS))
+                .filter(entry -> entry.getValue().hits > 0)
+                .map(entry -> makeViewStats(entry.getKey(), entry.getValue().hits))
                 .collect(Collectors.toList());
-        List<String> uris = makeUris(eventsPublished);
-        LocalDateTime startStat = getStartTime(eventsPublished);
-        boolean unique = true;
-        return client.getStatistics(startStat.minusHours(1), LocalDateTime.now(), uris, unique);
     }
 
+    private ViewStatsDto makeViewStats(long eventId, long hits) {
+        return ViewStatsDto.builder()
+                .app(APP)
+                .uri("/events/" + eventId)
+                .hits(hits)
+                .build();
+    }
+
+    private CompletableFuture<Map<Long, CachedViews>> load(Iterable<? extends Long> missingIds,
+                                                          Map<Long, EventShort> eventsById) {
+        try {
+            List<EventShort> events = new ArrayList<>();
+            missingIds.forEach(id -> events.add(eventsById.get(id)));
+            List<String> uris = makeUris(events);
+            boolean unique = true;
+            List<ViewStatsDto> viewStatsDtos = client.getStatistics(getStartTime(events), LocalDateTime.now(),
+                    uris, unique);
+            long loadedAt = System.nanoTime();
+            Map<Long, CachedViews> views = new HashMap<>();
+            events.forEach(event -> views.put(event.getId(), new CachedViews(0, loadedAt)));
+            viewStatsDtos.forEach(viewStatsDto ->
+                    views.put(getEventId(viewStatsDto), new CachedViews(viewStatsDto.getHits(), loadedAt)));
+            return CompletableFuture.completedFuture(views);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private LocalDateTime getStartTime(List<EventShort> events) {
+        if (events.stream().anyMatch(event -> event.getPublishedOn() == null)) {
+            return UNKNOWN_PUBLICATION_START;
+        }
+        Instant firstPublishedOn = events.stream()
+                .map(EventShort::getPublishedOn)
+                .min(Comparator.naturalOrder())
+                .orElseThrow();
+        return DateTime.toLocalDateTime(firstPublishedOn).minusHours(1);
+    }
+
+    @AllArgsConstructor
+    private static class CachedViews {
+        private final long hits;
+        private final long loadedAt;
+    }
 }
@@ -3,35 +3,26 @@ package ru.practicum.util;
 import lombok.extern.slf4j.Slf4j;
 import ru.practicum.client.exception.StatsRequestException;
 import ru.practicum.dto.ViewStatsDto;
-import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventShort;
 
-import java.time.Instant;
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Optional;
 import java.util.StringTokenizer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-import static ru.practicum.util.DateTime.toLocalDateTime;
-
 @Slf4j
 public class Statistics {
     private static final String URI = "events";
+    private static final Pattern EVENT_URI = Pattern.compile("^/" + URI + "/(\\d+)$");
 
-    public static List<String> makeUris(List<Event> events) {
-        List<Long> eventIds = events.stream().map(Event::getId).collect(Collectors.toList());
+    public static List<String> makeUris(List<? extends EventShort> events) {
+        List<Long> eventIds = events.stream().map(EventShort::getId).collect(Collectors.toList());
         return eventIds.stream().map(id -> "/" + URI + "/" + id).collect(Collectors.toList());
     }
 
-    public static LocalDateTime getStartTime(List<Event> events) {
-        Instant startStatInst = events.stream()
-                .map(Event::getPublishedOn)
-                .filter(Objects::nonNull)
-                .sorted().collect(Collectors.toList()).get(0);
-        return toLocalDateTime(startStatInst);
-    }
-
     public static long getEventId(ViewStatsDto viewStatsDto) {
         StringTokenizer tokenizer = new StringTokenizer(viewStatsDto.getUri(), "/");
         if (!tokenizer.nextToken().equals(URI)) {
@@ -45,9 +36,21 @@ public class Statistics {
         }
     }
 
-    public static Map<Long, Integer> makeViewMap(List<ViewStatsDto> viewStatsDtos, List<Event> events) {
+    public static Optional<Long> findEventId(String uri) {
+        Matcher matcher = EVENT_URI.matcher(uri);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Long.parseLong(matcher.group(1)));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    public static Map<Long, Integer> makeViewMap(List<ViewStatsDto> viewStatsDtos, List<? extends EventShort> events) {
         Map<Long, Integer> viewsByEventId = events.stream()
-                .collect(Collectors.toMap(Event::getId, event -> 0));
+                .collect(Collectors.toMap(EventShort::getId, event -> 0));
         if (viewStatsDtos.isEmpty()) {
             return viewsByEventId;
         }
@@ -0,0 +1,52 @@
+package ru.practicum.util;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/*
+ * Аренда периодической задачи в таблице task_leases: задачу выполняет один экземпляр сервиса.
+ * Владелец продлевает аренду при каждом запуске, другой экземпляр получает ее, только когда аренда истекла.
+ * В отличие от advisory-блокировки, аренда не держит соединение из пула между запусками и на время
+ * запросов к сервису статистики.
+ */
+@Component
+public class TaskLease {
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final String owner;
+
+    public TaskLease(NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this(namedJdbcTemplate, hostName() + "-" + UUID.randomUUID());
+    }
+
+    TaskLease(NamedParameterJdbcTemplate namedJdbcTemplate, String owner) {
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.owner = owner;
+    }
+
+    public boolean tryAcquire(String name, Duration leaseTime) {
+        LocalDateTime now = LocalDateTime.now();
+        String sql = "update task_leases set locked_until = :lockedUntil, locked_by = :owner " +
+                "where name = :name and (locked_by = :owner or locked_until < :now)";
+        MapSqlParameterSource parameters = new MapSqlParameterSource("name", name)
+                .addValue("owner", owner)
+                .addValue("now", Timestamp.valueOf(now))
+                .addValue("lockedUntil", Timestamp.valueOf(now.plus(leaseTime)));
+        return namedJdbcTemplate.update(sql, parameters) == 1;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
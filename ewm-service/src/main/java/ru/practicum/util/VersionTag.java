@@ -0,0 +1,29 @@
+package ru.practicum.util;
+
+//Версия записи в заголовках ETag и If-Match
+public class VersionTag {
+    private static final String WEAK_PREFIX = "W/";
+
+    public static String toETag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    //null - заголовок не передан или равен *, версия не проверяется
+    public static Long fromIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.strip();
+        if (tag.startsWith(WEAK_PREFIX)) {
+            tag = tag.substring(WEAK_PREFIX.length());
+        }
+        if (tag.length() > 1 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный заголовок If-Match: " + ifMatch);
+        }
+    }
+}
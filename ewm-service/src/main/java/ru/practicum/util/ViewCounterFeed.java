@@ -0,0 +1,143 @@
+package ru.practicum.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.client.StatsClient;
+import ru.practicum.client.ViewCountersListener;
+import ru.practicum.client.exception.StatsRequestException;
+import ru.practicum.dto.ViewStatsDto;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@Slf4j
+public class ViewCounterFeed implements ViewCountersListener {
+    private static final String APP = "ewm-main-service";
+
+    private final StatsClient client;
+    private final boolean enabled;
+    private final Duration reconnectDelay;
+    //Пишет только поток чтения; снимок подменяет словарь целиком, чтобы читатели не видели его пустым
+    private volatile Map<Long, Long> viewsByEventId = new ConcurrentHashMap<>();
+    //События, счетчики которых изменились с последней синхронизации колонки views
+    private final Set<Long> changedEventIds = ConcurrentHashMap.newKeySet();
+    private volatile boolean connected;
+    private volatile boolean stopping;
+    private Thread reader;
+
+    public ViewCounterFeed(StatsClient client,
+                           @Value("${stats.views.feed.enabled:false}") boolean enabled,
+                           @Value("${stats.views.feed.reconnect-delay:5s}") Duration reconnectDelay) {
+        this.client = client;
+        this.enabled = enabled;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || reader != null) {
+            return;
+        }
+        reader = new Thread(this::listen, "stats-view-feed");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopping = true;
+        connected = false;
+        synchronized (this) {
+            if (reader != null) {
+                reader.interrupt();
+            }
+        }
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public long getViews(long eventId) {
+        return viewsByEventId.getOrDefault(eventId, 0L);
+    }
+
+    public Set<Long> drainChangedEventIds() {
+        Set<Long> drained = new HashSet<>();
+        for (Iterator<Long> iterator = changedEventIds.iterator(); iterator.hasNext(); ) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+
+    public void markChanged(Collection<Long> eventIds) {
+        changedEventIds.addAll(eventIds);
+    }
+
+    public void markAllChanged() {
+        changedEventIds.addAll(viewsByEventId.keySet());
+    }
+
+    /*
+     * Сервер статистики отправляет события одного подписчика по порядку и считает значения в момент отправки,
+     * поэтому более позднее значение всегда свежее, даже если счетчик уменьшился.
+     */
+    @Override
+    public void onSnapshot(List<ViewStatsDto> counters) {
+        Map<Long, Long> snapshot = new ConcurrentHashMap<>();
+        put(snapshot, counters);
+        Map<Long, Long> previous = viewsByEventId;
+        viewsByEventId = snapshot;
+        //Изменения отмечаются после подмены, чтобы синхронизация не прочитала старое значение.
+        //События, пропавшие из снимка, тоже изменились: их счетчик стал нулевым
+        changedEventIds.addAll(previous.keySet());
+        changedEventIds.addAll(snapshot.keySet());
+        connected = true;
+    }
+
+    @Override
+    public void onViews(List<ViewStatsDto> counters) {
+        changedEventIds.addAll(put(viewsByEventId, counters));
+    }
+
+    private List<Long> put(Map<Long, Long> views, List<ViewStatsDto> counters) {
+        List<Long> eventIds = new ArrayList<>();
+        counters.forEach(counter -> Statistics.findEventId(counter.getUri())
+                .ifPresent(eventId -> {
+                    views.put(eventId, counter.getHits());
+                    eventIds.add(eventId);
+                }));
+        return eventIds;
+    }
+
+    private void listen() {
+        while (!stopping) {
+            try {
+                client.streamViewCounters(APP, this);
+                log.warn("Поток счетчиков просмотров закрыт сервером статистики");
+            } catch (StatsRequestException e) {
+                log.warn("Нет подключения к потоку счетчиков просмотров: {}", e.getMessage());
+            }
+            connected = false;
+            try {
+                Thread.sleep(reconnectDelay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -44,6 +44,8 @@ CREATE TABLE IF NOT EXISTS events
     created_on         TIMESTAMP WITHOUT TIME ZONE DEFAULT NOW(),
     published_on       TIMESTAMP WITHOUT TIME ZONE default NULL,
     state              VARCHAR(9)                  NOT NULL,
+    views              BIGINT                      NOT NULL DEFAULT 0,
+    confirmed_requests INT                         NOT NULL DEFAULT 0,
 
     CONSTRAINT fk_events_to_categories FOREIGN KEY (category_id) REFERENCES categories (id) ON DELETE CASCADE,
     CONSTRAINT fk_events_to_locations FOREIGN KEY (location_id) REFERENCES locations (id) ON DELETE CASCADE,
@@ -84,46 +86,3 @@ CREATE TABLE IF NOT EXISTS compilations_events
 
     PRIMARY KEY (compilation_id, event_id)
 );
-
-CREATE OR REPLACE FUNCTION distance(lat1 float, lon1 float, lat2 float, lon2 float)
-    RETURNS float
-AS
-'
-    declare
-        dist      float = 0;
-        rad_lat1  float;
-        rad_lat2  float;
-        theta     float;
-        rad_theta float;
-    BEGIN
-        IF lat1 = lat2 AND lon1 = lon2
-        THEN
-            RETURN dist;
-        ELSE
-            -- переводим градусы широты в радианы
-            rad_lat1 = pi() * lat1 / 180;
-            -- переводим градусы долготы в радианы
-            rad_lat2 = pi() * lat2 / 180;
-            -- находим разность долгот
-            theta = lon1 - lon2;
-            -- переводим градусы в радианы
-            rad_theta = pi() * theta / 180;
-            -- находим длину ортодромии
-            dist = sin(rad_lat1) * sin(rad_lat2) + cos(rad_lat1) * cos(rad_lat2) * cos(rad_theta);
-
-            IF dist > 1
-            THEN
-                dist = 1;
-            END IF;
-
-            dist = acos(dist);
-            -- переводим радианы в градусы
-            dist = dist * 180 / pi();
-            -- переводим градусы в километры
-            dist = dist * 60 * 1.8524;
-
-            RETURN dist;
-        END IF;
-    END;
-'
-    LANGUAGE PLPGSQL;
\ No newline at end of file
@@ -0,0 +1,5 @@
+ALTER TABLE events
+    ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE compilations
+    ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS task_leases
+(
+    name         VARCHAR(64) PRIMARY KEY,
+    locked_until TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    locked_by    VARCHAR(128)                NOT NULL
+);
+
+INSERT INTO task_leases (name, locked_until, locked_by)
+VALUES ('event-views-sync', TIMESTAMP '2000-01-01 00:00:00', '');
@@ -0,0 +1 @@
+CREATE ALIAS IF NOT EXISTS distance FOR 'ru.practicum.util.GeoDistance.distance';
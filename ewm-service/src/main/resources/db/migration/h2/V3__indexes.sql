@@ -0,0 +1,6 @@
+-- H2 сам индексирует внешние ключи, поэтому здесь только составные индексы
+CREATE INDEX IF NOT EXISTS ix_events_state_event_date ON events (state, event_date, id);
+CREATE INDEX IF NOT EXISTS ix_events_event_date_id ON events (event_date, id);
+CREATE INDEX IF NOT EXISTS ix_events_initiator_id ON events (initiator, id);
+
+CREATE INDEX IF NOT EXISTS ix_compilations_pinned_id ON compilations (pinned, id);
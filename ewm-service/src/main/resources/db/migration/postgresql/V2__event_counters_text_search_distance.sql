@@ -0,0 +1,62 @@
+-- базы, созданные до перехода на миграции, получают недостающие колонки
+ALTER TABLE events
+    ADD COLUMN IF NOT EXISTS views BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE events
+    ADD COLUMN IF NOT EXISTS confirmed_requests INT NOT NULL DEFAULT 0;
+
+-- счетчик подтвержденных заявок для баз, созданных до его появления
+UPDATE events
+SET confirmed_requests = c.qty
+FROM (SELECT event_id, COUNT(id) AS qty FROM requests WHERE status = 'CONFIRMED' GROUP BY event_id) c
+WHERE events.id = c.event_id
+  AND events.confirmed_requests <> c.qty;
+
+ALTER TABLE events
+    ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+                setweight(to_tsvector('russian', title), 'A') ||
+                setweight(to_tsvector('russian', annotation), 'B') ||
+                setweight(to_tsvector('russian', description), 'C')) STORED;
+
+CREATE OR REPLACE FUNCTION distance(lat1 float, lon1 float, lat2 float, lon2 float)
+    RETURNS float
+AS
+'
+    declare
+        dist      float = 0;
+        rad_lat1  float;
+        rad_lat2  float;
+        theta     float;
+        rad_theta float;
+    BEGIN
+        IF lat1 = lat2 AND lon1 = lon2
+        THEN
+            RETURN dist;
+        ELSE
+            -- переводим градусы широты в радианы
+            rad_lat1 = pi() * lat1 / 180;
+            -- переводим градусы долготы в радианы
+            rad_lat2 = pi() * lat2 / 180;
+            -- находим разность долгот
+            theta = lon1 - lon2;
+            -- переводим градусы в радианы
+            rad_theta = pi() * theta / 180;
+            -- находим длину ортодромии
+            dist = sin(rad_lat1) * sin(rad_lat2) + cos(rad_lat1) * cos(rad_lat2) * cos(rad_theta);
+
+            IF dist > 1
+            THEN
+                dist = 1;
+            END IF;
+
+            dist = acos(dist);
+            -- переводим радианы в градусы
+            dist = dist * 180 / pi();
+            -- переводим градусы в километры
+            dist = dist * 60 * 1.8524;
+
+            RETURN dist;
+        END IF;
+    END;
+'
+    LANGUAGE PLPGSQL;
@@ -0,0 +1,21 @@
+-- индексы строятся без блокировки записи в events и requests, поэтому миграция выполняется вне транзакции
+-- (V3__indexes.sql.conf); прерванное построение оставляет индекс INVALID, его нужно удалить перед повтором
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_events_search_vector ON events USING GIN (search_vector);
+
+-- публичные выборки всегда ограничены опубликованными событиями
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_events_published_event_date_id ON events (event_date, id) WHERE state = 'PUBLISHED';
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_events_published_views_id ON events (views DESC, id) WHERE state = 'PUBLISHED';
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_events_published_id ON events (id) WHERE state = 'PUBLISHED';
+DROP INDEX CONCURRENTLY IF EXISTS ix_events_views_id;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_events_state_event_date ON events (state, event_date);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_events_event_date_id ON events (event_date, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_events_initiator_id ON events (initiator, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_events_category_id ON events (category_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_events_location_id ON events (location_id);
+
+-- выборки по requester_id обслуживает uq_requester_id_by_event_id
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_requests_event_id_status ON requests (event_id, status);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_compilations_pinned_id ON compilations (pinned, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_compilations_events_event_id ON compilations_events (event_id);
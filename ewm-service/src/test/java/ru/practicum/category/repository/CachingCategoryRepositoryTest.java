@@ -0,0 +1,95 @@
+package ru.practicum.category.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.category.Category;
+import ru.practicum.error.exceptions.NotFoundException;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingCategoryRepositoryTest {
+    @Mock
+    private CategoryRepositoryImpl delegate;
+    private SimpleMeterRegistry registry;
+    private CachingCategoryRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        repository = new CachingCategoryRepository(delegate, registry, 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCache() {
+        when(delegate.findById(1L)).thenReturn(makeCategory(1L, "Концерты"));
+
+        repository.findById(1L);
+        Category category = repository.findById(1L);
+
+        assertEquals("Концерты", category.getName());
+        verify(delegate, times(1)).findById(1L);
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "categories").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void shouldLoadOnlyMissingIds() {
+        when(delegate.findById(1L)).thenReturn(makeCategory(1L, "Концерты"));
+        when(delegate.findByIds(List.of(2L))).thenReturn(List.of(makeCategory(2L, "Выставки")));
+
+        repository.findById(1L);
+        List<Category> categories = repository.findByIds(List.of(1L, 2L));
+
+        assertEquals(2, categories.size());
+        verify(delegate).findByIds(List.of(2L));
+    }
+
+    @Test
+    void shouldNotExposeCachedInstance() {
+        when(delegate.findById(1L)).thenReturn(makeCategory(1L, "Концерты"));
+
+        repository.findById(1L).setName("Изменено");
+
+        assertEquals("Концерты", repository.findById(1L).getName());
+    }
+
+    @Test
+    void shouldEvictOnUpdateEvenIfUpdateFails() {
+        when(delegate.findById(1L)).thenReturn(makeCategory(1L, "Концерты"), makeCategory(1L, "Театр"));
+        Category category = makeCategory(1L, "Театр");
+        when(delegate.update(category)).thenThrow(new NotFoundException("Категория с id 1 не найдена"));
+
+        repository.findById(1L);
+        assertThrows(NotFoundException.class, () -> repository.update(category));
+
+        assertEquals("Театр", repository.findById(1L).getName());
+        verify(delegate, times(2)).findById(1L);
+    }
+
+    @Test
+    void shouldEvictOnDelete() {
+        when(delegate.findById(1L)).thenReturn(makeCategory(1L, "Концерты"))
+                .thenThrow(new NotFoundException("Категория с id 1 не найдена"));
+
+        repository.findById(1L);
+        repository.delete(1L);
+
+        assertThrows(NotFoundException.class, () -> repository.findById(1L));
+    }
+
+    private Category makeCategory(long id, String name) {
+        return Category.builder()
+                .id(id)
+                .name(name)
+                .build();
+    }
+}
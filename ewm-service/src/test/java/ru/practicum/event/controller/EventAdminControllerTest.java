@@ -9,6 +9,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.event.dto.EventFullDto;
 import ru.practicum.event.service.EventService;
+import ru.practicum.util.PageCursor;
 
 import java.util.Collections;
 import java.util.List;
@@ -46,7 +47,7 @@ class EventAdminControllerTest {
     void shouldGetEmptyList() throws Exception {
         //Null params
         when(service.getAllByCriteriaByAdmin(anyList(), anyList(), anyList(), any(), any(),
-                anyFloat(), anyFloat(), anyInt(), anyInt(), anyInt())).thenReturn(Collections.emptyList());
+                anyFloat(), anyFloat(), anyInt(), any(), anyInt(), anyInt())).thenReturn(Collections.emptyList());
         mvc.perform(get(PATH))
                 .andDo(print())
                 .andExpect(status().isOk())
@@ -62,7 +63,7 @@ class EventAdminControllerTest {
         String json = mapper.writeValueAsString(List.of(eventFullDto));
         //Null params | default from size
         when(service.getAllByCriteriaByAdmin(null, null, null, null, null,
-                null, null, null, 0, 10)).thenReturn(List.of(eventFullDto));
+                null, null, null, null, 0, 10)).thenReturn(List.of(eventFullDto));
         mvc.perform(get(PATH))
                 .andDo(print())
                 .andExpect(status().isOk())
@@ -118,4 +119,33 @@ class EventAdminControllerTest {
                 .andDo(print())
                 .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldReturnNextCursorForFullPage() throws Exception {
+        EventFullDto eventFullDto = EventFullDto.builder()
+                .id(5L)
+                .title("title")
+                .build();
+        when(service.getAllByCriteriaByAdmin(null, null, null, null, null,
+                null, null, null, null, 0, 1)).thenReturn(List.of(eventFullDto));
+        mvc.perform(get(PATH)
+                        .param("size", "1"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(PageCursor.NEXT_CURSOR_HEADER, PageCursor.afterId(5L).encode()));
+
+        when(service.getAllByCriteriaByAdmin(null, null, null, null, null,
+                null, null, null, PageCursor.afterId(5L), 0, 1)).thenReturn(Collections.emptyList());
+        mvc.perform(get(PATH)
+                        .param("size", "1")
+                        .param("cursor", PageCursor.afterId(5L).encode()))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(PageCursor.NEXT_CURSOR_HEADER));
+
+        mvc.perform(get(PATH)
+                        .param("cursor", "not a cursor"))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+    }
+}
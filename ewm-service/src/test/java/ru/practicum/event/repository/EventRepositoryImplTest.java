@@ -0,0 +1,184 @@
+package ru.practicum.event.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.error.exceptions.NotFoundException;
+import ru.practicum.event.enums.EventState;
+import ru.practicum.event.model.Criteria;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventDetails;
+import ru.practicum.event.model.EventPatch;
+import ru.practicum.event.model.EventShort;
+import ru.practicum.event.repository.impl.EventRepositoryImpl;
+import ru.practicum.util.DatabaseDialect;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@JdbcTest
+@Import({EventRepositoryImpl.class, DatabaseDialect.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class EventRepositoryImplTest {
+    private final EventRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private long userId;
+    private long categoryId;
+    private long locationId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("insert into users(name, email) values ('user', 'user@mail.ru')");
+        jdbcTemplate.update("insert into categories(name) values ('category')");
+        jdbcTemplate.update("insert into locations(lat, lon) values (55.75, 37.62)");
+        userId = jdbcTemplate.queryForObject("select id from users", Long.class);
+        categoryId = jdbcTemplate.queryForObject("select id from categories", Long.class);
+        locationId = jdbcTemplate.queryForObject("select id from locations", Long.class);
+    }
+
+    @Test
+    void shouldReadShortEventsWithoutDescription() {
+        Event event = repository.add(makeEvent("Концерт"));
+
+        List<EventShort> events = repository.findShortByIds(List.of(event.getId()));
+
+        assertEquals(1, events.size());
+        EventShort eventShort = events.get(0);
+        assertEquals(event.getId(), eventShort.getId());
+        assertEquals("Концерт", eventShort.getTitle());
+        assertEquals(event.getAnnotation(), eventShort.getAnnotation());
+        assertEquals(categoryId, eventShort.getCategoryId());
+        assertEquals(userId, eventShort.getInitiator());
+        assertEquals(EventState.PENDING, eventShort.getEventState());
+        assertNull(eventShort.getPublishedOn());
+    }
+
+    @Test
+    void shouldReadEventDetailsByCriteria() {
+        Event event = repository.add(makeEvent("Выставка"));
+
+        List<EventDetails> events = repository.getByCriteria(Criteria.builder()
+                .users(List.of(userId))
+                .size(10)
+                .build());
+
+        assertEquals(1, events.size());
+        assertDetails(event, events.get(0));
+    }
+
+    @Test
+    void shouldReadEventDetailsById() {
+        Event event = repository.add(makeEvent("Лекция"));
+
+        assertDetails(event, repository.findDetailsById(event.getId()));
+        assertEquals(1, repository.findByInitiatorId(userId, null, 0, 10).size());
+        assertThrows(NotFoundException.class, () -> repository.findDetailsById(event.getId() + 1));
+    }
+
+    @Test
+    void shouldApplyPatchOnlyInExpectedState() {
+        Event event = repository.add(makeEvent("Спектакль"));
+        EventPatch publish = EventPatch.builder()
+                .state(EventState.PUBLISHED)
+                .publishedOn(Instant.now())
+                .expectedStates(Set.of(EventState.PENDING))
+                .build();
+
+        assertTrue(repository.patch(event.getId(), publish));
+        assertFalse(repository.patch(event.getId(), publish));
+        Event published = repository.findById(event.getId());
+        assertEquals(EventState.PUBLISHED, published.getEventState());
+        assertEquals(event.getDescription(), published.getDescription());
+        assertEquals("Спектакль", published.getTitle());
+    }
+
+    @Test
+    void shouldNotPatchForeignEvent() {
+        Event event = repository.add(makeEvent("Квест"));
+
+        assertFalse(repository.patch(event.getId(), EventPatch.builder()
+                .title("Чужой квест")
+                .initiator(userId + 1)
+                .build()));
+        assertTrue(repository.patch(event.getId(), EventPatch.builder()
+                .title("Свой квест")
+                .initiator(userId)
+                .build()));
+        assertEquals("Свой квест", repository.findById(event.getId()).getTitle());
+    }
+
+    @Test
+    void shouldPatchOnlyExpectedVersion() {
+        Event event = repository.add(makeEvent("Лекция"));
+        EventPatch rename = EventPatch.builder()
+                .title("Открытая лекция")
+                .expectedVersion(event.getVersion())
+                .build();
+
+        assertTrue(repository.patch(event.getId(), rename));
+        assertFalse(repository.patch(event.getId(), rename));
+        Event renamed = repository.findById(event.getId());
+        assertEquals(event.getVersion() + 1, renamed.getVersion());
+        assertEquals("Открытая лекция", renamed.getTitle());
+    }
+
+    @Test
+    void shouldKeepVersionOnEmptyPatch() {
+        Event event = repository.add(makeEvent("Концерт"));
+        EventPatch empty = EventPatch.builder()
+                .initiator(userId)
+                .expectedVersion(event.getVersion())
+                .build();
+
+        assertTrue(repository.patch(event.getId(), empty));
+        assertEquals(event.getVersion(), repository.findById(event.getId()).getVersion());
+        assertFalse(repository.patch(event.getId(), EventPatch.builder()
+                .initiator(userId + 1)
+                .build()));
+        assertFalse(repository.patch(event.getId(), EventPatch.builder()
+                .expectedVersion(event.getVersion() + 1)
+                .build()));
+    }
+
+    private void assertDetails(Event expected, EventDetails details) {
+        assertEquals(expected.getId(), details.getEvent().getId());
+        assertEquals(expected.getDescription(), details.getEvent().getDescription());
+        assertNotNull(details.getEvent().getCreatedOn());
+        assertEquals(categoryId, details.getCategory().getId());
+        assertEquals("category", details.getCategory().getName());
+        assertEquals(userId, details.getInitiator().getId());
+        assertEquals("user", details.getInitiator().getName());
+        assertEquals(locationId, details.getLocation().getId());
+        assertEquals(55.75f, details.getLocation().getLat());
+        assertEquals(37.62f, details.getLocation().getLon());
+    }
+
+    private Event makeEvent(String title) {
+        return Event.builder()
+                .annotation("Аннотация события " + title)
+                .categoryId(categoryId)
+                .description("Описание события " + title)
+                .eventDate(Instant.now().plus(1, ChronoUnit.DAYS))
+                .locationId(locationId)
+                .participantLimit(10)
+                .requestModeration(true)
+                .title(title)
+                .initiator(userId)
+                .eventState(EventState.PENDING)
+                .build();
+    }
+}
@@ -0,0 +1,123 @@
+package ru.practicum.event.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.event.enums.EventState;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.repository.impl.EventRepositoryImpl;
+import ru.practicum.util.DatabaseDialect;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Каждая заявка идет в своей транзакции из отдельного потока, поэтому данные теста коммитятся и удаляются вручную
+@JdbcTest
+@Import({EventRepositoryImpl.class, DatabaseDialect.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class EventSeatReservationTest {
+    private static final int THREADS = 16;
+
+    private final EventRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    private long userId;
+    private long categoryId;
+    private long locationId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("insert into users(name, email) values ('user', 'seats@mail.ru')");
+        jdbcTemplate.update("insert into categories(name) values ('seats')");
+        jdbcTemplate.update("insert into locations(lat, lon) values (55.75, 37.62)");
+        userId = jdbcTemplate.queryForObject("select max(id) from users", Long.class);
+        categoryId = jdbcTemplate.queryForObject("select max(id) from categories", Long.class);
+        locationId = jdbcTemplate.queryForObject("select max(id) from locations", Long.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from events");
+        jdbcTemplate.update("delete from users");
+        jdbcTemplate.update("delete from categories");
+        jdbcTemplate.update("delete from locations");
+    }
+
+    @Test
+    void shouldNeverExceedParticipantLimitUnderContention() throws Exception {
+        Event event = repository.add(makeEvent(5));
+
+        assertEquals(5, reserveConcurrently(event.getId()));
+        assertEquals(5, repository.findById(event.getId()).getConfirmedRequests());
+    }
+
+    @Test
+    void shouldAdmitEveryoneWithoutLimit() throws Exception {
+        Event event = repository.add(makeEvent(0));
+
+        assertEquals(THREADS, reserveConcurrently(event.getId()));
+        assertEquals(THREADS, repository.findById(event.getId()).getConfirmedRequests());
+    }
+
+    private int reserveConcurrently(long eventId) throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return transactionTemplate.execute(status -> repository.reserveSeats(eventId, 1));
+                }));
+            }
+            start.countDown();
+            int reserved = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(10, TimeUnit.SECONDS)) {
+                    reserved++;
+                }
+            }
+            return reserved;
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private Event makeEvent(int participantLimit) {
+        return Event.builder()
+                .annotation("Аннотация популярного события")
+                .categoryId(categoryId)
+                .description("Описание популярного события")
+                .eventDate(Instant.now().plus(1, ChronoUnit.DAYS))
+                .locationId(locationId)
+                .participantLimit(participantLimit)
+                .requestModeration(false)
+                .title("Популярное событие")
+                .initiator(userId)
+                .eventState(EventState.PENDING)
+                .build();
+    }
+}
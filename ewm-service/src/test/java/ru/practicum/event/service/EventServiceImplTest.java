@@ -1,35 +1,48 @@
 package ru.practicum.event.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
 import ru.practicum.category.Category;
-import ru.practicum.category.repository.CategoryRepository;
+import ru.practicum.client.buffer.HitBuffer;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.error.exceptions.ConflictException;
+import ru.practicum.error.exceptions.NotFoundException;
 import ru.practicum.event.dto.EventFullDto;
+import ru.practicum.event.dto.UpdateEventDto;
 import ru.practicum.event.enums.EventState;
 import ru.practicum.event.model.Criteria;
 import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventDetails;
 import ru.practicum.event.repository.EventRepository;
 import ru.practicum.location.model.Location;
 import ru.practicum.location.repository.LocationRepository;
-import ru.practicum.request.repository.RequestRepository;
 import ru.practicum.user.User;
-import ru.practicum.user.repository.UserRepository;
+import ru.practicum.util.EnrichmentExecutor;
+import ru.practicum.util.EnrichmentProperties;
 import ru.practicum.util.StatisticRequestService;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class EventServiceImplTest {
@@ -39,15 +52,30 @@ class EventServiceImplTest {
     @Mock
     private LocationRepository locationRepo;
     @Mock
-    private CategoryRepository categoryRepo;
-    @Mock
-    private UserRepository userRepo;
-    @Mock
-    private RequestRepository requestRepo;
-    @Mock
     private EventRepository repository;
     @Mock
     private StatisticRequestService statsRequestService;
+    @Spy
+    private EnrichmentExecutor enrichmentExecutor = new EnrichmentExecutor(new EnrichmentProperties(),
+            new SimpleMeterRegistry());
+    @Mock
+    private HitBuffer hitBuffer;
+    @Spy
+    private EventListingCache listingCache = new EventListingCache(new SimpleMeterRegistry(), 100,
+            Duration.ofMinutes(1));
+    @Spy
+    private TransactionOperations transactions = new TransactionOperations() {
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            inTransaction = true;
+            try {
+                return action.doInTransaction(new SimpleTransactionStatus());
+            } finally {
+                inTransaction = false;
+            }
+        }
+    };
+    private boolean inTransaction;
     @InjectMocks
     private EventServiceImpl service;
     private Event event;
@@ -72,6 +100,7 @@ class EventServiceImplTest {
                 .title("title")
                 .id(1L)
                 .requestModeration(false)
+                .confirmedRequests(1)
                 .participantLimit(0)
                 .locationId(1L)
                 .description("description")
@@ -101,19 +130,20 @@ class EventServiceImplTest {
         //EmptyList | Null parameters
         when(repository.getByCriteria(criteriaBuilder.build())).thenReturn(Collections.emptyList());
         List<EventFullDto> eventFullDtos = service.getAllByCriteriaByAdmin(null, null, null, null, null,
-                null, null, null, FROM, SIZE);
+                null, null, null, null, FROM, SIZE);
         assertNotNull(eventFullDtos);
         assertEquals(0, eventFullDtos.size());
 
         //SingleList | Null parameters
-        when(repository.getByCriteria(any())).thenReturn(List.of(event));
-        when(locationRepo.findByIds(anyList())).thenReturn(List.of(location));
-        when(categoryRepo.findByIds(anyList())).thenReturn(List.of(category));
-        when(userRepo.findByIds(anyList())).thenReturn(List.of(user));
-        when(requestRepo.countConfirmedRequestsByEventIds(anyList())).thenReturn(Map.of(1L, 1));
+        when(repository.getByCriteria(any())).thenReturn(List.of(EventDetails.builder()
+                .event(event)
+                .category(category)
+                .initiator(user)
+                .location(location)
+                .build()));
         when(statsRequestService.makeStatRequest(anyList())).thenReturn(List.of(viewStatsDto));
         eventFullDtos = service.getAllByCriteriaByAdmin(null, null, null, null, null,
-                null, null, null, FROM, SIZE);
+                null, null, null, null, FROM, SIZE);
         assertNotNull(eventFullDtos);
         assertEquals(1, eventFullDtos.size());
     }
@@ -125,8 +155,127 @@ class EventServiceImplTest {
         IllegalArgumentException exception = assertThrows(
                 IllegalArgumentException.class,
                 () -> service.getAllByCriteriaByAdmin(null, null, null, null, null,
-                        1f, null, null, FROM, SIZE)
+                        1f, null, null, null, FROM, SIZE)
         );
         assertEquals(message, exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldServeRepeatedPublicSearchFromCacheAndRecordHits() {
+        when(repository.getByCriteria(any())).thenReturn(List.of(makeDetails()));
+        when(statsRequestService.makeStatRequest(anyList())).thenReturn(List.of(viewStatsDto));
+
+        service.getByFiltersPublic("Text", List.of(2L, 1L), null, null, null, false, null, null,
+                FROM, SIZE, "127.0.0.1");
+        List<EventFullDto> eventFullDtos = service.getByFiltersPublic("text", List.of(1L, 2L), null, null,
+                null, false, null, null, FROM, SIZE, "127.0.0.1");
+
+        assertEquals(1, eventFullDtos.size());
+        verify(repository, times(1)).getByCriteria(any());
+        verify(hitBuffer, times(2)).addAll(argThat(hits -> hits.size() == 2));
+    }
+
+    @Test
+    void shouldInvalidatePublicSearchOnPatchByAdmin() {
+        when(repository.getByCriteria(any())).thenReturn(List.of(makeDetails()));
+        when(repository.patch(eq(1L), any())).thenReturn(true);
+        when(repository.findDetailsById(1L)).thenReturn(makeDetails());
+        when(statsRequestService.makeStatRequest(anyList())).thenReturn(List.of(viewStatsDto));
+
+        service.getByFiltersPublic(null, null, null, null, null, false, null, null, FROM, SIZE, "127.0.0.1");
+        service.patchByAdmin(1L, UpdateEventDto.builder().title("new title").build(), null);
+        service.getByFiltersPublic(null, null, null, null, null, false, null, null, FROM, SIZE, "127.0.0.1");
+
+        verify(repository, times(2)).getByCriteria(any());
+    }
+
+    @Test
+    void shouldRequestViewsAfterPatchTransaction() {
+        when(repository.patch(eq(1L), any())).thenReturn(true);
+        when(repository.findDetailsById(1L)).thenReturn(makeDetails());
+        when(statsRequestService.makeStatRequest(anyList())).thenAnswer(invocation -> {
+            assertFalse(inTransaction);
+            return List.of(viewStatsDto);
+        });
+
+        EventFullDto eventFullDto = service.patchByAdmin(1L,
+                UpdateEventDto.builder().stateAction("PUBLISH_EVENT").build(), null);
+
+        assertEquals(1, eventFullDto.getViews());
+        verify(transactions).execute(any());
+    }
+
+    @Test
+    void shouldPublishOnlyPendingEventWithGuardedPatch() {
+        when(repository.patch(eq(1L), any())).thenReturn(false);
+        when(repository.findById(1L)).thenReturn(event);
+
+        assertThrows(ConflictException.class, () -> service.patchByAdmin(1L,
+                UpdateEventDto.builder().stateAction("PUBLISH_EVENT").build(), null));
+        verify(repository).patch(eq(1L), argThat(patch -> patch.getState() == EventState.PUBLISHED
+                && patch.getExpectedStates().equals(Set.of(EventState.PENDING))
+                && patch.getDescription() == null));
+    }
+
+    @Test
+    void shouldReportForeignEventOnFailedPrivateUpdate() {
+        event.setEventState(EventState.PENDING);
+        when(repository.patch(eq(1L), any())).thenReturn(false);
+        when(repository.findById(1L)).thenReturn(event);
+
+        assertThrows(NotFoundException.class, () -> service.update(2L, 1L,
+                UpdateEventDto.builder().stateAction("SEND_TO_REVIEW").build(), null));
+        verify(repository).patch(eq(1L), argThat(patch -> patch.getInitiator() == 2L
+                && patch.getState() == EventState.PENDING));
+    }
+
+    @Test
+    void shouldReportStaleVersionOnFailedPrivateUpdate() {
+        event.setEventState(EventState.PENDING);
+        event.setVersion(3);
+        when(repository.patch(eq(1L), any())).thenReturn(false);
+        when(repository.findById(1L)).thenReturn(event);
+
+        ConflictException exception = assertThrows(ConflictException.class, () -> service.update(1L, 1L,
+                UpdateEventDto.builder().title("new title").build(), 2L));
+        assertEquals("Событие с id 1 было изменено другим запросом", exception.getMessage());
+        verify(repository).patch(eq(1L), argThat(patch -> patch.getExpectedVersion() == 2L));
+    }
+
+    @Test
+    void shouldRequestViewsWhileLoadingPublicEvent() {
+        CountDownLatch statsStarted = new CountDownLatch(1);
+        when(statsRequestService.makeStatRequest(anyList())).thenAnswer(invocation -> {
+            statsStarted.countDown();
+            return List.of(viewStatsDto);
+        });
+        when(repository.findDetailsById(1L)).thenAnswer(invocation -> {
+            //Событие читается, когда запрос просмотров уже отправлен
+            assertTrue(statsStarted.await(1, TimeUnit.SECONDS));
+            return makeDetails();
+        });
+
+        EventFullDto eventFullDto = service.getByIdPublic(1L, "127.0.0.1");
+
+        assertEquals(1, eventFullDto.getViews());
+        verify(hitBuffer).add(any());
+    }
+
+    @Test
+    void shouldNotShowUnpublishedEventPublicly() {
+        event.setEventState(EventState.PENDING);
+        when(repository.findDetailsById(1L)).thenReturn(makeDetails());
+
+        assertThrows(NotFoundException.class, () -> service.getByIdPublic(1L, "127.0.0.1"));
+        verify(hitBuffer, never()).add(any());
+    }
+
+    private EventDetails makeDetails() {
+        return EventDetails.builder()
+                .event(event)
+                .category(category)
+                .initiator(user)
+                .location(location)
+                .build();
+    }
+}
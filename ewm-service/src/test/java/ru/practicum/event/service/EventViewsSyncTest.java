@@ -0,0 +1,159 @@
+package ru.practicum.event.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import ru.practicum.client.StatsClient;
+import ru.practicum.client.exception.StatsRequestException;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.event.enums.EventState;
+import ru.practicum.event.model.EventShort;
+import ru.practicum.event.repository.EventRepository;
+import ru.practicum.util.StatisticRequestService;
+import ru.practicum.util.TaskLease;
+import ru.practicum.util.ViewCounterFeed;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EventViewsSyncTest {
+    private static final Duration LEASE_TIME = Duration.ofMinutes(3);
+
+    @Mock
+    private EventRepository repository;
+    @Mock
+    private StatisticRequestService statsRequestService;
+    @Mock
+    private TaskLease lease;
+    @Mock
+    private StatsClient client;
+    private ViewCounterFeed feed;
+    private EventViewsSync sync;
+
+    @BeforeEach
+    void setUp() {
+        feed = new ViewCounterFeed(client, false, Duration.ofSeconds(1));
+        sync = new EventViewsSync(repository, statsRequestService, feed, lease, 2, LEASE_TIME);
+        lenient().when(lease.tryAcquire(EventViewsSync.LEASE, LEASE_TIME)).thenReturn(true);
+    }
+
+    @Test
+    void shouldSyncUpcomingEventsInBatchesWithoutFeed() {
+        when(repository.findUpcomingPublishedAfterId(any(), eq(0L), eq(2)))
+                .thenReturn(List.of(makeEvent(1L), makeEvent(2L)));
+        when(repository.findUpcomingPublishedAfterId(any(), eq(2L), eq(2))).thenReturn(List.of(makeEvent(3L)));
+        when(statsRequestService.makeStatRequest(anyList()))
+                .thenReturn(List.of(makeViewStats(2L, 4)))
+                .thenReturn(Collections.emptyList());
+
+        sync.sync();
+
+        verify(repository).updateViews(Map.of(1L, 0L, 2L, 4L));
+        verify(repository).updateViews(Map.of(3L, 0L));
+        verify(repository, never()).findUpcomingPublishedAfterId(any(), eq(3L), anyInt());
+    }
+
+    @Test
+    void shouldStopWhenStatsUnavailable() {
+        when(repository.findUpcomingPublishedAfterId(any(), eq(0L), eq(2)))
+                .thenReturn(List.of(makeEvent(1L), makeEvent(2L)));
+        when(statsRequestService.makeStatRequest(anyList()))
+                .thenThrow(new StatsRequestException("Ошибка при запросе данных статистики"));
+
+        sync.sync();
+
+        verify(repository, never()).updateViews(anyMap());
+    }
+
+    @Test
+    void shouldSyncOnlyEventsChangedInFeed() {
+        feed.onSnapshot(List.of(makeViewStats(1L, 5), makeViewStats(2L, 3)));
+        sync.sync();
+        verify(repository).updateViews(Map.of(1L, 5L, 2L, 3L));
+
+        feed.onViews(List.of(makeViewStats(2L, 4)));
+        sync.sync();
+
+        verify(repository).updateViews(Map.of(2L, 4L));
+        verifyNoInteractions(statsRequestService);
+        verify(repository, never()).findUpcomingPublishedAfterId(any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void shouldResetEventsMissingFromNewSnapshot() {
+        feed.onSnapshot(List.of(makeViewStats(1L, 5), makeViewStats(2L, 3)));
+        sync.sync();
+
+        feed.onSnapshot(List.of(makeViewStats(1L, 5)));
+        sync.sync();
+
+        verify(repository).updateViews(Map.of(1L, 5L, 2L, 0L));
+    }
+
+    @Test
+    void shouldRetryChangedEventsAfterFailedUpdate() {
+        feed.onSnapshot(List.of(makeViewStats(1L, 5)));
+        when(repository.updateViews(anyMap()))
+                .thenThrow(new QueryTimeoutException("Таймаут"))
+                .thenReturn(1);
+
+        assertThrows(QueryTimeoutException.class, () -> sync.sync());
+        sync.sync();
+
+        verify(repository, times(2)).updateViews(Map.of(1L, 5L));
+    }
+
+    @Test
+    void shouldSkipSyncWithoutLease() {
+        when(lease.tryAcquire(EventViewsSync.LEASE, LEASE_TIME)).thenReturn(false);
+        feed.onSnapshot(List.of(makeViewStats(1L, 5)));
+
+        sync.sync();
+
+        verifyNoInteractions(repository, statsRequestService);
+        assertEquals(Set.of(), feed.drainChangedEventIds());
+    }
+
+    @Test
+    void shouldSyncAllFeedCountersAfterTakingOverLease() {
+        when(lease.tryAcquire(EventViewsSync.LEASE, LEASE_TIME)).thenReturn(false).thenReturn(true);
+        feed.onSnapshot(List.of(makeViewStats(1L, 5), makeViewStats(2L, 3)));
+        sync.sync();
+
+        sync.sync();
+
+        verify(repository).updateViews(Map.of(1L, 5L, 2L, 3L));
+    }
+
+    private EventShort makeEvent(long id) {
+        return EventShort.builder()
+                .id(id)
+                .eventState(EventState.PUBLISHED)
+                .publishedOn(Instant.now())
+                .build();
+    }
+
+    private ViewStatsDto makeViewStats(long eventId, long hits) {
+        return ViewStatsDto.builder()
+                .app("ewm-main-service")
+                .uri("/events/" + eventId)
+                .hits(hits)
+                .build();
+    }
+}
@@ -0,0 +1,89 @@
+package ru.practicum.location.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.error.exceptions.NotFoundException;
+import ru.practicum.location.enums.LocationType;
+import ru.practicum.location.model.Location;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingLocationRepositoryTest {
+    @Mock
+    private LocationRepositoryImpl delegate;
+    private CachingLocationRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new CachingLocationRepository(delegate, new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void shouldServeBatchLookupsFromCache() {
+        when(delegate.findByIds(List.of(1L, 2L)))
+                .thenReturn(List.of(makeLocation(1L, "Парк"), makeLocation(2L, "Сквер")));
+
+        repository.findByIds(List.of(1L, 2L));
+        List<Location> locations = repository.findByIds(List.of(2L, 1L));
+
+        assertEquals(2, locations.size());
+        verify(delegate, times(1)).findByIds(anyList());
+    }
+
+    @Test
+    void shouldEvictOnUpdateEvenIfUpdateFails() {
+        when(delegate.findByIds(List.of(1L)))
+                .thenReturn(List.of(makeLocation(1L, "Парк")), List.of(makeLocation(1L, "Сад")));
+        Location location = makeLocation(1L, "Сад");
+        when(delegate.update(location)).thenThrow(new NotFoundException("Локация с id 1 не найдена"));
+
+        repository.findByIds(List.of(1L));
+        assertThrows(NotFoundException.class, () -> repository.update(location));
+
+        assertEquals("Сад", repository.findByIds(List.of(1L)).get(0).getName());
+    }
+
+    @Test
+    void shouldEvictOnDelete() {
+        when(delegate.findById(1L)).thenReturn(makeLocation(1L, "Парк"))
+                .thenThrow(new NotFoundException("Локация с id 1 не найдена"));
+
+        repository.findById(1L);
+        repository.delete(1L);
+
+        assertThrows(NotFoundException.class, () -> repository.findById(1L));
+    }
+
+    @Test
+    void shouldNotKeepBatchLoadedDuringUpdate() {
+        //Локацию меняют, пока пакетная загрузка читает ее старую версию
+        Location updated = makeLocation(1L, "Сад");
+        when(delegate.findByIds(List.of(1L))).thenAnswer(invocation -> {
+            repository.update(updated);
+            return List.of(makeLocation(1L, "Парк"));
+        }).thenReturn(List.of(updated));
+
+        repository.findByIds(List.of(1L));
+
+        assertEquals("Сад", repository.findByIds(List.of(1L)).get(0).getName());
+    }
+
+    private Location makeLocation(long id, String name) {
+        return Location.builder()
+                .id(id)
+                .lat(55.75f)
+                .lon(37.62f)
+                .name(name)
+                .type(LocationType.OUTDOOR)
+                .build();
+    }
+}
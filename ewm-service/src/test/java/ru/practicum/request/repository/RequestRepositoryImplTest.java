@@ -0,0 +1,106 @@
+package ru.practicum.request.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.event.enums.EventState;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.repository.impl.EventRepositoryImpl;
+import ru.practicum.request.Request;
+import ru.practicum.request.enums.RequestStatus;
+import ru.practicum.util.DatabaseDialect;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@JdbcTest
+@Import({RequestRepositoryImpl.class, EventRepositoryImpl.class, DatabaseDialect.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class RequestRepositoryImplTest {
+    private final RequestRepository repository;
+    private final EventRepository eventRepo;
+    private final JdbcTemplate jdbcTemplate;
+
+    private long eventId;
+    private List<Long> userIds;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("insert into users(name, email) values ('initiator', 'initiator@mail.ru'), " +
+                "('first', 'first@mail.ru'), ('second', 'second@mail.ru')");
+        jdbcTemplate.update("insert into categories(name) values ('category')");
+        jdbcTemplate.update("insert into locations(lat, lon) values (55.75, 37.62)");
+        userIds = jdbcTemplate.queryForList("select id from users order by id", Long.class);
+        Event event = eventRepo.add(Event.builder()
+                .annotation("Аннотация события с заявками")
+                .categoryId(jdbcTemplate.queryForObject("select id from categories", Long.class))
+                .description("Описание события с заявками")
+                .eventDate(Instant.now().plus(1, ChronoUnit.DAYS))
+                .locationId(jdbcTemplate.queryForObject("select id from locations", Long.class))
+                .participantLimit(10)
+                .requestModeration(false)
+                .title("Событие")
+                .initiator(userIds.get(0))
+                .eventState(EventState.PENDING)
+                .build());
+        eventId = event.getId();
+    }
+
+    @Test
+    void shouldInsertBatchWithGeneratedKeys() {
+        List<Request> requests = repository.addAll(List.of(makeRequest(userIds.get(1)), makeRequest(userIds.get(2))));
+
+        assertNotEquals(requests.get(0).getId(), requests.get(1).getId());
+        requests.forEach(request -> {
+            assertNotNull(request.getCreated());
+            assertEquals(request.getRequesterId(), repository.findById(request.getId()).getRequesterId());
+        });
+        assertEquals(List.of(userIds.get(2)), repository.findRequesterIdsByEventId(eventId, List.of(userIds.get(2))));
+    }
+
+    @Test
+    void shouldCancelOnlyPendingOrConfirmedRequest() {
+        List<Request> requests = repository.addAll(List.of(makeRequest(userIds.get(1)),
+                makeRequest(userIds.get(2), RequestStatus.REJECTED)));
+
+        assertEquals(Optional.of(RequestStatus.CONFIRMED), repository.cancel(requests.get(0).getId()));
+        assertEquals(Optional.empty(), repository.cancel(requests.get(0).getId()));
+        assertEquals(Optional.empty(), repository.cancel(requests.get(1).getId()));
+        assertEquals(RequestStatus.CANCELED, repository.findById(requests.get(0).getId()).getStatus());
+        assertEquals(RequestStatus.REJECTED, repository.findById(requests.get(1).getId()).getStatus());
+    }
+
+    @Test
+    void shouldUpdateOnlyPendingRequests() {
+        List<Request> requests = repository.addAll(List.of(makeRequest(userIds.get(1), RequestStatus.PENDING),
+                makeRequest(userIds.get(2), RequestStatus.CANCELED)));
+        List<Long> ids = List.of(requests.get(0).getId(), requests.get(1).getId());
+
+        assertEquals(1, repository.updateStatuses(ids, RequestStatus.CONFIRMED));
+        assertEquals(RequestStatus.CONFIRMED, repository.findById(ids.get(0)).getStatus());
+        assertEquals(RequestStatus.CANCELED, repository.findById(ids.get(1)).getStatus());
+    }
+
+    private Request makeRequest(long requesterId) {
+        return makeRequest(requesterId, RequestStatus.CONFIRMED);
+    }
+
+    private Request makeRequest(long requesterId, RequestStatus status) {
+        return Request.builder()
+                .eventId(eventId)
+                .requesterId(requesterId)
+                .status(status)
+                .build();
+    }
+}
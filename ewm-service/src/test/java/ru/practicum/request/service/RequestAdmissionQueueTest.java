@@ -0,0 +1,188 @@
+package ru.practicum.request.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.error.exceptions.ConflictException;
+import ru.practicum.error.exceptions.DependencyTimeoutException;
+import ru.practicum.request.Request;
+import ru.practicum.request.enums.RequestStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class RequestAdmissionQueueTest {
+    private static final long EVENT_ID = 1L;
+    private static final int THREADS = 16;
+
+    @Mock
+    private RequestAdmitter admitter;
+    private RequestAdmissionQueue queue;
+    private SimpleMeterRegistry registry;
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private final List<Long> decidedRequesterIds = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setStripes(2);
+        properties.setWindow(Duration.ofMillis(200));
+        properties.setTimeout(Duration.ofMillis(500));
+        registry = new SimpleMeterRegistry();
+        queue = new RequestAdmissionQueue(admitter, properties, registry);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        queue.stop();
+    }
+
+    @Test
+    void shouldDecideConcurrentRequestsForEventInBatches() throws Exception {
+        doAnswer(invocation -> {
+            List<Admission> admissions = invocation.getArgument(1);
+            batchSizes.add(admissions.size());
+            admissions.forEach(admission -> admission.admit(makeRequest(admission)));
+            return null;
+        }).when(admitter).admit(anyLong(), anyList());
+
+        List<Request> requests = admitConcurrently();
+
+        assertEquals(THREADS, requests.size());
+        assertEquals(THREADS, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.size() < THREADS);
+    }
+
+    @Test
+    void shouldSplitFailedBatchAndRejectOnlyFailedRequest() throws Exception {
+        doAnswer(invocation -> {
+            List<Admission> admissions = invocation.getArgument(1);
+            if (admissions.stream().anyMatch(admission -> admission.getRequesterId() == 2L)) {
+                throw new ConflictException("Нельзя добавить повторный запрос на участие событии с id 1");
+            }
+            admissions.forEach(admission -> admission.admit(makeRequest(admission)));
+            return null;
+        }).when(admitter).admit(anyLong(), anyList());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Request> admitted = executor.submit(() -> queue.admit(3L, EVENT_ID));
+            Future<Request> rejected = executor.submit(() -> queue.admit(2L, EVENT_ID));
+
+            assertEquals(3L, admitted.get(5, TimeUnit.SECONDS).getRequesterId());
+            Exception exception = assertThrows(Exception.class, () -> rejected.get(5, TimeUnit.SECONDS));
+            assertEquals(ConflictException.class, exception.getCause().getClass());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldSkipRequestAbandonedAfterTimeout() throws Exception {
+        CountDownLatch batchStarted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            List<Admission> admissions = invocation.getArgument(1);
+            admissions.forEach(admission -> decidedRequesterIds.add(admission.getRequesterId()));
+            if (decidedRequesterIds.contains(2L) && decidedRequesterIds.size() == 1) {
+                //Первый пакет задерживает поток полосы
+                batchStarted.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            admissions.forEach(admission -> admission.admit(makeRequest(admission)));
+            return null;
+        }).when(admitter).admit(anyLong(), anyList());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Request> slow = executor.submit(() -> queue.admit(2L, EVENT_ID));
+            assertTrue(batchStarted.await(5, TimeUnit.SECONDS));
+
+            assertThrows(DependencyTimeoutException.class, () -> queue.admit(3L, EVENT_ID));
+            release.countDown();
+
+            //Заявка, решение по которой уже принималось, дожидается результата
+            assertEquals(2L, slow.get(5, TimeUnit.SECONDS).getRequesterId());
+            assertEquals(4L, queue.admit(4L, EVENT_ID).getRequesterId());
+            assertEquals(List.of(2L, 4L), decidedRequesterIds);
+            assertEquals(1, registry.get("ewm.admission.abandoned").counter().count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldWaitForAllStripesWithinOneTimeout() throws Exception {
+        CountDownLatch batchesStarted = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            batchesStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(admitter).admit(anyLong(), anyList());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            //События 0 и 1 попадают в разные полосы, обе полосы заняты пакетами
+            executor.submit(() -> queue.admit(2L, 0L));
+            executor.submit(() -> queue.admit(2L, 1L));
+            assertTrue(batchesStarted.await(5, TimeUnit.SECONDS));
+
+            long start = System.nanoTime();
+            queue.stop();
+
+            assertTrue(System.nanoTime() - start < Duration.ofMillis(900).toNanos());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Request> admitConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Request>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                long requesterId = i + 2;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return queue.admit(requesterId, EVENT_ID);
+                }));
+            }
+            start.countDown();
+            List<Request> requests = new ArrayList<>();
+            for (Future<Request> future : futures) {
+                requests.add(future.get(5, TimeUnit.SECONDS));
+            }
+            return requests;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Request makeRequest(Admission admission) {
+        return Request.builder()
+                .id(admission.getRequesterId())
+                .eventId(admission.getEventId())
+                .requesterId(admission.getRequesterId())
+                .status(RequestStatus.CONFIRMED)
+                .build();
+    }
+}
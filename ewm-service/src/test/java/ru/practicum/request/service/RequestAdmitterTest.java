@@ -0,0 +1,123 @@
+package ru.practicum.request.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.error.exceptions.ConflictException;
+import ru.practicum.event.enums.EventState;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.service.EventListingCache;
+import ru.practicum.request.enums.RequestStatus;
+import ru.practicum.request.repository.RequestRepository;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RequestAdmitterTest {
+    private static final long EVENT_ID = 1L;
+    private static final long INITIATOR_ID = 1L;
+
+    @Mock
+    private RequestRepository repository;
+    @Mock
+    private EventRepository eventRepo;
+    @Mock
+    private EventListingCache listingCache;
+    @InjectMocks
+    private RequestAdmitter admitter;
+    private Event.EventBuilder<?, ?> eventBuilder;
+
+    @BeforeEach
+    void setUp() {
+        eventBuilder = Event.builder()
+                .id(EVENT_ID)
+                .initiator(INITIATOR_ID)
+                .eventState(EventState.PUBLISHED)
+                .participantLimit(2)
+                .requestModeration(true);
+    }
+
+    @Test
+    void shouldConfirmBatchUpToFreeSeatsWithOneReservation() {
+        when(eventRepo.findById(EVENT_ID)).thenReturn(eventBuilder.requestModeration(false).build());
+        when(eventRepo.reserveSeats(EVENT_ID, 2)).thenReturn(true);
+        when(repository.addAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        List<Admission> admissions = List.of(new Admission(2L, EVENT_ID), new Admission(3L, EVENT_ID),
+                new Admission(4L, EVENT_ID));
+
+        admitter.admit(EVENT_ID, admissions);
+        admissions.forEach(Admission::complete);
+
+        assertEquals(RequestStatus.CONFIRMED, admissions.get(0).getResult().join().getStatus());
+        assertEquals(RequestStatus.CONFIRMED, admissions.get(1).getResult().join().getStatus());
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> admissions.get(2).getResult().join());
+        assertEquals(ConflictException.class, exception.getCause().getClass());
+        verify(eventRepo).reserveSeats(EVENT_ID, 2);
+        verify(listingCache).invalidate();
+    }
+
+    @Test
+    void shouldKeepPendingRequestsOffCounter() {
+        when(eventRepo.findById(EVENT_ID)).thenReturn(eventBuilder.build());
+        when(repository.addAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        Admission admission = new Admission(2L, EVENT_ID);
+
+        admitter.admit(EVENT_ID, List.of(admission));
+        admission.complete();
+
+        assertEquals(RequestStatus.PENDING, admission.getResult().join().getStatus());
+        verify(eventRepo, never()).reserveSeats(anyLong(), anyInt());
+        verify(listingCache, never()).invalidate();
+    }
+
+    @Test
+    void shouldRejectRepeatedRequestsInBatch() {
+        when(eventRepo.findById(EVENT_ID)).thenReturn(eventBuilder.build());
+        when(repository.findRequesterIdsByEventId(EVENT_ID, List.of(2L, 3L))).thenReturn(List.of(3L));
+        when(repository.addAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        List<Admission> admissions = List.of(new Admission(2L, EVENT_ID), new Admission(2L, EVENT_ID),
+                new Admission(3L, EVENT_ID));
+
+        admitter.admit(EVENT_ID, admissions);
+
+        assertEquals(2L, admissions.get(0).getAdmitted().getRequesterId());
+        assertEquals(ConflictException.class, admissions.get(1).getRejection().getClass());
+        assertEquals(ConflictException.class, admissions.get(2).getRejection().getClass());
+    }
+
+    @Test
+    void shouldFailBatchWhenSeatsTakenConcurrently() {
+        when(eventRepo.findById(EVENT_ID)).thenReturn(eventBuilder.requestModeration(false).build());
+        when(eventRepo.reserveSeats(EVENT_ID, 1)).thenReturn(false);
+
+        assertThrows(ConflictException.class, () -> admitter.admit(EVENT_ID, List.of(new Admission(2L, EVENT_ID))));
+        verify(repository, never()).addAll(any());
+    }
+
+    @Test
+    void shouldRejectWhenLimitReached() {
+        when(eventRepo.findById(EVENT_ID)).thenReturn(eventBuilder.confirmedRequests(2).build());
+        Admission admission = new Admission(2L, EVENT_ID);
+
+        admitter.admit(EVENT_ID, List.of(admission));
+
+        assertEquals(ConflictException.class, admission.getRejection().getClass());
+        verify(repository, never()).addAll(any());
+    }
+}
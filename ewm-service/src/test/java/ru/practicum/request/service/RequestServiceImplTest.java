@@ -0,0 +1,151 @@
+package ru.practicum.request.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.error.exceptions.ConflictException;
+import ru.practicum.event.enums.EventState;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.service.EventListingCache;
+import ru.practicum.request.Request;
+import ru.practicum.request.dto.EventRequestStatusUpdateRequest;
+import ru.practicum.request.dto.EventRequestStatusUpdateResult;
+import ru.practicum.request.enums.RequestStatus;
+import ru.practicum.request.repository.RequestRepository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RequestServiceImplTest {
+    private static final long EVENT_ID = 1L;
+    private static final long INITIATOR_ID = 1L;
+    private static final long USER_ID = 2L;
+
+    @Mock
+    private RequestRepository repository;
+    @Mock
+    private EventRepository eventRepo;
+    @Mock
+    private EventListingCache listingCache;
+    @Mock
+    private RequestAdmissionQueue admissionQueue;
+    @InjectMocks
+    private RequestServiceImpl service;
+    private Event.EventBuilder<?, ?> eventBuilder;
+
+    @BeforeEach
+    void setUp() {
+        eventBuilder = Event.builder()
+                .id(EVENT_ID)
+                .initiator(INITIATOR_ID)
+                .eventState(EventState.PUBLISHED)
+                .participantLimit(2)
+                .requestModeration(true);
+    }
+
+    @Test
+    void shouldAddThroughAdmissionQueue() {
+        when(admissionQueue.admit(USER_ID, EVENT_ID)).thenReturn(makeRequest(1L, RequestStatus.PENDING));
+
+        assertEquals(RequestStatus.PENDING, service.add(USER_ID, EVENT_ID).getStatus());
+        verify(admissionQueue).admit(USER_ID, EVENT_ID);
+    }
+
+    @Test
+    void shouldDecrementCounterWhenConfirmedRequestCanceled() {
+        when(repository.findById(1L)).thenReturn(makeRequest(1L, RequestStatus.CONFIRMED));
+        when(repository.cancel(1L)).thenReturn(Optional.of(RequestStatus.CONFIRMED));
+
+        service.cancel(USER_ID, 1L);
+        verify(eventRepo).addConfirmedRequests(EVENT_ID, -1);
+    }
+
+    @Test
+    void shouldDecrementCounterByStatusChangedOnCancel() {
+        //Заявку подтвердили после чтения, но до отмены
+        when(repository.findById(1L)).thenReturn(makeRequest(1L, RequestStatus.PENDING));
+        when(repository.cancel(1L)).thenReturn(Optional.of(RequestStatus.CONFIRMED));
+
+        assertEquals(RequestStatus.CANCELED, service.cancel(USER_ID, 1L).getStatus());
+        verify(eventRepo).addConfirmedRequests(EVENT_ID, -1);
+    }
+
+    @Test
+    void shouldNotDecrementCounterWhenRequestAlreadyCanceled() {
+        when(repository.findById(1L))
+                .thenReturn(makeRequest(1L, RequestStatus.CONFIRMED))
+                .thenReturn(makeRequest(1L, RequestStatus.CANCELED));
+        when(repository.cancel(1L)).thenReturn(Optional.empty());
+
+        assertEquals(RequestStatus.CANCELED, service.cancel(USER_ID, 1L).getStatus());
+        verify(eventRepo, never()).addConfirmedRequests(anyLong(), anyInt());
+    }
+
+    @Test
+    void shouldNotCancelRejectedRequest() {
+        when(repository.findById(1L)).thenReturn(makeRequest(1L, RequestStatus.REJECTED));
+        when(repository.cancel(1L)).thenReturn(Optional.empty());
+
+        assertThrows(ConflictException.class, () -> service.cancel(USER_ID, 1L));
+        verify(eventRepo, never()).addConfirmedRequests(anyLong(), anyInt());
+    }
+
+    @Test
+    void shouldAddOnlyConfirmedUpToLimit() {
+        when(eventRepo.findByIdForUpdate(EVENT_ID)).thenReturn(eventBuilder.confirmedRequests(1).build());
+        when(repository.findByIds(List.of(1L, 2L)))
+                .thenReturn(List.of(makeRequest(1L, RequestStatus.PENDING), makeRequest(2L, RequestStatus.PENDING)));
+        when(repository.updateStatuses(List.of(1L), RequestStatus.CONFIRMED)).thenReturn(1);
+        when(repository.updateStatuses(List.of(2L), RequestStatus.REJECTED)).thenReturn(1);
+
+        EventRequestStatusUpdateResult result = service.updateRequests(INITIATOR_ID, EVENT_ID,
+                EventRequestStatusUpdateRequest.builder()
+                        .status("CONFIRMED")
+                        .requestIds(List.of(1L, 2L))
+                        .build());
+
+        assertEquals(1, result.getConfirmedRequests().size());
+        assertEquals(1, result.getRejectedRequests().size());
+        verify(eventRepo).addConfirmedRequests(EVENT_ID, 1);
+    }
+
+    @Test
+    void shouldFailWhenRequestLeftPendingBeforeConfirmation() {
+        when(eventRepo.findByIdForUpdate(EVENT_ID)).thenReturn(eventBuilder.confirmedRequests(0).build());
+        when(repository.findByIds(List.of(1L, 2L)))
+                .thenReturn(List.of(makeRequest(1L, RequestStatus.PENDING), makeRequest(2L, RequestStatus.PENDING)));
+        //Одну из заявок отменили после чтения
+        when(repository.updateStatuses(List.of(1L, 2L), RequestStatus.CONFIRMED)).thenReturn(1);
+
+        assertThrows(ConflictException.class, () -> service.updateRequests(INITIATOR_ID, EVENT_ID,
+                EventRequestStatusUpdateRequest.builder()
+                        .status("CONFIRMED")
+                        .requestIds(List.of(1L, 2L))
+                        .build()));
+        verify(eventRepo, never()).addConfirmedRequests(anyLong(), anyInt());
+    }
+
+    private Request makeRequest(long id, RequestStatus status) {
+        return Request.builder()
+                .id(id)
+                .eventId(EVENT_ID)
+                .requesterId(USER_ID)
+                .created(Instant.now())
+                .status(status)
+                .build();
+    }
+}
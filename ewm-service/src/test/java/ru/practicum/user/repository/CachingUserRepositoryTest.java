@@ -0,0 +1,85 @@
+package ru.practicum.user.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.error.exceptions.NotFoundException;
+import ru.practicum.user.User;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingUserRepositoryTest {
+    @Mock
+    private UserRepositoryImpl delegate;
+    private CachingUserRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new CachingUserRepository(delegate, new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void shouldLoadOnlyMissingIds() {
+        when(delegate.findById(1L)).thenReturn(makeUser(1L, "Иван"));
+        when(delegate.findByIds(List.of(2L))).thenReturn(List.of(makeUser(2L, "Петр")));
+
+        repository.findById(1L);
+        List<User> users = repository.findByIds(List.of(1L, 2L));
+
+        assertEquals(2, users.size());
+        verify(delegate).findByIds(List.of(2L));
+    }
+
+    @Test
+    void shouldEvictOnDelete() {
+        when(delegate.findByIds(List.of(1L))).thenReturn(List.of(makeUser(1L, "Иван")), List.of());
+
+        repository.findByIds(List.of(1L));
+        repository.deleteById(1L);
+
+        assertTrue(repository.findByIds(List.of(1L)).isEmpty());
+        verify(delegate, times(2)).findByIds(List.of(1L));
+    }
+
+    @Test
+    void shouldEvictOnDeleteEvenIfDeleteFails() {
+        when(delegate.findById(1L)).thenReturn(makeUser(1L, "Иван"));
+        doThrow(new NotFoundException("Пользователь с id 1 не найден")).when(delegate).deleteById(1L);
+
+        repository.findById(1L);
+        assertThrows(NotFoundException.class, () -> repository.deleteById(1L));
+        repository.findById(1L);
+
+        verify(delegate, times(2)).findById(1L);
+    }
+
+    @Test
+    void shouldNotKeepBatchLoadedDuringEviction() {
+        //Пользователя удаляют, пока пакетная загрузка читает его старую версию
+        when(delegate.findByIds(List.of(1L))).thenAnswer(invocation -> {
+            repository.deleteById(1L);
+            return List.of(makeUser(1L, "Иван"));
+        }).thenReturn(List.of());
+
+        repository.findByIds(List.of(1L));
+
+        assertTrue(repository.findByIds(List.of(1L)).isEmpty());
+        verify(delegate, times(2)).findByIds(List.of(1L));
+    }
+
+    private User makeUser(long id, String name) {
+        return User.builder()
+                .id(id)
+                .name(name)
+                .email(name + "@mail.ru")
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ConnectionHoldTimerTest {
+    private SimpleMeterRegistry registry;
+    private Connection connection;
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        registry = new SimpleMeterRegistry();
+        ConnectionHoldTimer holdTimer = new ConnectionHoldTimer(
+                new StaticListableBeanFactory(Map.of("registry", registry)).getBeanProvider(MeterRegistry.class));
+        connection = mock(Connection.class);
+        DataSource target = mock(DataSource.class);
+        when(target.getConnection()).thenReturn(connection);
+        dataSource = (DataSource) holdTimer.postProcessAfterInitialization(target, "dataSource");
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void shouldRecordHoldTimeByEndpoint() throws SQLException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/events/1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/events/{id}");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        try (Connection held = dataSource.getConnection()) {
+            held.setReadOnly(true);
+        }
+
+        verify(connection).setReadOnly(true);
+        verify(connection).close();
+        assertEquals(1, registry.get("ewm.db.connection.hold").tag("endpoint", "GET /events/{id}").timer().count());
+    }
+
+    @Test
+    void shouldRecordBackgroundConnectionOnce() throws SQLException {
+        Connection held = dataSource.getConnection();
+        held.close();
+        held.close();
+
+        assertEquals(1, registry.get("ewm.db.connection.hold").tag("endpoint", "none").timer().count());
+    }
+}
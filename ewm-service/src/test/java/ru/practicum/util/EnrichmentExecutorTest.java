@@ -0,0 +1,127 @@
+package ru.practicum.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.client.exception.StatsRequestException;
+import ru.practicum.error.exceptions.DependencyTimeoutException;
+import ru.practicum.error.exceptions.DependencyUnavailableException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnrichmentExecutorTest {
+    private SimpleMeterRegistry registry;
+    private EnrichmentExecutor executor;
+    private CountDownLatch release;
+
+    @BeforeEach
+    void setUp() {
+        EnrichmentProperties properties = new EnrichmentProperties();
+        properties.setPoolSize(2);
+        properties.setQueueCapacity(1);
+        properties.setTimeout(Duration.ofSeconds(5));
+        properties.getTimeouts().put("slow", Duration.ofMillis(50));
+        registry = new SimpleMeterRegistry();
+        executor = new EnrichmentExecutor(properties, registry);
+        release = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void shouldRunBranchesConcurrently() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CompletableFuture<Boolean> first = executor.submit("first", () -> awaitOther(bothStarted));
+        CompletableFuture<Boolean> second = executor.submit("second", () -> awaitOther(bothStarted));
+
+        assertTrue(executor.join("first", first));
+        assertTrue(executor.join("second", second));
+        assertEquals(1, registry.get("ewm.enrichment.branch").tag("branch", "first").timer().count());
+    }
+
+    @Test
+    void shouldFailBranchAfterItsTimeout() {
+        CompletableFuture<String> slow = executor.submit("slow", this::awaitRelease);
+
+        assertThrows(DependencyTimeoutException.class, () -> executor.join("slow", slow));
+        assertEquals(1, registry.get("ewm.enrichment.timeouts").tag("branch", "slow").counter().count());
+    }
+
+    @Test
+    void shouldRethrowBranchException() {
+        CompletableFuture<String> failed = executor.submit("stats", () -> {
+            throw new StatsRequestException("Ошибка запроса статистики");
+        });
+
+        assertThrows(StatsRequestException.class, () -> executor.join("stats", failed));
+    }
+
+    @Test
+    void shouldRejectBranchWhenQueueIsFull() {
+        executor.submit("busy", this::awaitRelease);
+        executor.submit("busy", this::awaitRelease);
+        executor.submit("queued", this::awaitRelease);
+
+        CompletableFuture<String> overflow = executor.submit("overflow", () -> Thread.currentThread().getName());
+
+        assertTrue(overflow.isCompletedExceptionally());
+        assertThrows(DependencyUnavailableException.class, () -> executor.join("overflow", overflow));
+        assertEquals(1, registry.get("ewm.enrichment.rejected").counter().count());
+        assertNotEquals(0, registry.get("ewm.enrichment.queue.size").gauge().value());
+    }
+
+    @Test
+    void shouldTimeOutBranchWaitingInQueue() {
+        executor.submit("busy", this::awaitRelease);
+        executor.submit("busy", this::awaitRelease);
+
+        CompletableFuture<String> queued = executor.submit("slow", () -> "не выполнится вовремя");
+
+        assertThrows(DependencyTimeoutException.class, () -> executor.join("slow", queued));
+    }
+
+    @Test
+    void shouldFailQueuedAndNewBranchesAfterShutdown() {
+        executor.submit("busy", this::awaitRelease);
+        executor.submit("busy", this::awaitRelease);
+        CompletableFuture<String> queued = executor.submit("queued", this::awaitRelease);
+
+        executor.shutdown();
+        CompletableFuture<String> late = executor.submit("late", () -> "после остановки");
+
+        assertThrows(DependencyUnavailableException.class, () -> executor.join("queued", queued));
+        assertThrows(DependencyUnavailableException.class, () -> executor.join("late", late));
+    }
+
+    private boolean awaitOther(CountDownLatch bothStarted) {
+        bothStarted.countDown();
+        try {
+            return bothStarted.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private String awaitRelease() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Thread.currentThread().getName();
+    }
+}
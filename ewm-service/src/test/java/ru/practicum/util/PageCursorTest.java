@@ -0,0 +1,45 @@
+package ru.practicum.util;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.event.dto.EventFullDto;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.practicum.util.DateTime.toInstant;
+
+class PageCursorTest {
+
+    @Test
+    void shouldEncodeAndDecode() {
+        PageCursor byId = PageCursor.afterId(42L);
+        assertEquals(byId, PageCursor.decode(byId.encode(), false));
+
+        PageCursor byEventDate = PageCursor.afterEventDate(Instant.parse("2023-05-01T10:15:30.123456Z"), 7L);
+        PageCursor decoded = PageCursor.decode(byEventDate.encode(), true);
+        assertEquals(byEventDate, decoded);
+        assertTrue(decoded.isByEventDate());
+
+        assertNull(PageCursor.decode(null, true));
+    }
+
+    @Test
+    void shouldFailDecodeWrongCursor() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("%%%"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(PageCursor.afterId(1L).encode(), true));
+    }
+
+    @Test
+    void shouldMakeNextCursorOnlyForFullPage() {
+        LocalDateTime eventDate = LocalDateTime.of(2023, 5, 1, 10, 0);
+        List<EventFullDto> page = List.of(
+                EventFullDto.builder().id(1L).eventDate(eventDate).build(),
+                EventFullDto.builder().id(2L).eventDate(eventDate).build());
+
+        assertEquals(PageCursor.afterId(2L), PageCursor.next(page, 2, false).orElseThrow());
+        assertEquals(PageCursor.afterEventDate(toInstant(eventDate), 2L), PageCursor.next(page, 2, true).orElseThrow());
+        assertTrue(PageCursor.next(page, 3, false).isEmpty());
+    }
+}
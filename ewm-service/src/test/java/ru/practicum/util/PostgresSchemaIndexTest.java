@@ -0,0 +1,224 @@
+package ru.practicum.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.practicum.event.enums.EventSort;
+import ru.practicum.event.model.Criteria;
+import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.repository.impl.EventRepositoryImpl;
+import ru.practicum.location.model.LocationCriteria;
+import ru.practicum.location.model.SearchArea;
+import ru.practicum.location.repository.LocationRepository;
+import ru.practicum.location.repository.LocationRepositoryImpl;
+import ru.practicum.request.repository.RequestRepository;
+import ru.practicum.request.repository.RequestRepositoryImpl;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Планы запросов репозиториев на PostgreSQL, включая частичные индексы опубликованных событий
+ * и полнотекстовый поиск. События распределены по двум годам: 60% опубликованы, 30% ждут модерации.
+ */
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIf("ru.practicum.util.PostgresDatabase#isAvailable")
+@Import({EventRepositoryImpl.class, RequestRepositoryImpl.class, LocationRepositoryImpl.class,
+        DatabaseDialect.class})
+class PostgresSchemaIndexTest {
+    private static final int USERS = 2_000;
+    private static final int CATEGORIES = 50;
+    private static final int LOCATIONS = 2_000;
+    private static final int EVENTS = 50_000;
+    private static final int REQUESTS = 100_000;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        PostgresDatabase.register(registry);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private EventRepository eventRepo;
+
+    @Autowired
+    private RequestRepository requestRepo;
+
+    @Autowired
+    private LocationRepository locationRepo;
+
+    private LocalDateTime firstDate;
+    private long userId;
+    private long eventId;
+
+    @BeforeEach
+    void setup() {
+        firstDate = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).minusYears(1);
+        jdbcTemplate.update("insert into users (name, email) " +
+                "select 'plans-' || g, 'plans-' || g || '@mail.ru' from generate_series(1, ?) g", USERS);
+        jdbcTemplate.update("insert into categories (name) select 'plans-' || g from generate_series(1, ?) g",
+                CATEGORIES);
+        jdbcTemplate.update("insert into locations (lat, lon, radius) " +
+                "select 40 + (g % 50) * 0.5, 30 + (g / 50) * 0.5, 0 from generate_series(1, ?) g", LOCATIONS);
+        //Без статистики планировщик считает таблицы пустыми и соединяет с ними вложенным циклом
+        jdbcTemplate.execute("analyze users");
+        jdbcTemplate.execute("analyze categories");
+        jdbcTemplate.execute("analyze locations");
+        //Редкое слово «фестиваль» есть в названии каждого тысячного события
+        jdbcTemplate.update("insert into events (annotation, category_id, description, event_date, location_id, " +
+                        "paid, participant_limit, request_moderation, title, initiator, state, published_on, views) " +
+                        "select 'Аннотация события ' || g, c.id, 'Описание события ' || g, " +
+                        "?::timestamp + (g % 730) * interval '1 day', l.id, false, 0, false, " +
+                        "case when g % 1000 = 0 then 'Фестиваль ' || g else 'Встреча ' || g end, u.id, " +
+                        "case when g % 10 < 6 then 'PUBLISHED' when g % 10 < 9 then 'PENDING' else 'CANCELED' end, " +
+                        "case when g % 10 < 6 then ?::timestamp end, g % 5000 " +
+                        "from generate_series(1, ?) g " +
+                        "join categories c on c.name = 'plans-' || (g % ? + 1) " +
+                        "join locations l on l.lat = 40 + ((g % ? + 1) % 50) * 0.5 " +
+                        "and l.lon = 30 + ((g % ? + 1) / 50) * 0.5 " +
+                        "join users u on u.name = 'plans-' || (g % ? + 1)",
+                firstDate.toString(), firstDate.minusDays(1).toString(), EVENTS, CATEGORIES, LOCATIONS, LOCATIONS, USERS);
+        jdbcTemplate.execute("analyze events");
+        jdbcTemplate.update("insert into requests (event_id, requester_id, status) " +
+                        "select e.id, u.id, case when g % 3 = 0 then 'CONFIRMED' else 'PENDING' end " +
+                        "from generate_series(1, ?) g " +
+                        "join events e on e.title = 'Встреча ' || (g % ? + 1) " +
+                        "join users u on u.name = 'plans-' || (g / 50 % ? + 1)",
+                REQUESTS, EVENTS, USERS);
+        jdbcTemplate.execute("analyze requests");
+        userId = jdbcTemplate.queryForObject("select id from users where name = 'plans-42'", Long.class);
+        eventId = jdbcTemplate.queryForObject("select event_id from requests limit 1", Long.class);
+    }
+
+    @Test
+    void shouldUsePublishedEventDateIndexForPublicEvents() {
+        assertThat(explain(() -> eventRepo.getByCriteria(Criteria.builder()
+                .published(true)
+                .start(DateTime.toInstant(firstDate.plusMonths(6)))
+                .sort(EventSort.EVENT_DATE)
+                .size(10)
+                .build())))
+                .singleElement().asString()
+                .contains("ix_events_published_event_date_id")
+                .doesNotContain("Seq Scan on events");
+    }
+
+    @Test
+    void shouldUsePublishedViewsIndexForViewsSort() {
+        assertThat(explain(() -> eventRepo.getByCriteria(Criteria.builder()
+                .published(true)
+                .sort(EventSort.VIEWS)
+                .size(10)
+                .build())))
+                .singleElement().asString()
+                .contains("ix_events_published_views_id")
+                .doesNotContain("Seq Scan on events");
+    }
+
+    @Test
+    void shouldUseSearchVectorIndexForText() {
+        assertThat(explain(() -> eventRepo.getByCriteria(Criteria.builder()
+                .published(true)
+                .text("фестиваль")
+                .sort(EventSort.RELEVANCE)
+                .size(10)
+                .build())))
+                .singleElement().asString()
+                .contains("ix_events_search_vector")
+                .doesNotContain("Seq Scan on events");
+    }
+
+    @Test
+    void shouldUseLocationIndexAfterAreaSearch() {
+        SearchArea area = SearchArea.builder().lat(45f).lon(35f).radius(50).build();
+        //Расстояние вычисляется функцией, индекса для него нет: просматривается только небольшая таблица мест
+        assertThat(explain(() -> locationRepo.getByCriteria(LocationCriteria.builder()
+                .searchArea(area)
+                .size(100)
+                .build())))
+                .singleElement().asString()
+                .contains("on locations")
+                .doesNotContain("events");
+
+        List<Long> locationIds = jdbcTemplate.queryForList("select id from locations order by id limit 3",
+                Long.class);
+        assertThat(explain(() -> eventRepo.getByCriteria(Criteria.builder()
+                .published(true)
+                .locationIds(locationIds)
+                .size(10)
+                .build())))
+                .singleElement().asString()
+                .contains("ix_events_location_id")
+                .doesNotContain("Seq Scan on events");
+    }
+
+    @Test
+    void shouldUseStateIndexForAdminEvents() {
+        assertThat(explain(() -> eventRepo.getByCriteria(Criteria.builder()
+                .states(List.of("PENDING"))
+                .start(DateTime.toInstant(firstDate.plusMonths(3)))
+                .end(DateTime.toInstant(firstDate.plusMonths(3).plusDays(2)))
+                .size(10)
+                .build())))
+                .singleElement().asString()
+                .contains("ix_events_state_event_date")
+                .doesNotContain("Seq Scan on events");
+    }
+
+    @Test
+    void shouldUseInitiatorIndex() {
+        assertThat(explain(() -> eventRepo.findByInitiatorId(userId, PageCursor.afterId(0), 0, 10)))
+                .singleElement().asString()
+                .contains("ix_events_initiator_id")
+                .doesNotContain("Seq Scan on events");
+    }
+
+    @Test
+    void shouldUsePublishedIndexForViewsSync() {
+        Instant now = DateTime.toInstant(firstDate.plusYears(1));
+        assertThat(explain(() -> eventRepo.findUpcomingPublishedAfterId(now, 0, 200)))
+                .singleElement().asString()
+                .containsPattern("ix_events_published_(id|event_date_id)")
+                .doesNotContain("Seq Scan on events");
+    }
+
+    @Test
+    void shouldUseEventIndexForRequests() {
+        assertThat(explain(() -> requestRepo.findByEventId(eventId)))
+                .singleElement().asString()
+                .contains("ix_requests_event_id_status")
+                .doesNotContain("Seq Scan on requests");
+        List<Long> requesterIds = jdbcTemplate.queryForList("select id from users order by id limit 2", Long.class);
+        assertThat(explain(() -> requestRepo.findRequesterIdsByEventId(eventId, requesterIds)))
+                .singleElement().asString()
+                .containsPattern("(ix_requests_event_id_status|uq_requester_id_by_event_id)")
+                .doesNotContain("Seq Scan on requests");
+        assertThat(explain(() -> requestRepo.getAllByRequesterId(userId)))
+                .singleElement().asString()
+                .contains("uq_requester_id_by_event_id")
+                .doesNotContain("Seq Scan on requests");
+    }
+
+    private List<String> explain(Runnable repositoryCall) {
+        return QueryPlans.explain(namedJdbcTemplate, repositoryCall);
+    }
+}
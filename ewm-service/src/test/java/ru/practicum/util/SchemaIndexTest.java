@@ -0,0 +1,157 @@
+package ru.practicum.util;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.practicum.compilation.repository.CompilationRepository;
+import ru.practicum.compilation.repository.impl.CompilationRepositoryImpl;
+import ru.practicum.event.enums.EventSort;
+import ru.practicum.event.model.Criteria;
+import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.repository.impl.EventRepositoryImpl;
+import ru.practicum.request.repository.RequestRepository;
+import ru.practicum.request.repository.RequestRepositoryImpl;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+ * Планы запросов репозиториев на H2. Частичные индексы опубликованных событий, сортировка по просмотрам
+ * и полнотекстовый поиск есть только в PostgreSQL и проверяются в PostgresSchemaIndexTest.
+ */
+@JdbcTest
+@Import({EventRepositoryImpl.class, RequestRepositoryImpl.class, CompilationRepositoryImpl.class,
+        DatabaseDialect.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class SchemaIndexTest {
+    private static final String TABLE_SCAN = "tableScan";
+    private static final Instant START = Instant.parse("2023-01-01T00:00:00Z");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EventRepository eventRepo;
+    private final RequestRepository requestRepo;
+    private final CompilationRepository compilationRepo;
+
+    @SpyBean
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Test
+    void shouldUseStateIndexForPublicEvents() {
+        assertThat(explain(() -> eventRepo.getByCriteria(Criteria.builder()
+                .published(true)
+                .start(START)
+                .sort(EventSort.EVENT_DATE)
+                .size(10)
+                .build())))
+                .singleElement().asString()
+                .containsIgnoringCase("IX_EVENTS_STATE_EVENT_DATE")
+                .doesNotContain(TABLE_SCAN);
+
+        assertThat(explain(() -> eventRepo.findUpcomingPublishedAfterId(START, 0, 200)))
+                .singleElement().asString()
+                .containsIgnoringCase("IX_EVENTS_STATE_EVENT_DATE");
+    }
+
+    @Test
+    void shouldUseStateIndexForAdminEvents() {
+        assertThat(explain(() -> eventRepo.getByCriteria(Criteria.builder()
+                .states(List.of("PENDING", "CANCELED"))
+                .size(10)
+                .build())))
+                .singleElement().asString()
+                .containsIgnoringCase("IX_EVENTS_STATE_EVENT_DATE");
+    }
+
+    @Test
+    void shouldUseEventDateIndexForCursor() {
+        assertThat(explain(() -> eventRepo.getByCriteria(Criteria.builder()
+                .sort(EventSort.EVENT_DATE)
+                .cursor(PageCursor.afterEventDate(START, 5))
+                .size(10)
+                .build())))
+                .singleElement().asString()
+                .containsIgnoringCase("IX_EVENTS_EVENT_DATE_ID");
+    }
+
+    @Test
+    void shouldUseInitiatorIndex() {
+        assertThat(explain(() -> eventRepo.findByInitiatorId(1, PageCursor.afterId(5), 0, 10)))
+                .singleElement().asString()
+                .containsIgnoringCase("IX_EVENTS_INITIATOR_ID");
+
+        assertThat(explain(() -> eventRepo.getByCriteria(Criteria.builder()
+                .users(List.of(1L, 2L))
+                .states(List.of("PENDING"))
+                .size(10)
+                .build())))
+                .singleElement().asString()
+                .doesNotContain(TABLE_SCAN);
+    }
+
+    @Test
+    void shouldUseIndexesForCategoryAndLocationFilters() {
+        assertThat(explain(() -> eventRepo.getByCriteria(Criteria.builder()
+                .published(true)
+                .categories(List.of(1L, 2L))
+                .size(10)
+                .build())))
+                .singleElement().asString()
+                .doesNotContain(TABLE_SCAN);
+        assertThat(explain(() -> eventRepo.countEventsByCategoryId(1)))
+                .singleElement().asString()
+                .doesNotContain(TABLE_SCAN);
+        assertThat(explain(() -> eventRepo.getByCriteria(Criteria.builder()
+                .locationIds(List.of(1L, 2L))
+                .size(10)
+                .build())))
+                .singleElement().asString()
+                .doesNotContain(TABLE_SCAN);
+        assertThat(explain(() -> eventRepo.countEventsByLocationId(1)))
+                .singleElement().asString()
+                .doesNotContain(TABLE_SCAN);
+    }
+
+    @Test
+    void shouldUseIndexesForRequests() {
+        assertThat(explain(() -> requestRepo.getAllByRequesterId(1)))
+                .singleElement().asString()
+                .doesNotContain(TABLE_SCAN);
+        assertThat(explain(() -> requestRepo.findByEventId(1)))
+                .singleElement().asString()
+                .doesNotContain(TABLE_SCAN);
+        assertThat(explain(() -> requestRepo.findRequesterIdsByEventId(1, List.of(1L, 2L))))
+                .singleElement().asString()
+                .doesNotContain(TABLE_SCAN);
+    }
+
+    @Test
+    void shouldUseIndexesForCompilations() {
+        assertThat(explain(() -> compilationRepo.getByParams(true, 0, 10)))
+                .singleElement().asString()
+                .containsIgnoringCase("IX_COMPILATIONS_PINNED_ID");
+        assertThat(explain(() -> compilationRepo.findEventIdsByCompIds(List.of(1L, 2L))))
+                .singleElement().asString()
+                .doesNotContain(TABLE_SCAN);
+    }
+
+    @Test
+    void shouldProvideDistanceFunction() {
+        Double distance = jdbcTemplate.queryForObject("select distance(55.75, 37.62, 55.75, 37.62)", Double.class);
+        assertEquals(0, distance);
+
+        distance = jdbcTemplate.queryForObject("select distance(55.75, 37.62, 59.94, 30.31)", Double.class);
+        assertEquals(GeoDistance.distance(55.75, 37.62, 59.94, 30.31), distance, 0.001);
+    }
+
+    private List<String> explain(Runnable repositoryCall) {
+        return QueryPlans.explain(namedJdbcTemplate, repositoryCall);
+    }
+}
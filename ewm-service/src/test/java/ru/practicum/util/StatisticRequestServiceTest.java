@@ -0,0 +1,169 @@
+package ru.practicum.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.client.StatsClient;
+import ru.practicum.client.exception.StatsRequestException;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.event.enums.EventState;
+import ru.practicum.event.model.Event;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatisticRequestServiceTest {
+    @Mock
+    private StatsClient client;
+    private SimpleMeterRegistry registry;
+    private ViewCounterFeed feed;
+    private StatisticRequestService service;
+    private Event first;
+    private Event second;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        feed = new ViewCounterFeed(client, false, Duration.ofSeconds(1));
+        service = new StatisticRequestService(client, feed, registry, 100, Duration.ofMinutes(1));
+        first = makeEvent(1L, EventState.PUBLISHED);
+        second = makeEvent(2L, EventState.PUBLISHED);
+    }
+
+    @Test
+    void shouldServeRepeatedRequestsFromCache() {
+        when(client.getStatistics(any(), any(), eq(List.of("/events/1")), anyBoolean()))
+                .thenReturn(List.of(makeViewStats(1L, 5)));
+
+        List<ViewStatsDto> firstResult = service.makeStatRequest(List.of(first));
+        List<ViewStatsDto> secondResult = service.makeStatRequest(List.of(first));
+
+        assertEquals(1, secondResult.size());
+        assertEquals(firstResult.get(0).getHits(), secondResult.get(0).getHits());
+        verify(client, times(1)).getStatistics(any(), any(), any(), anyBoolean());
+        assertEquals(2, registry.get("stats.views.cache.staleness").timer().count());
+    }
+
+    @Test
+    void shouldRequestOnlyMissingIds() {
+        when(client.getStatistics(any(), any(), eq(List.of("/events/1")), anyBoolean()))
+                .thenReturn(List.of(makeViewStats(1L, 5)));
+        when(client.getStatistics(any(), any(), eq(List.of("/events/2")), anyBoolean()))
+                .thenReturn(Collections.emptyList());
+
+        service.makeStatRequest(List.of(first));
+        List<ViewStatsDto> result = service.makeStatRequest(List.of(first, second));
+
+        assertEquals(1, result.size());
+        assertEquals("/events/1", result.get(0).getUri());
+        verify(client, times(2)).getStatistics(any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void shouldSkipNotPublishedEvents() {
+        List<ViewStatsDto> result = service.makeStatRequest(List.of(makeEvent(3L, EventState.PENDING)));
+
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void shouldNotCacheFailedRequest() {
+        when(client.getStatistics(any(), any(), any(), anyBoolean()))
+                .thenThrow(new StatsRequestException("Ошибка запроса статистики"))
+                .thenReturn(List.of(makeViewStats(1L, 3)));
+
+        assertThrows(StatsRequestException.class, () -> service.makeStatRequest(List.of(first)));
+        List<ViewStatsDto> result = service.makeStatRequest(List.of(first));
+
+        assertEquals(3, result.get(0).getHits());
+    }
+
+    @Test
+    void shouldServeFromFeedWhenConnected() {
+        feed.onSnapshot(List.of(makeViewStats(1L, 7), makeViewStats(2L, 2)));
+        feed.onViews(List.of(makeViewStats(2L, 3)));
+
+        List<ViewStatsDto> result = service.makeStatRequest(List.of(first, second));
+
+        assertEquals(2, result.size());
+        assertEquals(7, findHits(result, 1L));
+        assertEquals(3, findHits(result, 2L));
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void shouldLowerFeedCountersAfterRetention() {
+        feed.onSnapshot(List.of(makeViewStats(1L, 7), makeViewStats(2L, 2)));
+        feed.onViews(List.of(makeViewStats(1L, 6)));
+        //Новый снимок без события 2: его посетители удалены вместе с устаревшими данными
+        feed.onSnapshot(List.of(makeViewStats(1L, 5)));
+
+        List<ViewStatsDto> result = service.makeStatRequest(List.of(first, second));
+
+        assertEquals(1, result.size());
+        assertEquals(5, findHits(result, 1L));
+    }
+
+    @Test
+    void shouldStartHourBeforeEarliestPublication() {
+        Instant publishedOn = Instant.parse("2024-03-01T10:00:00Z");
+        first.setPublishedOn(publishedOn.plusSeconds(3600));
+        second.setPublishedOn(publishedOn);
+        when(client.getStatistics(any(), any(), anyList(), anyBoolean())).thenReturn(Collections.emptyList());
+
+        service.makeStatRequest(List.of(first, second));
+
+        verify(client).getStatistics(eq(DateTime.toLocalDateTime(publishedOn).minusHours(1)), any(), anyList(),
+                eq(true));
+    }
+
+    @Test
+    void shouldCountAllHistoryWhenPublicationIsUnknown() {
+        //Просмотры события по id запрашиваются до чтения самого события
+        Event byId = Event.builder().id(3L).eventState(EventState.PUBLISHED).build();
+        when(client.getStatistics(any(), any(), anyList(), anyBoolean())).thenReturn(Collections.emptyList());
+
+        service.makeStatRequest(List.of(byId));
+
+        verify(client).getStatistics(eq(StatisticRequestService.UNKNOWN_PUBLICATION_START), any(), anyList(),
+                eq(true));
+    }
+
+    private long findHits(List<ViewStatsDto> viewStats, long eventId) {
+        return viewStats.stream()
+                .filter(viewStatsDto -> viewStatsDto.getUri().equals("/events/" + eventId))
+                .findFirst()
+                .orElseThrow()
+                .getHits();
+    }
+
+    private Event makeEvent(long id, EventState state) {
+        return Event.builder()
+                .id(id)
+                .eventState(state)
+                .publishedOn(state == EventState.PUBLISHED ? Instant.now() : null)
+                .build();
+    }
+
+    private ViewStatsDto makeViewStats(long eventId, long hits) {
+        return ViewStatsDto.builder()
+                .app("ewm-main-service")
+                .uri("/events/" + eventId)
+                .hits(hits)
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package ru.practicum.util;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@JdbcTest
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class TaskLeaseTest {
+    private static final String LEASE = "event-views-sync";
+    private static final Duration LEASE_TIME = Duration.ofMinutes(3);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Test
+    void shouldGrantLeaseToOneInstance() {
+        TaskLease first = new TaskLease(namedJdbcTemplate, "first");
+        TaskLease second = new TaskLease(namedJdbcTemplate, "second");
+
+        assertTrue(first.tryAcquire(LEASE, LEASE_TIME));
+        assertFalse(second.tryAcquire(LEASE, LEASE_TIME));
+        //Владелец продлевает аренду при каждом запуске
+        assertTrue(first.tryAcquire(LEASE, LEASE_TIME));
+        assertFalse(second.tryAcquire(LEASE, LEASE_TIME));
+    }
+
+    @Test
+    void shouldPassExpiredLeaseToAnotherInstance() {
+        TaskLease first = new TaskLease(namedJdbcTemplate, "first");
+        TaskLease second = new TaskLease(namedJdbcTemplate, "second");
+        assertTrue(first.tryAcquire(LEASE, LEASE_TIME));
+
+        jdbcTemplate.update("update task_leases set locked_until = timestamp '2001-01-01 00:00:00' where name = ?",
+                LEASE);
+
+        assertTrue(second.tryAcquire(LEASE, LEASE_TIME));
+        assertFalse(first.tryAcquire(LEASE, LEASE_TIME));
+    }
+
+    @Test
+    void shouldNotGrantUnknownLease() {
+        assertFalse(new TaskLease(namedJdbcTemplate, "first").tryAcquire("unknown", LEASE_TIME));
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextSearchTest {
+
+    @Test
+    void shouldTokenizeText() {
+        assertEquals(List.of("джаз", "concert", "2023"), TextSearch.tokenize("  Джаз, CONCERT-2023! "));
+        assertTrue(TextSearch.tokenize(null).isEmpty());
+        assertTrue(TextSearch.tokenize(" ,.:'&| ").isEmpty());
+    }
+
+    @Test
+    void shouldMakePrefixQuery() {
+        assertEquals("джаз:* & concert:*", TextSearch.toPrefixQuery(List.of("джаз", "concert")));
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionTagTest {
+
+    @Test
+    void shouldParseIfMatch() {
+        assertEquals(5L, VersionTag.fromIfMatch(VersionTag.toETag(5L)));
+        assertEquals(5L, VersionTag.fromIfMatch("W/\"5\""));
+        assertNull(VersionTag.fromIfMatch(null));
+        assertNull(VersionTag.fromIfMatch("*"));
+    }
+
+    @Test
+    void shouldFailParseWrongIfMatch() {
+        assertThrows(IllegalArgumentException.class, () -> VersionTag.fromIfMatch("\"abc\""));
+    }
+}
@@ -50,4 +50,12 @@ public interface StatsClient {
                                      Boolean unique);
 
     void addEndPointHit(@Valid EndpointHitDto endpointHitDto);
-}
\ No newline at end of file
+
+    void addEndPointHits(@NotNull(message = "Отсутствует список просмотров")
+                         List<@Valid EndpointHitDto> endpointHitDtos);
+
+    List<ViewStatsDto> getViewCounters(@NotNull(message = "Отсутствует название сервиса") String app);
+
+    void streamViewCounters(@NotNull(message = "Отсутствует название сервиса") String app,
+                            @NotNull(message = "Отсутствует обработчик счетчиков") ViewCountersListener listener);
+}
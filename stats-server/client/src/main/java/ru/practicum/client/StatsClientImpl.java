@@ -1,9 +1,11 @@
 package ru.practicum.client;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
@@ -14,6 +16,10 @@ import ru.practicum.client.exception.StatsRequestException;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.ViewStatsDto;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
@@ -29,19 +35,39 @@ import static ru.practicum.validation.Validation.validateDates;
 @Validated
 public class StatsClientImpl implements StatsClient {
     private static final String PATH_HIT = "/hit";
+    private static final String PATH_HITS = "/hits";
     private static final String PATH_STATS_WITH_DATE_PARAMS = "/stats?start={start}&end={end}";
     private static final String PARAM_UNIQUE = "&unique={unique}";
     private static final String PARAM_URIS = "&uris={uris}";
-    private static final String SERVER_URL = "http://stats-server:9090";
+    private static final String PATH_VIEWS = "/views?app={app}";
+    private static final String PATH_VIEWS_STREAM = "/views/stream?app={app}";
+    private static final String EVENT_SNAPSHOT = "snapshot";
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private final RestTemplate rest;
+    //Поток счетчиков читается отдельным клиентом: его таймаут чтения ограничивает паузу между heartbeat
+    private final RestTemplate streamRest;
+    private final ObjectMapper mapper = new ObjectMapper();
 
-    public StatsClientImpl() {
+    public StatsClientImpl(StatsClientProperties properties) {
         rest = new RestTemplateBuilder()
-                .uriTemplateHandler(new DefaultUriBuilderFactory(SERVER_URL))
-                .requestFactory(HttpComponentsClientHttpRequestFactory::new)
+                .uriTemplateHandler(new DefaultUriBuilderFactory(properties.getServerUrl()))
+                .requestFactory(() -> makeRequestFactory(properties))
+                .setConnectTimeout(properties.getConnectTimeout())
+                .setReadTimeout(properties.getReadTimeout())
                 .build();
+        streamRest = new RestTemplateBuilder()
+                .uriTemplateHandler(new DefaultUriBuilderFactory(properties.getServerUrl()))
+                .requestFactory(() -> makeRequestFactory(properties))
+                .setConnectTimeout(properties.getConnectTimeout())
+                .setReadTimeout(properties.getStreamIdleTimeout())
+                .build();
+    }
+
+    private static HttpComponentsClientHttpRequestFactory makeRequestFactory(StatsClientProperties properties) {
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory();
+        factory.setConnectionRequestTimeout((int) properties.getConnectTimeout().toMillis());
+        return factory;
     }
 
     @Override
@@ -55,6 +81,20 @@ public class StatsClientImpl implements StatsClient {
         }
     }
 
+    @Override
+    public void addEndPointHits(List<EndpointHitDto> endpointHitDtos) {
+        if (endpointHitDtos.isEmpty()) {
+            return;
+        }
+        HttpEntity<List<EndpointHitDto>> request = new HttpEntity<>(endpointHitDtos);
+        ResponseEntity<Void> response = rest.exchange(PATH_HITS, HttpMethod.POST,
+                request, Void.class);
+        HttpStatus code = response.getStatusCode();
+        if (code != HttpStatus.CREATED) {
+            throw new StatsRequestException("Ошибка при сохранении данных: " + response.getBody());
+        }
+    }
+
     @Override
     public List<ViewStatsDto> getStatistics(LocalDateTime start,
                                             LocalDateTime end,
@@ -95,6 +135,53 @@ public class StatsClientImpl implements StatsClient {
         return sendGetRequest(url, parameters);
     }
 
+    @Override
+    public List<ViewStatsDto> getViewCounters(String app) {
+        return sendGetRequest(PATH_VIEWS, Map.of("app", app));
+    }
+
+    @Override
+    public void streamViewCounters(String app, ViewCountersListener listener) {
+        try {
+            streamRest.execute(PATH_VIEWS_STREAM, HttpMethod.GET,
+                    request -> request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM)),
+                    response -> {
+                        readEvents(response.getBody(), listener);
+                        return null;
+                    },
+                    Map.of("app", app));
+        } catch (RuntimeException e) {
+            throw new StatsRequestException("Поток счетчиков просмотров прерван: " + e.getMessage());
+        }
+    }
+
+    //Heartbeat-комментарии пропускаются, но каждая строка продлевает таймаут чтения
+    void readEvents(InputStream body, ViewCountersListener listener) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        StringBuilder data = new StringBuilder();
+        String name = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                //Пустая строка завершает событие
+                if (data.length() > 0) {
+                    List<ViewStatsDto> counters = Arrays.asList(mapper.readValue(data.toString(), ViewStatsDto[].class));
+                    if (EVENT_SNAPSHOT.equals(name)) {
+                        listener.onSnapshot(counters);
+                    } else {
+                        listener.onViews(counters);
+                    }
+                }
+                data.setLength(0);
+                name = null;
+            } else if (line.startsWith("event:")) {
+                name = line.substring("event:".length()).trim();
+            } else if (line.startsWith("data:")) {
+                data.append(line.substring("data:".length()).trim());
+            }
+        }
+    }
+
     private Map<String, Object> addDateParameters(LocalDateTime start, LocalDateTime end) {
         validateDates(start, end);
         String startEncoded = encodeDate(start);
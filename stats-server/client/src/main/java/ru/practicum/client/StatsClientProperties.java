@@ -0,0 +1,21 @@
+package ru.practicum.client;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "stats.client")
+@Getter
+@Setter
+public class StatsClientProperties {
+    private String serverUrl = "http://stats-server:9090";
+    //Ограничивают и ожидание свободного соединения из пула, и установку соединения
+    private Duration connectTimeout = Duration.ofSeconds(1);
+    private Duration readTimeout = Duration.ofSeconds(3);
+    //Сервер шлет heartbeat раз в stats.views.stream.heartbeat, без данных дольше этого поток считается оборванным
+    private Duration streamIdleTimeout = Duration.ofSeconds(45);
+}
@@ -0,0 +1,13 @@
+package ru.practicum.client;
+
+import ru.practicum.dto.ViewStatsDto;
+
+import java.util.List;
+
+public interface ViewCountersListener {
+    //Все счетчики сервиса: заменяют полученные ранее
+    void onSnapshot(List<ViewStatsDto> counters);
+
+    //Новые значения изменившихся счетчиков
+    void onViews(List<ViewStatsDto> counters);
+}
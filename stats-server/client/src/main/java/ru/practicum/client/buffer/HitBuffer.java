@@ -0,0 +1,150 @@
+package ru.practicum.client.buffer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.client.StatsClient;
+import ru.practicum.dto.EndpointHitDto;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@Slf4j
+public class HitBuffer {
+    private final StatsClient client;
+    private final HitBufferProperties properties;
+    private final BlockingQueue<EndpointHitDto> queue;
+    private final Counter dropped;
+    private final Counter sent;
+    private final Timer flushTimer;
+    private final ScheduledExecutorService executor;
+    //Пакет, ожидающий повторной отправки; используется только потоком отправки
+    private PendingBatch pending;
+    private volatile boolean stopping;
+
+    public HitBuffer(StatsClient client, HitBufferProperties properties, MeterRegistry registry) {
+        this.client = client;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getCapacity());
+        Gauge.builder("stats.client.buffer.size", queue, BlockingQueue::size).register(registry);
+        this.dropped = registry.counter("stats.client.buffer.dropped");
+        this.sent = registry.counter("stats.client.buffer.sent");
+        this.flushTimer = registry.timer("stats.client.buffer.flush");
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-hit-buffer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = properties.getFlushInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void add(EndpointHitDto endpointHitDto) {
+        addAll(List.of(endpointHitDto));
+    }
+
+    public void addAll(List<EndpointHitDto> endpointHitDtos) {
+        for (EndpointHitDto hitDto : endpointHitDtos) {
+            if (!queue.offer(hitDto)) {
+                dropped.increment();
+                log.warn("Буфер просмотров переполнен, просмотр {} пользователем {} не будет записан",
+                        hitDto.getUri(), hitDto.getIp());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopping = true;
+        executor.shutdown();
+        if (executor.awaitTermination(properties.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            //Последняя попытка без повторов: сервис останавливается и ждать отката не будет
+            flush();
+        } else {
+            executor.shutdownNow();
+            log.warn("Отправка просмотров не завершилась за {}", properties.getShutdownTimeout());
+        }
+        if (!queue.isEmpty()) {
+            dropped.increment(queue.size());
+            log.warn("Не отправлено {} просмотров при остановке сервиса", queue.size());
+        }
+    }
+
+    /*
+     * Повторная отправка не блокирует поток: неудачный пакет откладывается до срока следующей попытки,
+     * а новые пакеты не отправляются, пока он не уйдет. Во время недоступности сервиса статистики
+     * просмотры копятся в очереди и отбрасываются при ее переполнении.
+     */
+    void flush() {
+        if (pending != null) {
+            if (!stopping && System.nanoTime() < pending.nextAttemptAt) {
+                return;
+            }
+            if (!send(pending.batch)) {
+                retryLater(pending.batch, pending.attempt + 1);
+                return;
+            }
+            pending = null;
+        }
+        while (!queue.isEmpty()) {
+            List<EndpointHitDto> batch = new ArrayList<>(properties.getBatchSize());
+            queue.drainTo(batch, properties.getBatchSize());
+            if (!send(batch)) {
+                retryLater(batch, 1);
+                return;
+            }
+        }
+    }
+
+    private boolean send(List<EndpointHitDto> batch) {
+        long start = System.nanoTime();
+        try {
+            client.addEndPointHits(batch);
+            sent.increment(batch.size());
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Не удалось отправить {} просмотров: {}", batch.size(), e.getMessage());
+            return false;
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void retryLater(List<EndpointHitDto> batch, int attempt) {
+        if (stopping || attempt >= properties.getMaxAttempts()) {
+            pending = null;
+            drop(batch);
+            return;
+        }
+        long backoff = properties.getRetryBackoff().toNanos() << (attempt - 1);
+        pending = new PendingBatch(batch, attempt, System.nanoTime() + backoff);
+    }
+
+    private void drop(List<EndpointHitDto> batch) {
+        dropped.increment(batch.size());
+        log.error("Не удалось отправить {} просмотров в сервис статистики", batch.size());
+    }
+
+    @AllArgsConstructor
+    private static class PendingBatch {
+        private final List<EndpointHitDto> batch;
+        private final int attempt;
+        private final long nextAttemptAt;
+    }
+}
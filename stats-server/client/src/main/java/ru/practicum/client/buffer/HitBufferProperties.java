@@ -0,0 +1,21 @@
+package ru.practicum.client.buffer;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "stats.client.buffer")
+@Getter
+@Setter
+public class HitBufferProperties {
+    private int capacity = 10_000;
+    private int batchSize = 200;
+    private Duration flushInterval = Duration.ofMillis(500);
+    private int maxAttempts = 3;
+    private Duration retryBackoff = Duration.ofMillis(200);
+    private Duration shutdownTimeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,161 @@
+package ru.practicum.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.client.exception.StatsRequestException;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsClientImplTest {
+    private static final String SNAPSHOT = "event:snapshot\n" +
+            "data:[{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"hits\":3}]\n\n";
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private StatsClientProperties properties;
+    private RecordingListener listener;
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() {
+        properties = new StatsClientProperties();
+        listener = new RecordingListener();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void shouldDispatchSnapshotAndChangedCounters() throws IOException {
+        String stream = SNAPSHOT +
+                ":heartbeat\n\n" +
+                "event:views\n" +
+                "data:[{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"hits\":2}," +
+                "{\"app\":\"ewm-main-service\",\"uri\":\"/events/2\",\"hits\":1}]\n\n";
+
+        new StatsClientImpl(properties).readEvents(toStream(stream), listener);
+
+        assertEquals(1, listener.snapshots.size());
+        assertEquals(3, listener.snapshots.get(0).get(0).getHits());
+        assertEquals(1, listener.views.size());
+        assertEquals(2, listener.views.get(0).size());
+        assertEquals("/events/2", listener.views.get(0).get(1).getUri());
+        //Уменьшившееся значение передается как есть
+        assertEquals(2, listener.views.get(0).get(0).getHits());
+    }
+
+    @Test
+    void shouldJoinMultilineDataAndIgnoreCommentsBetweenEvents() throws IOException {
+        String stream = ":heartbeat\n\n" +
+                "event:views\n" +
+                "data:[{\"app\":\"ewm-main-service\",\n" +
+                "data:\"uri\":\"/events/5\",\"hits\":4}]\n\n" +
+                ":heartbeat\n\n";
+
+        new StatsClientImpl(properties).readEvents(toStream(stream), listener);
+
+        assertTrue(listener.snapshots.isEmpty());
+        assertEquals(1, listener.views.size());
+        assertEquals("/events/5", listener.views.get(0).get(0).getUri());
+    }
+
+    @Test
+    void shouldNotCarryEventNameIntoNextEvent() throws IOException {
+        String stream = "event:snapshot\n\n" +
+                "data:[{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"hits\":1}]\n\n";
+
+        new StatsClientImpl(properties).readEvents(toStream(stream), listener);
+
+        assertTrue(listener.snapshots.isEmpty());
+        assertEquals(1, listener.views.size());
+    }
+
+    @Test
+    void shouldBreakStreamWithoutHeartbeats() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/views/stream", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream body = exchange.getResponseBody();
+            body.write(SNAPSHOT.getBytes(StandardCharsets.UTF_8));
+            body.flush();
+            try {
+                //Сервер завис: соединение открыто, но heartbeat не приходит
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.start();
+        properties.setServerUrl("http://localhost:" + server.getAddress().getPort());
+        properties.setStreamIdleTimeout(Duration.ofMillis(300));
+        StatsClientImpl client = new StatsClientImpl(properties);
+
+        long start = System.nanoTime();
+        assertThrows(StatsRequestException.class, () -> client.streamViewCounters("ewm-main-service", listener));
+
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+        assertEquals(1, listener.snapshots.size());
+    }
+
+    @Test
+    void shouldFailStatsRequestAfterReadTimeout() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/views", exchange -> {
+            try {
+                //Сервер принял соединение, но не отвечает
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.start();
+        properties.setServerUrl("http://localhost:" + server.getAddress().getPort());
+        properties.setReadTimeout(Duration.ofMillis(300));
+        StatsClientImpl client = new StatsClientImpl(properties);
+
+        long start = System.nanoTime();
+        assertThrows(StatsRequestException.class, () -> client.getViewCounters("ewm-main-service"));
+
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+    }
+
+    private ByteArrayInputStream toStream(String stream) {
+        return new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class RecordingListener implements ViewCountersListener {
+        private final List<List<ViewStatsDto>> snapshots = new ArrayList<>();
+        private final List<List<ViewStatsDto>> views = new ArrayList<>();
+
+        @Override
+        public void onSnapshot(List<ViewStatsDto> counters) {
+            snapshots.add(counters);
+        }
+
+        @Override
+        public void onViews(List<ViewStatsDto> counters) {
+            views.add(counters);
+        }
+    }
+}
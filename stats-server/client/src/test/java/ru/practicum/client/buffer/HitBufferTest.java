@@ -0,0 +1,133 @@
+package ru.practicum.client.buffer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.client.StatsClient;
+import ru.practicum.client.exception.StatsRequestException;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HitBufferTest {
+    @Mock
+    private StatsClient client;
+    private SimpleMeterRegistry registry;
+    private HitBufferProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        properties = new HitBufferProperties();
+        properties.setCapacity(5);
+        properties.setBatchSize(2);
+        properties.setMaxAttempts(3);
+        properties.setRetryBackoff(Duration.ZERO);
+        properties.setShutdownTimeout(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void shouldSendQueuedHitsInBatches() {
+        HitBuffer buffer = new HitBuffer(client, properties, registry);
+        buffer.addAll(makeHits(5));
+
+        buffer.flush();
+
+        verify(client, times(2)).addEndPointHits(argThat(batch -> batch.size() == 2));
+        verify(client).addEndPointHits(argThat(batch -> batch.size() == 1));
+        assertEquals(5, registry.get("stats.client.buffer.sent").counter().count());
+    }
+
+    @Test
+    void shouldDropHitsWhenFull() {
+        HitBuffer buffer = new HitBuffer(client, properties, registry);
+
+        buffer.addAll(makeHits(7));
+
+        assertEquals(2, registry.get("stats.client.buffer.dropped").counter().count());
+        assertEquals(5, registry.get("stats.client.buffer.size").gauge().value());
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void shouldRetryFailedBatchOnNextFlush() {
+        doThrow(new StatsRequestException("Сервис статистики недоступен"))
+                .doNothing()
+                .when(client).addEndPointHits(anyList());
+        HitBuffer buffer = new HitBuffer(client, properties, registry);
+        buffer.addAll(makeHits(2));
+
+        buffer.flush();
+        buffer.flush();
+
+        verify(client, times(2)).addEndPointHits(anyList());
+        assertEquals(2, registry.get("stats.client.buffer.sent").counter().count());
+        assertEquals(0, registry.get("stats.client.buffer.dropped").counter().count());
+    }
+
+    @Test
+    void shouldHoldNewBatchesUntilRetryIsDue() {
+        properties.setRetryBackoff(Duration.ofHours(1));
+        doThrow(new StatsRequestException("Сервис статистики недоступен")).when(client).addEndPointHits(anyList());
+        HitBuffer buffer = new HitBuffer(client, properties, registry);
+        buffer.addAll(makeHits(4));
+
+        long start = System.nanoTime();
+        buffer.flush();
+        buffer.flush();
+
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+        verify(client, times(1)).addEndPointHits(anyList());
+        assertEquals(2, registry.get("stats.client.buffer.size").gauge().value());
+    }
+
+    @Test
+    void shouldDropBatchAfterMaxAttempts() {
+        doThrow(new StatsRequestException("Сервис статистики недоступен")).when(client).addEndPointHits(anyList());
+        HitBuffer buffer = new HitBuffer(client, properties, registry);
+        buffer.addAll(makeHits(2));
+
+        for (int i = 0; i < 4; i++) {
+            buffer.flush();
+        }
+
+        verify(client, times(3)).addEndPointHits(anyList());
+        assertEquals(2, registry.get("stats.client.buffer.dropped").counter().count());
+    }
+
+    @Test
+    void shouldFlushQueueOnStop() throws InterruptedException {
+        properties.setFlushInterval(Duration.ofHours(1));
+        HitBuffer buffer = new HitBuffer(client, properties, registry);
+        buffer.start();
+        buffer.addAll(makeHits(3));
+
+        buffer.stop();
+
+        verify(client, times(2)).addEndPointHits(anyList());
+        assertEquals(3, registry.get("stats.client.buffer.sent").counter().count());
+    }
+
+    private List<EndpointHitDto> makeHits(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> EndpointHitDto.builder()
+                        .app("ewm-main-service")
+                        .uri("/events/" + i)
+                        .ip("192.168.0." + i)
+                        .timestamp(LocalDateTime.now())
+                        .build())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,19 @@
+package ru.practicum.aggregation;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "stats.aggregation")
+@Getter
+@Setter
+public class HitAggregationProperties {
+    private Duration flushInterval = Duration.ofSeconds(1);
+    private int batchSize = 5_000;
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+    private Duration minuteRetention = Duration.ofDays(7);
+}
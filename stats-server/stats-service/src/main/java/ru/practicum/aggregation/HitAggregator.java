@@ -0,0 +1,146 @@
+package ru.practicum.aggregation;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.Granularity;
+import ru.practicum.repository.HitRollupRepository;
+import ru.practicum.repository.HitSketchRepository;
+import ru.practicum.repository.PendingHitRepository;
+import ru.practicum.repository.UniqueVisitorRepository;
+import ru.practicum.views.ViewCountersChangedEvent;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/*
+ * Агрегаты, наброски HyperLogLog и уникальные посетители пишутся вне транзакции записи просмотра:
+ * в ней просмотр попадает только в очередь pending_hits, которая раз в flush-interval сливается пакетами.
+ * Пакет блокируется, учитывается и удаляется из очереди в одной транзакции, поэтому при ошибке или
+ * аварийной остановке просмотры остаются в очереди до следующего слияния. Пока просмотр не слит,
+ * чтение агрегатов учитывает его из очереди.
+ */
+@Component
+@Slf4j
+public class HitAggregator {
+    private final HitRollupRepository rollupRepo;
+    private final HitSketchRepository sketchRepo;
+    private final UniqueVisitorRepository visitorRepo;
+    private final PendingHitRepository pendingRepo;
+    private final ApplicationEventPublisher eventPublisher;
+    private final HitAggregationProperties properties;
+    private final TransactionTemplate transaction;
+    private final Timer flushTimer;
+    private final AtomicLong pending = new AtomicLong();
+    private final ScheduledExecutorService executor;
+
+    public HitAggregator(HitRollupRepository rollupRepo,
+                         HitSketchRepository sketchRepo,
+                         UniqueVisitorRepository visitorRepo,
+                         PendingHitRepository pendingRepo,
+                         ApplicationEventPublisher eventPublisher,
+                         HitAggregationProperties properties,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry registry) {
+        this.rollupRepo = rollupRepo;
+        this.sketchRepo = sketchRepo;
+        this.visitorRepo = visitorRepo;
+        this.pendingRepo = pendingRepo;
+        this.eventPublisher = eventPublisher;
+        this.properties = properties;
+        this.transaction = new TransactionTemplate(transactionManager);
+        Gauge.builder("stats.aggregation.pending", pending, AtomicLong::get).register(registry);
+        this.flushTimer = registry.timer("stats.aggregation.flush");
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-hit-aggregator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = properties.getFlushInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    //Вызывается в транзакции записи просмотров: откаченные записи не попадают и в очередь
+    public void add(List<EndpointHit> endpointHits) {
+        pendingRepo.addHits(endpointHits);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(properties.getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            executor.shutdownNow();
+            log.warn("Слияние агрегатов просмотров не завершилось за {}", properties.getShutdownTimeout());
+        }
+        flush();
+        if (pending.get() > 0) {
+            log.warn("При остановке сервиса в очереди агрегатов осталось {} просмотров, они будут слиты после " +
+                    "запуска", pending.get());
+        }
+    }
+
+    @Scheduled(cron = "${stats.aggregation.retention-cron:0 30 3 * * *}")
+    public void retireMinuteRollups() {
+        //Граница округляется вниз до суток: запросы позже now - minute-retention всегда находят минутные агрегаты
+        LocalDateTime before = LocalDateTime.now().minus(properties.getMinuteRetention()).truncatedTo(ChronoUnit.DAYS);
+        try {
+            int deleted = rollupRepo.deleteRollupsBefore(Granularity.MINUTE, before);
+            log.info("Удалено {} минутных агрегатов просмотров ранее {}", deleted, before);
+        } catch (RuntimeException e) {
+            log.error("Не удалось удалить минутные агрегаты просмотров: {}", e.getMessage(), e);
+        }
+    }
+
+    synchronized void flush() {
+        long start = System.nanoTime();
+        try {
+            int merged;
+            do {
+                merged = transaction.execute(status -> mergeBatch());
+            } while (merged == properties.getBatchSize());
+            pending.set(pendingRepo.count());
+        } catch (RuntimeException e) {
+            //Пакет остается в очереди и будет слит при следующей попытке
+            log.warn("Не удалось записать агрегаты просмотров: {}", e.getMessage());
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private int mergeBatch() {
+        List<EndpointHit> batch = pendingRepo.lockBatch(properties.getBatchSize());
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        rollupRepo.addHits(batch);
+        sketchRepo.addHits(batch);
+        List<Long> changedAppIds = visitorRepo.addVisitors(batch);
+        pendingRepo.deleteByIds(batch.stream()
+                .map(EndpointHit::getId)
+                .collect(Collectors.toList()));
+        if (!changedAppIds.isEmpty()) {
+            //Подписчики получат новые значения после фиксации транзакции
+            eventPublisher.publishEvent(new ViewCountersChangedEvent(changedAppIds));
+        }
+        return batch.size();
+    }
+}
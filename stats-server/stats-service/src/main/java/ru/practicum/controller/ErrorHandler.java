@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.NoHandlerFoundException;
+import ru.practicum.ingestion.IngestionQueueFullException;
 import ru.practicum.model.ApiError;
 
 import javax.validation.ValidationException;
@@ -41,6 +42,17 @@ public class ErrorHandler {
                 .build();
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public ApiError handleIngestionQueueFullException(final IngestionQueueFullException e) {
+        log.warn(e.getMessage());
+        return ApiError.builder()
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .reason("Too many hits, try again later.")
+                .message(e.getMessage())
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
 
     @ExceptionHandler
     @ResponseStatus(HttpStatus.NOT_FOUND)
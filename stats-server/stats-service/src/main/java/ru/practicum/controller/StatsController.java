@@ -2,29 +2,55 @@ package ru.practicum.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.ingestion.HitIngestionService;
+import ru.practicum.model.UniqueMode;
 import ru.practicum.service.StatsService;
+import ru.practicum.views.ViewCounterBroadcaster;
 
+import javax.validation.ValidationException;
 import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
 public class StatsController {
     private final StatsService service;
+    private final HitIngestionService ingestionService;
+    private final ViewCounterBroadcaster broadcaster;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
     public void addHit(@RequestBody EndpointHitDto endpointHitDto) {
-        service.addHit(endpointHitDto);
+        ingestionService.add(endpointHitDto);
+    }
+
+    @PostMapping("/hits")
+    @ResponseStatus(HttpStatus.CREATED)
+    public void addHits(@RequestBody List<EndpointHitDto> endpointHitDtos) {
+        ingestionService.addAll(endpointHitDtos);
     }
 
     @GetMapping("/stats")
     public List<ViewStatsDto> getStat(@RequestParam String start,
                                       @RequestParam String end,
                                       @RequestParam(required = false, defaultValue = "") List<String> uris,
-                                      @RequestParam(required = false, defaultValue = "false") boolean unique) {
-        return service.getStats(start, end, uris, unique);
+                                      @RequestParam(required = false, defaultValue = "false") String unique) {
+        UniqueMode uniqueMode = UniqueMode.from(unique)
+                .orElseThrow(() -> new ValidationException("Unknown unique mode: " + unique));
+        return service.getStats(start, end, uris, uniqueMode);
+    }
+
+    @GetMapping("/views")
+    public List<ViewStatsDto> getViewCounters(@RequestParam String app) {
+        return service.getViewCounters(app);
+    }
+
+    @GetMapping(value = "/views/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamViewCounters(@RequestParam String app) {
+        return broadcaster.subscribe(app);
     }
-}
\ No newline at end of file
+}
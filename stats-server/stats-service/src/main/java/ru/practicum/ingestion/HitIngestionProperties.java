@@ -0,0 +1,23 @@
+package ru.practicum.ingestion;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "stats.ingestion")
+@Getter
+@Setter
+public class HitIngestionProperties {
+    private IngestionMode mode = IngestionMode.SYNC;
+    private int queueCapacity = 10_000;
+    private int batchSize = 500;
+    private Duration flushInterval = Duration.ofMillis(200);
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+    //Неудачный пакет повторяется с паузой, удваивающейся после каждой попытки
+    private int maxRetries = 3;
+    private Duration retryBackoff = Duration.ofMillis(200);
+}
@@ -0,0 +1,180 @@
+package ru.practicum.ingestion;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.service.StatsService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Slf4j
+public class HitIngestionService {
+    private final StatsService service;
+    private final HitIngestionProperties properties;
+    private final BlockingQueue<EndpointHitDto> queue;
+    private final Counter rejected;
+    private final Counter retried;
+    private final Counter failed;
+    private final Thread writer;
+    private volatile boolean running;
+
+    public HitIngestionService(StatsService service, HitIngestionProperties properties, MeterRegistry registry) {
+        this.service = service;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.writer = new Thread(this::drainLoop, "hit-writer");
+        this.writer.setDaemon(true);
+        Gauge.builder("stats.ingestion.queue.size", queue, BlockingQueue::size).register(registry);
+        this.rejected = registry.counter("stats.ingestion.rejected");
+        this.retried = registry.counter("stats.ingestion.retried");
+        this.failed = registry.counter("stats.ingestion.failed");
+    }
+
+    @PostConstruct
+    public void start() {
+        if (isAsync()) {
+            running = true;
+            writer.start();
+            log.info("Асинхронная запись просмотров: очередь {}, пакет {}, интервал {}",
+                    properties.getQueueCapacity(), properties.getBatchSize(), properties.getFlushInterval());
+        }
+    }
+
+    public void add(EndpointHitDto endpointHitDto) {
+        if (!isAsync()) {
+            service.addHit(endpointHitDto);
+            return;
+        }
+        if (!queue.offer(endpointHitDto)) {
+            rejected.increment();
+            throw new IngestionQueueFullException("Очередь записи просмотров переполнена");
+        }
+    }
+
+    public void addAll(List<EndpointHitDto> endpointHitDtos) {
+        if (!isAsync()) {
+            service.addHits(endpointHitDtos);
+            return;
+        }
+        if (queue.remainingCapacity() < endpointHitDtos.size()) {
+            rejected.increment(endpointHitDtos.size());
+            throw new IngestionQueueFullException("Очередь записи просмотров переполнена");
+        }
+        for (int i = 0; i < endpointHitDtos.size(); i++) {
+            if (!queue.offer(endpointHitDtos.get(i))) {
+                rejected.increment(endpointHitDtos.size() - i);
+                throw new IngestionQueueFullException(String.format(
+                        "Очередь записи просмотров переполнена, принято %d из %d", i, endpointHitDtos.size()));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!isAsync()) {
+            return;
+        }
+        running = false;
+        if (writer.isAlive()) {
+            writer.join(properties.getShutdownTimeout().toMillis());
+        } else {
+            flush();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("Не записано {} просмотров при остановке сервиса", queue.size());
+        }
+    }
+
+    private boolean isAsync() {
+        return properties.getMode() == IngestionMode.ASYNC;
+    }
+
+    private void drainLoop() {
+        long intervalNanos = properties.getFlushInterval().toNanos();
+        List<EndpointHitDto> batch = new ArrayList<>(properties.getBatchSize());
+        try {
+            while (running || !queue.isEmpty()) {
+                EndpointHitDto first = queue.poll(intervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + intervalNanos;
+                while (batch.size() < properties.getBatchSize()) {
+                    queue.drainTo(batch, properties.getBatchSize() - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= properties.getBatchSize() || remaining <= 0 || !running) {
+                        break;
+                    }
+                    EndpointHitDto next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+                batch = new ArrayList<>(properties.getBatchSize());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write(batch);
+            flush();
+        }
+    }
+
+    private void flush() {
+        while (!queue.isEmpty()) {
+            List<EndpointHitDto> batch = new ArrayList<>(properties.getBatchSize());
+            queue.drainTo(batch, properties.getBatchSize());
+            write(batch);
+        }
+    }
+
+    private void write(List<EndpointHitDto> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long backoff = properties.getRetryBackoff().toMillis();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                service.addHits(batch);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= properties.getMaxRetries() || !pause(backoff)) {
+                    failed.increment(batch.size());
+                    log.error("Не удалось записать пакет из {} просмотров после {} попыток: {}",
+                            batch.size(), attempt + 1, e.getMessage(), e);
+                    return;
+                }
+                retried.increment();
+                log.warn("Не удалось записать пакет из {} просмотров, повтор через {} мс: {}",
+                        batch.size(), backoff, e.getMessage());
+                backoff *= 2;
+            }
+        }
+    }
+
+    //При прерывании потока повторы прекращаются, чтобы остановка сервиса не ждала пауз
+    private boolean pause(long millis) {
+        if (Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
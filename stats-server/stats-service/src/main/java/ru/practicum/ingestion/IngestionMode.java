@@ -0,0 +1,6 @@
+package ru.practicum.ingestion;
+
+public enum IngestionMode {
+    SYNC,
+    ASYNC
+}
@@ -0,0 +1,7 @@
+package ru.practicum.ingestion;
+
+public class IngestionQueueFullException extends RuntimeException {
+    public IngestionQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package ru.practicum.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class TimeSlice {
+    private Granularity granularity; //null для участка, который считается по таблице hits
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private boolean toInclusive;
+}
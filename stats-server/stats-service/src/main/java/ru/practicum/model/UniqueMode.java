@@ -0,0 +1,24 @@
+package ru.practicum.model;
+
+import java.util.Optional;
+
+public enum UniqueMode {
+    NONE("false"),
+    EXACT("true"),
+    APPROX("approx");
+
+    private final String value;
+
+    UniqueMode(String value) {
+        this.value = value;
+    }
+
+    public static Optional<UniqueMode> from(String stringValue) {
+        for (UniqueMode mode : values()) {
+            if (mode.value.equalsIgnoreCase(stringValue)) {
+                return Optional.of(mode);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,216 @@
+package ru.practicum.partition;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.Granularity;
+import ru.practicum.repository.DatabaseDialect;
+import ru.practicum.repository.HitRollupRepository;
+import ru.practicum.repository.HitSketchRepository;
+import ru.practicum.repository.UniqueVisitorRepository;
+import ru.practicum.views.ViewCountersResetEvent;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/*
+ * Секции просмотров создаются заранее, поэтому секция по умолчанию остается пустой.
+ * Устаревшие данные удаляются только отсоединением или удалением секций целиком,
+ * вместе с ними удаляются агрегаты и посетители того же периода.
+ */
+@Component
+@Slf4j
+public class HitPartitionManager {
+    private static final String PREFIX = "hits_p";
+    private static final String DEFAULT_PARTITION = "hits_default";
+    private static final Pattern BOUNDS = Pattern.compile("FROM \\('([^']+)'\\) TO \\('([^']+)'\\)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+    private final HitPartitionProperties properties;
+    private final HitRollupRepository rollupRepo;
+    private final HitSketchRepository sketchRepo;
+    private final UniqueVisitorRepository visitorRepo;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
+
+    public HitPartitionManager(JdbcTemplate jdbcTemplate,
+                               DatabaseDialect dialect,
+                               HitPartitionProperties properties,
+                               HitRollupRepository rollupRepo,
+                               HitSketchRepository sketchRepo,
+                               UniqueVisitorRepository visitorRepo,
+                               ApplicationEventPublisher eventPublisher,
+                               PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.properties = properties;
+        this.rollupRepo = rollupRepo;
+        this.sketchRepo = sketchRepo;
+        this.visitorRepo = visitorRepo;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${stats.partitioning.cron:0 0 3 * * *}")
+    public void maintain() {
+        if (!properties.isEnabled() || !dialect.isPostgres()) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        List<Partition> existing = findPartitions();
+        for (LocalDate periodStart : partitionsToCreate(today, existing)) {
+            try {
+                createPartition(periodStart);
+            } catch (RuntimeException e) {
+                log.error("Не удалось создать секцию просмотров с {}: {}", periodStart, e.getMessage(), e);
+            }
+        }
+        for (Partition partition : partitionsToRetire(today, existing)) {
+            try {
+                retirePartition(partition);
+            } catch (RuntimeException e) {
+                log.error("Не удалось вывести из хранения секцию просмотров {}: {}",
+                        partition.getName(), e.getMessage(), e);
+            }
+        }
+        Long outside = jdbcTemplate.queryForObject("select count(*) from " + DEFAULT_PARTITION, Long.class);
+        if (outside != null && outside > 0) {
+            log.warn("В секции по умолчанию {} просмотров вне созданных секций", outside);
+        }
+    }
+
+    List<LocalDate> partitionsToCreate(LocalDate today, List<Partition> existing) {
+        PartitionInterval interval = properties.getInterval();
+        List<LocalDate> toCreate = new ArrayList<>();
+        LocalDate periodStart = interval.periodStart(today);
+        for (int i = 0; i <= properties.getPremake(); i++) {
+            LocalDate from = periodStart;
+            LocalDate to = interval.next(periodStart);
+            //Секции с другим интервалом (например, месячные из миграции) не перекрываются новыми
+            if (existing.stream().noneMatch(partition -> partition.overlaps(from, to))) {
+                toCreate.add(periodStart);
+            }
+            periodStart = to;
+        }
+        return toCreate;
+    }
+
+    List<Partition> partitionsToRetire(LocalDate today, List<Partition> existing) {
+        if (properties.getRetention() == null) {
+            return List.of();
+        }
+        LocalDate cutoff = today.minus(properties.getRetention());
+        return existing.stream()
+                .filter(partition -> !partition.getTo().isAfter(cutoff))
+                .sorted((first, second) -> first.getFrom().compareTo(second.getFrom()))
+                .collect(Collectors.toList());
+    }
+
+    private List<Partition> findPartitions() {
+        return jdbcTemplate.query("select c.relname, pg_get_expr(c.relpartbound, c.oid) as bound " +
+                        "from pg_inherits i " +
+                        "join pg_class c on c.oid = i.inhrelid " +
+                        "where i.inhparent = 'hits'::regclass",
+                        (rs, rowNum) -> toPartition(rs.getString("relname"), rs.getString("bound")))
+                .stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private void createPartition(LocalDate periodStart) {
+        PartitionInterval interval = properties.getInterval();
+        String name = PREFIX + interval.suffix(periodStart);
+        String from = periodStart.toString();
+        String to = interval.next(periodStart).toString();
+        String range = String.format("timestamp >= '%s' AND timestamp < '%s'", from, to);
+        String bounds = String.format("FOR VALUES FROM ('%s') TO ('%s')", from, to);
+        transaction.executeWithoutResult(status -> {
+            Boolean inDefault = jdbcTemplate.queryForObject(
+                    "select exists(select 1 from " + DEFAULT_PARTITION + " where " + range + ")", Boolean.class);
+            if (!Boolean.TRUE.equals(inDefault)) {
+                jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF hits " + bounds);
+                return;
+            }
+            /*
+             * Строки периода уже попали в секцию по умолчанию: секция собирается отдельной таблицей,
+             * строки переносятся в нее, и она присоединяется. Ограничение с диапазоном избавляет
+             * присоединение от проверки новой таблицы, секция по умолчанию не отсоединяется.
+             */
+            jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE hits INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            jdbcTemplate.execute("ALTER TABLE " + name + " ADD CONSTRAINT " + name + "_range CHECK (" + range + ")");
+            int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE " + range +
+                    " RETURNING id, app_id, ip, timestamp) " +
+                    "INSERT INTO " + name + " (id, app_id, ip, timestamp) SELECT id, app_id, ip, timestamp FROM moved");
+            jdbcTemplate.execute("ALTER TABLE hits ATTACH PARTITION " + name + " " + bounds);
+            jdbcTemplate.execute("ALTER TABLE " + name + " DROP CONSTRAINT " + name + "_range");
+            log.info("В секцию {} перенесено {} просмотров из секции по умолчанию", name, moved);
+        });
+        log.info("Создана секция просмотров {} с {} по {}", name, from, to);
+    }
+
+    //Агрегаты удаляются первыми: если секцию убрать не удалось, следующий запуск повторит оба шага
+    private void retirePartition(Partition partition) {
+        String name = partition.getName();
+        LocalDateTime before = partition.getTo().atStartOfDay();
+        transaction.executeWithoutResult(status -> {
+            int rollups = 0;
+            for (Granularity granularity : Granularity.values()) {
+                rollups += rollupRepo.deleteRollupsBefore(granularity, before);
+            }
+            int sketches = sketchRepo.deleteSketchesBefore(before);
+            int visitors = visitorRepo.deleteSeenBefore(before);
+            log.info("До {} удалено агрегатов: {}, набросков: {}, посетителей: {}", before, rollups, sketches, visitors);
+            if (visitors > 0) {
+                eventPublisher.publishEvent(new ViewCountersResetEvent());
+            }
+        });
+        if (properties.getRetentionAction() == RetentionAction.DROP) {
+            jdbcTemplate.execute("DROP TABLE " + name);
+            log.info("Удалена устаревшая секция просмотров {}", name);
+        } else {
+            jdbcTemplate.execute("ALTER TABLE hits DETACH PARTITION " + name);
+            log.info("Устаревшая секция просмотров {} отсоединена и оставлена в архиве", name);
+        }
+    }
+
+    private static Partition toPartition(String name, String bound) {
+        Matcher matcher = bound == null ? null : BOUNDS.matcher(bound);
+        if (matcher == null || !matcher.find()) {
+            return null;
+        }
+        return new Partition(name, LocalDate.parse(matcher.group(1).substring(0, 10)),
+                LocalDate.parse(matcher.group(2).substring(0, 10)));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    @ToString
+    static class Partition {
+        private final String name;
+        private final LocalDate from;
+        private final LocalDate to;
+
+        boolean overlaps(LocalDate periodFrom, LocalDate periodTo) {
+            return from.isBefore(periodTo) && periodFrom.isBefore(to);
+        }
+    }
+}
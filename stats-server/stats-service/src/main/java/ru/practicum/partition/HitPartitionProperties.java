@@ -0,0 +1,20 @@
+package ru.practicum.partition;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Period;
+
+@Component
+@ConfigurationProperties(prefix = "stats.partitioning")
+@Getter
+@Setter
+public class HitPartitionProperties {
+    private boolean enabled = true;
+    private PartitionInterval interval = PartitionInterval.MONTH;
+    private int premake = 3;
+    private Period retention; //null - хранить всю историю
+    private RetentionAction retentionAction = RetentionAction.DETACH;
+}
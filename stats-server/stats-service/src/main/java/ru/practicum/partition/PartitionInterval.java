@@ -0,0 +1,37 @@
+package ru.practicum.partition;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+public enum PartitionInterval {
+    DAY(ChronoUnit.DAYS, "yyyyMMdd"),
+    MONTH(ChronoUnit.MONTHS, "yyyyMM");
+
+    private final ChronoUnit unit;
+    private final DateTimeFormatter suffixFormatter;
+
+    PartitionInterval(ChronoUnit unit, String suffixPattern) {
+        this.unit = unit;
+        this.suffixFormatter = DateTimeFormatter.ofPattern(suffixPattern);
+    }
+
+    public LocalDate periodStart(LocalDate date) {
+        return this == MONTH ? date.withDayOfMonth(1) : date;
+    }
+
+    public LocalDate next(LocalDate periodStart) {
+        return periodStart.plus(1, unit);
+    }
+
+    public String suffix(LocalDate periodStart) {
+        return periodStart.format(suffixFormatter);
+    }
+
+    public LocalDate parseSuffix(String suffix) {
+        if (this == MONTH) {
+            return LocalDate.parse(suffix + "01", DAY.suffixFormatter);
+        }
+        return LocalDate.parse(suffix, suffixFormatter);
+    }
+}
@@ -9,7 +9,11 @@ public interface AppRepository {
 
     long add(App app);
 
+    List<Long> addIfAbsent(App app);
+
     List<App> getAppsByUris(List<String> uris);
 
     List<App> getAppsByIds(List<Long> ids);
+
+    List<App> findAll(int limit);
 }
@@ -1,6 +1,7 @@
 package ru.practicum.repository;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -16,8 +17,16 @@ import java.util.List;
 @Repository
 @RequiredArgsConstructor
 public class AppRepositoryImpl implements AppRepository {
+    private static final String INSERT_IF_ABSENT_POSTGRES = "insert into apps (name, uri) values (:name, :uri) " +
+            "on conflict do nothing returning id";
+    private static final String INSERT_IF_ABSENT_STANDARD = "select id from final table (" +
+            "merge into apps a using (values (cast(:name as varchar(255)), cast(:uri as varchar(2048)))) " +
+            "s (name, uri) on a.name = s.name and a.uri = s.uri " +
+            "when not matched then insert (name, uri) values (s.name, s.uri))";
+
     private final JdbcTemplate jdbcTemplate;
     private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final DatabaseDialect dialect;
 
     @Override
     public List<App> findByAppAndUri(String app, String uri) {
@@ -36,6 +45,23 @@ public class AppRepositoryImpl implements AppRepository {
         return simpleJdbcInsert.executeAndReturnKey(app.toMap()).longValue();
     }
 
+    @Override
+    public List<Long> addIfAbsent(App app) {
+        //Пустой список - запись уже есть или ее вставляет параллельная транзакция
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        parameters.addValue("name", app.getName());
+        parameters.addValue("uri", app.getUri());
+        if (dialect.isPostgres()) {
+            return namedJdbcTemplate.queryForList(INSERT_IF_ABSENT_POSTGRES, parameters, Long.class);
+        }
+        //MERGE не атомарен: параллельная вставка того же uri нарушает уникальный индекс
+        try {
+            return namedJdbcTemplate.queryForList(INSERT_IF_ABSENT_STANDARD, parameters, Long.class);
+        } catch (DuplicateKeyException e) {
+            return List.of();
+        }
+    }
+
     @Override
     public List<App> getAppsByUris(List<String> uris) {
         String sql = "select id, name, uri from apps where uri in (:uris)";
@@ -51,6 +77,13 @@ public class AppRepositoryImpl implements AppRepository {
         return namedJdbcTemplate.query(sql, parameters, (rs, rowNum) -> mapRowToApp(rs));
     }
 
+    @Override
+    public List<App> findAll(int limit) {
+        String sql = "select id, name, uri from apps order by id desc limit :limit";
+        SqlParameterSource parameters = new MapSqlParameterSource("limit", limit);
+        return namedJdbcTemplate.query(sql, parameters, (rs, rowNum) -> mapRowToApp(rs));
+    }
+
     private App mapRowToApp(ResultSet rs) throws SQLException {
         long id = rs.getLong("id");
         String name = rs.getString("name");
@@ -9,6 +9,8 @@ import java.util.Map;
 public interface EndPointHitRepository {
     EndpointHit addEndpointHit(EndpointHit endpointHit);
 
+    void addEndpointHits(List<EndpointHit> endpointHits);
+
     Map<Long, Long> getViewsByAppId(Instant start, Instant end);
 
     Map<Long, Long> getViewsByAppId(Instant start, Instant end, List<Long> appIds);
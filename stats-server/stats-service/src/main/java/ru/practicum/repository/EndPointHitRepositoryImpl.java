@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
 import ru.practicum.model.EndpointHit;
@@ -30,6 +31,16 @@ public class EndPointHitRepositoryImpl implements EndPointHitRepository {
         return endpointHit;
     }
 
+    @Override
+    public void addEndpointHits(List<EndpointHit> endpointHits) {
+        String sql = "insert into hits (app_id, ip, timestamp) values (:app_id, :ip, :timestamp)";
+        SqlParameterSource[] batch = endpointHits.stream()
+                .map(EndpointHit::toMap)
+                .map(MapSqlParameterSource::new)
+                .toArray(SqlParameterSource[]::new);
+        namedJdbcTemplate.batchUpdate(sql, batch);
+    }
+
     @Override
     public Map<Long, Long> getViewsByAppId(Instant start, Instant end) {
         String sql = "select app_id, COUNT(ip) as views from hits " +
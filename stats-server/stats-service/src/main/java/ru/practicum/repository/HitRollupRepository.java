@@ -0,0 +1,21 @@
+package ru.practicum.repository;
+
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.Granularity;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface HitRollupRepository {
+    void addHits(List<EndpointHit> endpointHits);
+
+    Map<Long, Long> getViewsByAppId(Instant start, Instant end);
+
+    Map<Long, Long> getViewsByAppId(Instant start, Instant end, List<Long> appIds);
+
+    int backfillIfEmpty();
+
+    int deleteRollupsBefore(Granularity granularity, LocalDateTime bucketStart);
+}
@@ -0,0 +1,177 @@
+package ru.practicum.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import ru.practicum.aggregation.HitAggregationProperties;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.Granularity;
+import ru.practicum.model.TimeSlice;
+import ru.practicum.util.TimeBuckets;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static ru.practicum.util.TimeBuckets.toLocal;
+
+@Repository
+@RequiredArgsConstructor
+public class HitRollupRepositoryImpl implements HitRollupRepository {
+    private static final String UPSERT_POSTGRES = "insert into hit_rollups (granularity, app_id, bucket_start, hits) " +
+            "values (:granularity, :app_id, :bucket_start, :hits) " +
+            "on conflict (granularity, app_id, bucket_start) do update set hits = hit_rollups.hits + excluded.hits";
+    private static final String UPSERT_STANDARD = "merge into hit_rollups r " +
+            "using (values (cast(:granularity as varchar(6)), cast(:app_id as bigint), " +
+            "cast(:bucket_start as timestamp), cast(:hits as bigint))) " +
+            "s (granularity, app_id, bucket_start, hits) " +
+            "on r.granularity = s.granularity and r.app_id = s.app_id and r.bucket_start = s.bucket_start " +
+            "when matched then update set hits = r.hits + s.hits " +
+            "when not matched then insert (granularity, app_id, bucket_start, hits) " +
+            "values (s.granularity, s.app_id, s.bucket_start, s.hits)";
+    private static final Comparator<RollupKey> KEY_ORDER = Comparator
+            .comparing((RollupKey key) -> key.granularity)
+            .thenComparingLong(key -> key.appId)
+            .thenComparing(key -> key.bucketStart);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final DatabaseDialect dialect;
+    private final HitAggregationProperties properties;
+
+    @Override
+    public void addHits(List<EndpointHit> endpointHits) {
+        //Ключи сортируются, чтобы параллельные пакеты блокировали строки в одном порядке
+        Map<RollupKey, Long> hitsByKey = new TreeMap<>(KEY_ORDER);
+        for (EndpointHit hit : endpointHits) {
+            for (Granularity granularity : Granularity.values()) {
+                RollupKey key = new RollupKey(granularity, hit.getAppId(),
+                        TimeBuckets.bucketStart(hit.getTimestamp(), granularity));
+                hitsByKey.merge(key, 1L, Long::sum);
+            }
+        }
+        SqlParameterSource[] batch = hitsByKey.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("granularity", entry.getKey().granularity.name())
+                        .addValue("app_id", entry.getKey().appId)
+                        .addValue("bucket_start", Timestamp.valueOf(entry.getKey().bucketStart))
+                        .addValue("hits", entry.getValue()))
+                .toArray(SqlParameterSource[]::new);
+        namedJdbcTemplate.batchUpdate(dialect.isPostgres() ? UPSERT_POSTGRES : UPSERT_STANDARD, batch);
+    }
+
+    @Override
+    public Map<Long, Long> getViewsByAppId(Instant start, Instant end) {
+        return getViews(start, end, null);
+    }
+
+    @Override
+    public Map<Long, Long> getViewsByAppId(Instant start, Instant end, List<Long> appIds) {
+        return getViews(start, end, appIds);
+    }
+
+    @Override
+    public int backfillIfEmpty() {
+        //Необработанные просмотры уже есть в hits: при их наличии пересчет учел бы их дважды
+        Integer filled = jdbcTemplate.queryForObject("select count(*) from (" +
+                        "select 1 from hit_rollups union all select 1 from pending_hits limit 1) r",
+                Integer.class);
+        if (filled != null && filled > 0) {
+            return 0;
+        }
+        int inserted = 0;
+        for (Granularity granularity : Granularity.values()) {
+            String bucket = String.format("date_trunc('%s', timestamp)", granularity.name().toLowerCase());
+            String sql = "insert into hit_rollups (granularity, app_id, bucket_start, hits) " +
+                    "select '" + granularity.name() + "', app_id, " + bucket + ", COUNT(*) from hits " +
+                    "where timestamp is not null " +
+                    "group by app_id, " + bucket;
+            inserted += jdbcTemplate.update(sql);
+        }
+        return inserted;
+    }
+
+    @Override
+    public int deleteRollupsBefore(Granularity granularity, LocalDateTime bucketStart) {
+        return jdbcTemplate.update("delete from hit_rollups where granularity = ? and bucket_start < ?",
+                granularity.name(), Timestamp.valueOf(bucketStart));
+    }
+
+    private Map<Long, Long> getViews(Instant start, Instant end, List<Long> appIds) {
+        //Минутные агрегаты хранятся minute-retention, для более ранних периодов края считаются по просмотрам
+        Instant minuteCutoff = Instant.now().minus(properties.getMinuteRetention());
+        Granularity finest = start.isBefore(minuteCutoff) ? Granularity.HOUR : Granularity.MINUTE;
+        List<TimeSlice> slices = TimeBuckets.split(toLocal(start), toLocal(end), finest);
+        List<String> rollupConditions = new ArrayList<>();
+        List<String> pendingConditions = new ArrayList<>();
+        List<String> rawConditions = new ArrayList<>();
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        for (int i = 0; i < slices.size(); i++) {
+            TimeSlice slice = slices.get(i);
+            parameters.addValue("from" + i, Timestamp.valueOf(slice.getFrom()));
+            parameters.addValue("to" + i, Timestamp.valueOf(slice.getTo()));
+            if (slice.getGranularity() == null) {
+                rawConditions.add(String.format("(timestamp >= :from%d and timestamp %s :to%d)",
+                        i, slice.isToInclusive() ? "<=" : "<", i));
+            } else {
+                parameters.addValue("granularity" + i, slice.getGranularity().name());
+                rollupConditions.add(String.format(
+                        "(granularity = :granularity%d and bucket_start >= :from%d and bucket_start < :to%d)",
+                        i, i, i));
+                pendingConditions.add(String.format("(timestamp >= :from%d and timestamp < :to%d)", i, i));
+            }
+        }
+        String appCondition = "";
+        if (appIds != null) {
+            appCondition = "AND app_id in (:appIds) ";
+            parameters.addValue("appIds", appIds);
+        }
+
+        Map<Long, Long> viewsByAppId = new HashMap<>();
+        if (!rollupConditions.isEmpty()) {
+            //Агрегаты и еще не слитые в них просмотры читаются одним запросом, то есть из одного снимка
+            String sql = "select app_id, SUM(views) as views from (" +
+                    "select app_id, hits as views from hit_rollups " +
+                    "where (" + String.join(" or ", rollupConditions) + ") " +
+                    appCondition +
+                    "union all " +
+                    "select app_id, 1 as views from pending_hits " +
+                    "where (" + String.join(" or ", pendingConditions) + ") " +
+                    appCondition +
+                    ") v group by app_id";
+            addViews(sql, parameters, viewsByAppId);
+        }
+        String sql = "select app_id, COUNT(ip) as views from hits " +
+                "where (" + String.join(" or ", rawConditions) + ") " +
+                appCondition +
+                "group by app_id";
+        addViews(sql, parameters, viewsByAppId);
+        return viewsByAppId;
+    }
+
+    private void addViews(String sql, MapSqlParameterSource parameters, Map<Long, Long> viewsByAppId) {
+        namedJdbcTemplate.query(sql, parameters,
+                rs -> {
+                    long appId = rs.getLong("app_id");
+                    long views = rs.getLong("views");
+                    viewsByAppId.merge(appId, views, Long::sum);
+                });
+    }
+
+    @AllArgsConstructor
+    private static class RollupKey {
+        private final Granularity granularity;
+        private final long appId;
+        private final LocalDateTime bucketStart;
+    }
+}
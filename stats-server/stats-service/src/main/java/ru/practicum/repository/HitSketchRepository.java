@@ -0,0 +1,20 @@
+package ru.practicum.repository;
+
+import ru.practicum.model.EndpointHit;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface HitSketchRepository {
+    void addHits(List<EndpointHit> endpointHits);
+
+    Map<Long, Long> getUniqueViewsByAppId(Instant start, Instant end);
+
+    Map<Long, Long> getUniqueViewsByAppId(Instant start, Instant end, List<Long> appIds);
+
+    int backfillIfEmpty();
+
+    int deleteSketchesBefore(LocalDateTime bucketStart);
+}
@@ -0,0 +1,253 @@
+package ru.practicum.repository;
+
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.Granularity;
+import ru.practicum.model.TimeSlice;
+import ru.practicum.util.HyperLogLog;
+import ru.practicum.util.TimeBuckets;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static ru.practicum.util.TimeBuckets.toLocal;
+
+@Repository
+public class HitSketchRepositoryImpl implements HitSketchRepository {
+    private static final Granularity[] GRANULARITIES = {Granularity.HOUR, Granularity.DAY};
+    private static final int SELECT_CHUNK = 500;
+    private static final String INSERT_EMPTY_POSTGRES = "insert into hit_sketches (granularity, app_id, bucket_start) " +
+            "values (:granularity, :app_id, :bucket_start) " +
+            "on conflict (granularity, app_id, bucket_start) do nothing";
+    private static final String INSERT_EMPTY_STANDARD = "merge into hit_sketches s " +
+            "using (values (cast(:granularity as varchar(6)), cast(:app_id as bigint), " +
+            "cast(:bucket_start as timestamp))) v (granularity, app_id, bucket_start) " +
+            "on s.granularity = v.granularity and s.app_id = v.app_id and s.bucket_start = v.bucket_start " +
+            "when not matched then insert (granularity, app_id, bucket_start) " +
+            "values (v.granularity, v.app_id, v.bucket_start)";
+    private static final Comparator<SketchKey> KEY_ORDER = Comparator
+            .comparing((SketchKey key) -> key.granularity)
+            .thenComparingLong(key -> key.appId)
+            .thenComparing(key -> key.bucketStart);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final DatabaseDialect dialect;
+    private final int precision;
+
+    public HitSketchRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                   NamedParameterJdbcTemplate namedJdbcTemplate,
+                                   DatabaseDialect dialect,
+                                   @Value("${stats.sketch.precision:12}") int precision) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.dialect = dialect;
+        HyperLogLog.validatePrecision(precision);
+        this.precision = precision;
+    }
+
+    @Override
+    public void addHits(List<EndpointHit> endpointHits) {
+        Map<SketchKey, HyperLogLog> sketches = new TreeMap<>(KEY_ORDER);
+        for (EndpointHit hit : endpointHits) {
+            for (Granularity granularity : GRANULARITIES) {
+                SketchKey key = new SketchKey(granularity, hit.getAppId(),
+                        TimeBuckets.bucketStart(hit.getTimestamp(), granularity));
+                sketches.computeIfAbsent(key, k -> new HyperLogLog(precision)).add(hit.getIp());
+            }
+        }
+        mergeSketches(sketches);
+    }
+
+    @Override
+    public Map<Long, Long> getUniqueViewsByAppId(Instant start, Instant end) {
+        return getUniqueViews(start, end, null);
+    }
+
+    @Override
+    public Map<Long, Long> getUniqueViewsByAppId(Instant start, Instant end, List<Long> appIds) {
+        return getUniqueViews(start, end, appIds);
+    }
+
+    @Override
+    public int backfillIfEmpty() {
+        Integer sketches = jdbcTemplate.queryForObject(
+                "select count(*) from (select 1 from hit_sketches limit 1) s", Integer.class);
+        if (sketches != null && sketches > 0) {
+            return 0;
+        }
+        //Просмотры читаются по порядку времени, в памяти держатся наброски только за текущие сутки
+        Map<SketchKey, HyperLogLog> daySketches = new TreeMap<>(KEY_ORDER);
+        LocalDateTime[] currentDay = new LocalDateTime[1];
+        int[] written = new int[1];
+        jdbcTemplate.query("select app_id, ip, timestamp from hits where timestamp is not null order by timestamp",
+                rs -> {
+                    Instant timestamp = rs.getTimestamp("timestamp").toInstant();
+                    LocalDateTime day = TimeBuckets.bucketStart(timestamp, Granularity.DAY);
+                    if (currentDay[0] != null && !currentDay[0].equals(day)) {
+                        written[0] += mergeSketches(daySketches);
+                        daySketches.clear();
+                    }
+                    currentDay[0] = day;
+                    long appId = rs.getLong("app_id");
+                    String ip = rs.getString("ip");
+                    for (Granularity granularity : GRANULARITIES) {
+                        SketchKey key = new SketchKey(granularity, appId,
+                                TimeBuckets.bucketStart(timestamp, granularity));
+                        daySketches.computeIfAbsent(key, k -> new HyperLogLog(precision)).add(ip);
+                    }
+                });
+        written[0] += mergeSketches(daySketches);
+        return written[0];
+    }
+
+    @Override
+    public int deleteSketchesBefore(LocalDateTime bucketStart) {
+        int deleted = 0;
+        for (Granularity granularity : GRANULARITIES) {
+            deleted += jdbcTemplate.update("delete from hit_sketches where granularity = ? and bucket_start < ?",
+                    granularity.name(), Timestamp.valueOf(bucketStart));
+        }
+        return deleted;
+    }
+
+    /*
+     * Наброски пакета сливаются в памяти и записываются одним пакетом: сохраненные значения читаются
+     * частями по SELECT_CHUNK ключей с блокировкой в порядке ключей, затем обновляются одним batch update.
+     */
+    private int mergeSketches(Map<SketchKey, HyperLogLog> sketches) {
+        if (sketches.isEmpty()) {
+            return 0;
+        }
+        SqlParameterSource[] keys = sketches.keySet().stream()
+                .map(this::toParameters)
+                .toArray(SqlParameterSource[]::new);
+        namedJdbcTemplate.batchUpdate(dialect.isPostgres() ? INSERT_EMPTY_POSTGRES : INSERT_EMPTY_STANDARD, keys);
+
+        Map<SketchKey, byte[]> stored = new TreeMap<>(KEY_ORDER);
+        List<SketchKey> keyList = new ArrayList<>(sketches.keySet());
+        for (int from = 0; from < keyList.size(); from += SELECT_CHUNK) {
+            stored.putAll(findForUpdate(keyList.subList(from, Math.min(from + SELECT_CHUNK, keyList.size()))));
+        }
+        List<SqlParameterSource> updates = new ArrayList<>();
+        for (Map.Entry<SketchKey, HyperLogLog> entry : sketches.entrySet()) {
+            HyperLogLog sketch = entry.getValue();
+            byte[] bytes = stored.get(entry.getKey());
+            if (bytes != null) {
+                sketch = HyperLogLog.fromBytes(bytes).merge(sketch);
+            }
+            updates.add(toParameters(entry.getKey()).addValue("sketch", sketch.toBytes()));
+        }
+        String updateSql = "update hit_sketches set sketch = :sketch " +
+                "where granularity = :granularity and app_id = :app_id and bucket_start = :bucket_start";
+        namedJdbcTemplate.batchUpdate(updateSql, updates.toArray(SqlParameterSource[]::new));
+        return updates.size();
+    }
+
+    private Map<SketchKey, byte[]> findForUpdate(List<SketchKey> keys) {
+        List<String> conditions = new ArrayList<>();
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        for (int i = 0; i < keys.size(); i++) {
+            SketchKey key = keys.get(i);
+            parameters.addValue("granularity" + i, key.granularity.name());
+            parameters.addValue("app_id" + i, key.appId);
+            parameters.addValue("bucket_start" + i, Timestamp.valueOf(key.bucketStart));
+            conditions.add(String.format(
+                    "(granularity = :granularity%d and app_id = :app_id%d and bucket_start = :bucket_start%d)",
+                    i, i, i));
+        }
+        String sql = "select granularity, app_id, bucket_start, sketch from hit_sketches " +
+                "where " + String.join(" or ", conditions) + " " +
+                "order by granularity, app_id, bucket_start " +
+                "for update";
+        Map<SketchKey, byte[]> stored = new TreeMap<>(KEY_ORDER);
+        namedJdbcTemplate.query(sql, parameters,
+                rs -> {
+                    byte[] sketch = rs.getBytes("sketch");
+                    if (sketch != null) {
+                        stored.put(new SketchKey(Granularity.valueOf(rs.getString("granularity")),
+                                rs.getLong("app_id"), rs.getTimestamp("bucket_start").toLocalDateTime()), sketch);
+                    }
+                });
+        return stored;
+    }
+
+    private Map<Long, Long> getUniqueViews(Instant start, Instant end, List<Long> appIds) {
+        List<TimeSlice> slices = TimeBuckets.split(toLocal(start), toLocal(end), Granularity.HOUR);
+        List<String> sketchConditions = new ArrayList<>();
+        List<String> rawConditions = new ArrayList<>();
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        for (int i = 0; i < slices.size(); i++) {
+            TimeSlice slice = slices.get(i);
+            parameters.addValue("from" + i, Timestamp.valueOf(slice.getFrom()));
+            parameters.addValue("to" + i, Timestamp.valueOf(slice.getTo()));
+            if (slice.getGranularity() == null) {
+                rawConditions.add(String.format("(timestamp >= :from%d and timestamp %s :to%d)",
+                        i, slice.isToInclusive() ? "<=" : "<", i));
+            } else {
+                parameters.addValue("granularity" + i, slice.getGranularity().name());
+                sketchConditions.add(String.format(
+                        "(granularity = :granularity%d and bucket_start >= :from%d and bucket_start < :to%d)",
+                        i, i, i));
+            }
+        }
+        String appCondition = "";
+        if (appIds != null) {
+            appCondition = "AND app_id in (:appIds) ";
+            parameters.addValue("appIds", appIds);
+        }
+
+        Map<Long, HyperLogLog> sketchesByAppId = new HashMap<>();
+        if (!sketchConditions.isEmpty()) {
+            String sql = "select app_id, sketch from hit_sketches " +
+                    "where (" + String.join(" or ", sketchConditions) + ") " +
+                    "AND sketch is not null " +
+                    appCondition;
+            namedJdbcTemplate.query(sql, parameters,
+                    rs -> {
+                        HyperLogLog sketch = HyperLogLog.fromBytes(rs.getBytes("sketch"));
+                        sketchesByAppId.merge(rs.getLong("app_id"), sketch, HyperLogLog::merge);
+                    });
+        }
+        String sql = "select app_id, ip from hits " +
+                "where (" + String.join(" or ", rawConditions) + ") " +
+                appCondition +
+                "group by app_id, ip";
+        namedJdbcTemplate.query(sql, parameters,
+                rs -> {
+                    sketchesByAppId.computeIfAbsent(rs.getLong("app_id"), appId -> new HyperLogLog(precision))
+                            .add(rs.getString("ip"));
+                });
+
+        Map<Long, Long> viewsByAppId = new HashMap<>();
+        sketchesByAppId.forEach((appId, sketch) -> viewsByAppId.put(appId, sketch.estimate()));
+        return viewsByAppId;
+    }
+
+    private MapSqlParameterSource toParameters(SketchKey key) {
+        return new MapSqlParameterSource()
+                .addValue("granularity", key.granularity.name())
+                .addValue("app_id", key.appId)
+                .addValue("bucket_start", Timestamp.valueOf(key.bucketStart));
+    }
+
+    @AllArgsConstructor
+    private static class SketchKey {
+        private final Granularity granularity;
+        private final long appId;
+        private final LocalDateTime bucketStart;
+    }
+}
@@ -0,0 +1,15 @@
+package ru.practicum.repository;
+
+import ru.practicum.model.EndpointHit;
+
+import java.util.List;
+
+public interface PendingHitRepository {
+    void addHits(List<EndpointHit> endpointHits);
+
+    List<EndpointHit> lockBatch(int size);
+
+    void deleteByIds(List<Long> ids);
+
+    long count();
+}
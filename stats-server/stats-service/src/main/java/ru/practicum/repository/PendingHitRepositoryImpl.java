@@ -0,0 +1,53 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.EndpointHit;
+
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class PendingHitRepositoryImpl implements PendingHitRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final DatabaseDialect dialect;
+
+    @Override
+    public void addHits(List<EndpointHit> endpointHits) {
+        String sql = "insert into pending_hits (app_id, ip, timestamp) values (:app_id, :ip, :timestamp)";
+        SqlParameterSource[] batch = endpointHits.stream()
+                .map(EndpointHit::toMap)
+                .map(MapSqlParameterSource::new)
+                .toArray(SqlParameterSource[]::new);
+        namedJdbcTemplate.batchUpdate(sql, batch);
+    }
+
+    //В PostgreSQL строки, заблокированные слиянием другого экземпляра, пропускаются; H2 ждет их освобождения
+    @Override
+    public List<EndpointHit> lockBatch(int size) {
+        String sql = "select id, app_id, ip, timestamp from pending_hits order by id limit ? for update" +
+                (dialect.isPostgres() ? " skip locked" : "");
+        return jdbcTemplate.query(sql, (rs, rowNum) -> EndpointHit.builder()
+                .id(rs.getLong("id"))
+                .appId(rs.getLong("app_id"))
+                .ip(rs.getString("ip"))
+                .timestamp(rs.getTimestamp("timestamp").toInstant())
+                .build(), size);
+    }
+
+    @Override
+    public void deleteByIds(List<Long> ids) {
+        namedJdbcTemplate.update("delete from pending_hits where id in (:ids)", new MapSqlParameterSource("ids", ids));
+    }
+
+    @Override
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("select count(*) from pending_hits", Long.class);
+        return count == null ? 0 : count;
+    }
+}
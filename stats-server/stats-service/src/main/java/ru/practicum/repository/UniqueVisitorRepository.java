@@ -0,0 +1,17 @@
+package ru.practicum.repository;
+
+import ru.practicum.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface UniqueVisitorRepository {
+    List<Long> addVisitors(List<EndpointHit> endpointHits);
+
+    Map<Long, Long> getVisitorsByAppId(List<Long> appIds);
+
+    Map<Long, Long> getVisitorsByAppName(String app);
+
+    int deleteSeenBefore(LocalDateTime day);
+}
@@ -0,0 +1,118 @@
+package ru.practicum.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.Granularity;
+import ru.practicum.util.TimeBuckets;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+@Repository
+@RequiredArgsConstructor
+public class UniqueVisitorRepositoryImpl implements UniqueVisitorRepository {
+    private static final int CHUNK_SIZE = 1000;
+    private static final String INSERT_POSTGRES = "insert into unique_visitors (app_id, ip, last_seen) values %s " +
+            "on conflict do nothing returning app_id";
+    private static final String INSERT_STANDARD = "select app_id from final table (" +
+            "merge into unique_visitors u using (values %s) s (app_id, ip, last_seen) " +
+            "on u.app_id = s.app_id and u.ip = s.ip " +
+            "when not matched then insert (app_id, ip, last_seen) values (s.app_id, s.ip, s.last_seen))";
+    //День последнего просмотра меняется не чаще раза в сутки на посетителя
+    private static final String TOUCH = "update unique_visitors set last_seen = :last_seen " +
+            "where app_id = :app_id and ip = :ip and last_seen < :last_seen";
+    private static final Comparator<Visitor> VISITOR_ORDER = Comparator
+            .comparingLong((Visitor visitor) -> visitor.appId)
+            .thenComparing(visitor -> visitor.ip);
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final DatabaseDialect dialect;
+
+    @Override
+    public List<Long> addVisitors(List<EndpointHit> endpointHits) {
+        //Пары сортируются, чтобы параллельные пакеты блокировали строки в одном порядке
+        Map<Visitor, LocalDateTime> lastSeenByVisitor = new TreeMap<>(VISITOR_ORDER);
+        endpointHits.forEach(hit -> lastSeenByVisitor.merge(new Visitor(hit.getAppId(), hit.getIp()),
+                TimeBuckets.bucketStart(hit.getTimestamp(), Granularity.DAY),
+                (first, second) -> first.isAfter(second) ? first : second));
+        List<Map.Entry<Visitor, LocalDateTime>> ordered = new ArrayList<>(lastSeenByVisitor.entrySet());
+        Set<Long> appIds = new LinkedHashSet<>();
+        for (int from = 0; from < ordered.size(); from += CHUNK_SIZE) {
+            appIds.addAll(insertNew(ordered.subList(from, Math.min(from + CHUNK_SIZE, ordered.size()))));
+        }
+        SqlParameterSource[] touches = ordered.stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("app_id", entry.getKey().appId)
+                        .addValue("ip", entry.getKey().ip)
+                        .addValue("last_seen", Timestamp.valueOf(entry.getValue())))
+                .toArray(SqlParameterSource[]::new);
+        namedJdbcTemplate.batchUpdate(TOUCH, touches);
+        return new ArrayList<>(appIds);
+    }
+
+    @Override
+    public int deleteSeenBefore(LocalDateTime day) {
+        return namedJdbcTemplate.update("delete from unique_visitors where last_seen < :day",
+                new MapSqlParameterSource("day", Timestamp.valueOf(day)));
+    }
+
+    @Override
+    public Map<Long, Long> getVisitorsByAppId(List<Long> appIds) {
+        String sql = "select app_id, COUNT(*) as visitors from unique_visitors " +
+                "where app_id in (:appIds) " +
+                "group by app_id";
+        return getVisitors(sql, new MapSqlParameterSource("appIds", appIds));
+    }
+
+    @Override
+    public Map<Long, Long> getVisitorsByAppName(String app) {
+        String sql = "select uv.app_id, COUNT(*) as visitors from unique_visitors uv " +
+                "join apps a on a.id = uv.app_id " +
+                "where a.name = :app " +
+                "group by uv.app_id";
+        return getVisitors(sql, new MapSqlParameterSource("app", app));
+    }
+
+    private List<Long> insertNew(List<Map.Entry<Visitor, LocalDateTime>> visitors) {
+        List<String> values = new ArrayList<>();
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        for (int i = 0; i < visitors.size(); i++) {
+            values.add(String.format("(cast(:app_id%d as bigint), cast(:ip%d as varchar(46)), " +
+                    "cast(:last_seen%d as timestamp))", i, i, i));
+            parameters.addValue("app_id" + i, visitors.get(i).getKey().appId);
+            parameters.addValue("ip" + i, visitors.get(i).getKey().ip);
+            parameters.addValue("last_seen" + i, Timestamp.valueOf(visitors.get(i).getValue()));
+        }
+        String sql = String.format(dialect.isPostgres() ? INSERT_POSTGRES : INSERT_STANDARD,
+                String.join(", ", values));
+        return namedJdbcTemplate.queryForList(sql, parameters, Long.class);
+    }
+
+    private Map<Long, Long> getVisitors(String sql, MapSqlParameterSource parameters) {
+        Map<Long, Long> visitorsByAppId = new HashMap<>();
+        namedJdbcTemplate.query(sql, parameters,
+                rs -> {
+                    visitorsByAppId.put(rs.getLong("app_id"), rs.getLong("visitors"));
+                });
+        return visitorsByAppId;
+    }
+
+    @AllArgsConstructor
+    private static class Visitor {
+        private final long appId;
+        private final String ip;
+    }
+}
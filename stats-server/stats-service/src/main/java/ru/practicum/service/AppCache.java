@@ -0,0 +1,115 @@
+package ru.practicum.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.model.App;
+import ru.practicum.repository.AppRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+@Slf4j
+public class AppCache {
+    private static final int FIND_OR_ADD_ATTEMPTS = 3;
+
+    private final AppRepository appRepo;
+    private final Cache<App, Long> idsByApp;
+    private final Cache<Long, App> appsById;
+    private final int maxSize;
+
+    public AppCache(AppRepository appRepo,
+                    @Value("${stats.apps.cache.max-size:10000}") int maxSize) {
+        this.appRepo = appRepo;
+        this.maxSize = maxSize;
+        this.idsByApp = Caffeine.newBuilder().maximumSize(maxSize).build();
+        this.appsById = Caffeine.newBuilder().maximumSize(maxSize).build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        List<App> apps = appRepo.findAll(maxSize);
+        putAll(apps);
+        log.info("В кэш загружено {} uri", apps.size());
+    }
+
+    /*
+     * Новый uri ищется и добавляется в транзакции вызывающего, без отдельного соединения
+     * и без блокировки кэша на время запроса. В кэш id попадает только после коммита,
+     * чтобы не запомнить строку, которая будет откачена.
+     */
+    public long getOrAddId(String name, String uri) {
+        App key = App.builder()
+                .name(name)
+                .uri(uri)
+                .build();
+        Long cached = idsByApp.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        App app = App.builder()
+                .id(findOrAdd(key))
+                .name(name)
+                .uri(uri)
+                .build();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    putAll(List.of(app));
+                }
+            });
+        } else {
+            putAll(List.of(app));
+        }
+        return app.getId();
+    }
+
+    public List<App> getByIds(List<Long> ids) {
+        Map<Long, App> apps = appsById.getAll(ids, missingIds -> {
+            List<Long> idsToLoad = new ArrayList<>();
+            missingIds.forEach(idsToLoad::add);
+            return appRepo.getAppsByIds(idsToLoad).stream()
+                    .collect(Collectors.toMap(App::getId, Function.identity()));
+        });
+        return new ArrayList<>(apps.values());
+    }
+
+    public void putAll(List<App> apps) {
+        apps.forEach(app -> {
+            idsByApp.put(App.builder().name(app.getName()).uri(app.getUri()).build(), app.getId());
+            appsById.put(app.getId(), app);
+        });
+    }
+
+    /*
+     * Вставка не возвращает id, если uri добавляет параллельная транзакция. Та может еще откатиться,
+     * тогда поиск ничего не найдет и попытка повторяется.
+     */
+    private long findOrAdd(App app) {
+        for (int attempt = 0; attempt < FIND_OR_ADD_ATTEMPTS; attempt++) {
+            List<App> apps = appRepo.findByAppAndUri(app.getName(), app.getUri());
+            if (!apps.isEmpty()) {
+                return apps.get(0).getId();
+            }
+            List<Long> added = appRepo.addIfAbsent(app);
+            if (!added.isEmpty()) {
+                log.debug("Добавлен uri {} сервиса {}", app.getUri(), app.getName());
+                return added.get(0);
+            }
+            log.debug("Uri {} сервиса {} уже добавлен другим запросом", app.getUri(), app.getName());
+        }
+        throw new IllegalStateException(String.format("Не удалось найти или добавить uri %s сервиса %s за %d попыток",
+                app.getUri(), app.getName(), FIND_OR_ADD_ATTEMPTS));
+    }
+}
@@ -0,0 +1,39 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.repository.HitRollupRepository;
+import ru.practicum.repository.HitSketchRepository;
+
+import javax.annotation.PostConstruct;
+
+@Component
+@Slf4j
+public class HitRollupBackfill {
+    private final HitRollupRepository rollupRepo;
+    private final HitSketchRepository sketchRepo;
+    private final TransactionTemplate transaction;
+
+    public HitRollupBackfill(HitRollupRepository rollupRepo,
+                             HitSketchRepository sketchRepo,
+                             PlatformTransactionManager transactionManager) {
+        this.rollupRepo = rollupRepo;
+        this.sketchRepo = sketchRepo;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    //Выполняется до запуска веб-сервера, поэтому новые просмотры не попадут в агрегаты дважды
+    @PostConstruct
+    public void backfill() {
+        Integer inserted = transaction.execute(status -> rollupRepo.backfillIfEmpty());
+        if (inserted != null && inserted > 0) {
+            log.info("Агрегаты просмотров заполнены по истории: {} записей", inserted);
+        }
+        Integer sketches = transaction.execute(status -> sketchRepo.backfillIfEmpty());
+        if (sketches != null && sketches > 0) {
+            log.info("HyperLogLog уникальных просмотров заполнены по истории: {} записей", sketches);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package ru.practicum.service;
 
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.model.UniqueMode;
 
 import java.util.List;
 
@@ -9,5 +10,9 @@ public interface StatsService {
 
     void addHit(EndpointHitDto endpointHitDto);
 
-    List<ViewStatsDto> getStats(String start, String end, List<String> uris, boolean unique);
+    void addHits(List<EndpointHitDto> endpointHitDtos);
+
+    List<ViewStatsDto> getStats(String start, String end, List<String> uris, UniqueMode unique);
+
+    List<ViewStatsDto> getViewCounters(String app);
 }
@@ -4,18 +4,24 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.aggregation.HitAggregator;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.ViewStatsDto;
 import ru.practicum.mapper.AppMapper;
 import ru.practicum.mapper.EndpointHitMapper;
 import ru.practicum.model.App;
 import ru.practicum.model.EndpointHit;
+import ru.practicum.model.UniqueMode;
 import ru.practicum.repository.AppRepository;
 import ru.practicum.repository.EndPointHitRepository;
+import ru.practicum.repository.HitRollupRepository;
+import ru.practicum.repository.HitSketchRepository;
+import ru.practicum.repository.UniqueVisitorRepository;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -29,33 +35,45 @@ import static ru.practicum.util.DateTime.*;
 public class StatsServiceImpl implements StatsService {
     private final EndPointHitRepository hitRepo;
     private final AppRepository appRepo;
+    private final AppCache appCache;
+    private final HitRollupRepository rollupRepo;
+    private final HitSketchRepository sketchRepo;
+    private final HitAggregator aggregator;
+    private final UniqueVisitorRepository visitorRepo;
 
     @Override
     @Transactional
     public void addHit(EndpointHitDto endpointHitDto) {
         String name = endpointHitDto.getApp();
         String uri = endpointHitDto.getUri();
-        long appId;
-
-        List<App> apps = appRepo.findByAppAndUri(name, uri);
-
-        if (apps.isEmpty()) {
-            App appToAdd = App.builder()
-                    .name(name)
-                    .uri(uri)
-                    .build();
-            appId = appRepo.add(appToAdd);
-        } else {
-            appId = apps.get(0).getId();
-        }
+        long appId = appCache.getOrAddId(name, uri);
 
         EndpointHit endpointHit = EndpointHitMapper.toEndpointHit(endpointHitDto, appId);
         hitRepo.addEndpointHit(endpointHit);
+        aggregator.add(List.of(endpointHit));
         log.debug("Пользователь {} просмотрел uri {} сервиса {}", endpointHit.getIp(), uri, name);
     }
 
     @Override
-    public List<ViewStatsDto> getStats(String startEncoded, String endEncoded, List<String> uris, boolean unique) {
+    @Transactional
+    public void addHits(List<EndpointHitDto> endpointHitDtos) {
+        if (endpointHitDtos.isEmpty()) {
+            return;
+        }
+        //Каждый uri пакета разрешается один раз: новый uri до коммита в кэш не попадает
+        Map<App, Long> idsByApp = new HashMap<>();
+        List<EndpointHit> endpointHits = endpointHitDtos.stream()
+                .map(dto -> EndpointHitMapper.toEndpointHit(dto, idsByApp.computeIfAbsent(
+                        App.builder().name(dto.getApp()).uri(dto.getUri()).build(),
+                        app -> appCache.getOrAddId(app.getName(), app.getUri()))))
+                .collect(Collectors.toList());
+        hitRepo.addEndpointHits(endpointHits);
+        aggregator.add(endpointHits);
+        log.debug("Записан пакет из {} просмотров", endpointHits.size());
+    }
+
+    @Override
+    public List<ViewStatsDto> getStats(String startEncoded, String endEncoded, List<String> uris, UniqueMode unique) {
         String startDecoded = decodeDateTime(startEncoded);
         String endDecoded = decodeDateTime(endEncoded);
 
@@ -67,14 +85,14 @@ public class StatsServiceImpl implements StatsService {
         List<Long> appIds;
 
         if (uris.isEmpty()) {
-            viewsByAppId = unique ? hitRepo.getUniqueViewsByAppId(start, end) : hitRepo.getViewsByAppId(start, end);
+            viewsByAppId = countViews(start, end, unique);
             if (viewsByAppId.isEmpty()) {
                 log.debug("Пустой отчет для периода с {} по {}. Уникальные просмотры {}",
                         start, end, unique);
                 return Collections.emptyList();
             }
             appIds = new ArrayList<>(viewsByAppId.keySet());
-            apps = appRepo.getAppsByIds(appIds);
+            apps = appCache.getByIds(appIds);
         } else {
             apps = appRepo.getAppsByUris(uris);
             if (apps.isEmpty()) {
@@ -82,9 +100,9 @@ public class StatsServiceImpl implements StatsService {
                         start, end, uris, unique);
                 return Collections.emptyList();
             }
+            appCache.putAll(apps);
             appIds = apps.stream().map(App::getId).collect(Collectors.toList());
-            viewsByAppId = unique ? hitRepo.getUniqueViewsByAppId(start, end, appIds) :
-                    hitRepo.getViewsByAppId(start, end, appIds);
+            viewsByAppId = countViews(start, end, appIds, unique);
             if (viewsByAppId.isEmpty()) {
                 log.debug("Пустой отчет для периода с {} по {}. Список uri {}. Уникальные просмотры {}",
                         start, end, uris, unique);
@@ -95,4 +113,36 @@ public class StatsServiceImpl implements StatsService {
                 start, end, uris, unique);
         return AppMapper.toViewStatsDtoList(apps, viewsByAppId);
     }
+
+    @Override
+    public List<ViewStatsDto> getViewCounters(String app) {
+        Map<Long, Long> visitorsByAppId = visitorRepo.getVisitorsByAppName(app);
+        if (visitorsByAppId.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<App> apps = appCache.getByIds(new ArrayList<>(visitorsByAppId.keySet()));
+        return AppMapper.toViewStatsDtoList(apps, visitorsByAppId);
+    }
+
+    private Map<Long, Long> countViews(Instant start, Instant end, UniqueMode unique) {
+        switch (unique) {
+            case EXACT:
+                return hitRepo.getUniqueViewsByAppId(start, end);
+            case APPROX:
+                return sketchRepo.getUniqueViewsByAppId(start, end);
+            default:
+                return rollupRepo.getViewsByAppId(start, end);
+        }
+    }
+
+    private Map<Long, Long> countViews(Instant start, Instant end, List<Long> appIds, UniqueMode unique) {
+        switch (unique) {
+            case EXACT:
+                return hitRepo.getUniqueViewsByAppId(start, end, appIds);
+            case APPROX:
+                return sketchRepo.getUniqueViewsByAppId(start, end, appIds);
+            default:
+                return rollupRepo.getViewsByAppId(start, end, appIds);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package ru.practicum.util;
+
+import ru.practicum.model.Granularity;
+import ru.practicum.model.TimeSlice;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TimeBuckets {
+
+    public static LocalDateTime toLocal(Instant instant) {
+        return Timestamp.from(instant).toLocalDateTime();
+    }
+
+    public static LocalDateTime bucketStart(Instant timestamp, Granularity granularity) {
+        return toLocal(timestamp).truncatedTo(granularity.getUnit());
+    }
+
+    public static List<TimeSlice> split(LocalDateTime start, LocalDateTime end) {
+        return split(start, end, Granularity.MINUTE);
+    }
+
+    /*
+     * Разбивает [start, end] на целые дни, часы и минуты (начиная с finest).
+     * Неполные интервалы по краям диапазона возвращаются как слайсы без гранулярности.
+     */
+    public static List<TimeSlice> split(LocalDateTime start, LocalDateTime end, Granularity finest) {
+        List<TimeSlice> slices = new ArrayList<>();
+        LocalDateTime alignedStart = ceil(start, finest.getUnit());
+        LocalDateTime alignedEnd = end.truncatedTo(finest.getUnit());
+        if (!alignedStart.isBefore(alignedEnd)) {
+            slices.add(raw(start, end, true));
+            return slices;
+        }
+        if (start.isBefore(alignedStart)) {
+            slices.add(raw(start, alignedStart, false));
+        }
+        splitAligned(alignedStart, alignedEnd, finest, slices);
+        slices.add(raw(alignedEnd, end, true));
+        return slices;
+    }
+
+    private static void splitAligned(LocalDateTime start, LocalDateTime end, Granularity granularity,
+                                     List<TimeSlice> slices) {
+        Granularity coarser = granularity == Granularity.MINUTE ? Granularity.HOUR :
+                granularity == Granularity.HOUR ? Granularity.DAY : null;
+        if (coarser != null) {
+            LocalDateTime coarseStart = ceil(start, coarser.getUnit());
+            LocalDateTime coarseEnd = end.truncatedTo(coarser.getUnit());
+            if (coarseStart.isBefore(coarseEnd)) {
+                addBuckets(start, coarseStart, granularity, slices);
+                splitAligned(coarseStart, coarseEnd, coarser, slices);
+                addBuckets(coarseEnd, end, granularity, slices);
+                return;
+            }
+        }
+        addBuckets(start, end, granularity, slices);
+    }
+
+    private static void addBuckets(LocalDateTime from, LocalDateTime to, Granularity granularity,
+                                   List<TimeSlice> slices) {
+        if (from.isBefore(to)) {
+            slices.add(TimeSlice.builder()
+                    .granularity(granularity)
+                    .from(from)
+                    .to(to)
+                    .build());
+        }
+    }
+
+    private static TimeSlice raw(LocalDateTime from, LocalDateTime to, boolean toInclusive) {
+        return TimeSlice.builder()
+                .from(from)
+                .to(to)
+                .toInclusive(toInclusive)
+                .build();
+    }
+
+    private static LocalDateTime ceil(LocalDateTime dateTime, ChronoUnit unit) {
+        LocalDateTime truncated = dateTime.truncatedTo(unit);
+        return truncated.equals(dateTime) ? truncated : truncated.plus(1, unit);
+    }
+}
@@ -0,0 +1,150 @@
+package ru.practicum.views;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.mapper.AppMapper;
+import ru.practicum.repository.UniqueVisitorRepository;
+import ru.practicum.service.AppCache;
+import ru.practicum.service.StatsService;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Component
+@Slf4j
+public class ViewCounterBroadcaster {
+    static final String SNAPSHOT = "snapshot";
+    static final String VIEWS = "views";
+
+    private final StatsService service;
+    private final UniqueVisitorRepository visitorRepo;
+    private final AppCache appCache;
+    private final ViewStreamProperties properties;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    //Все отправки идут через один поток, поэтому подписчик получает события в порядке их появления
+    private final ScheduledExecutorService executor;
+
+    public ViewCounterBroadcaster(StatsService service,
+                                  UniqueVisitorRepository visitorRepo,
+                                  AppCache appCache,
+                                  ViewStreamProperties properties,
+                                  MeterRegistry registry) {
+        this.service = service;
+        this.visitorRepo = visitorRepo;
+        this.appCache = appCache;
+        this.properties = properties;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "view-counter-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long heartbeat = properties.getHeartbeat().toMillis();
+        executor.scheduleWithFixedDelay(this::heartbeat, heartbeat, heartbeat, TimeUnit.MILLISECONDS);
+        Gauge.builder("stats.views.stream.subscribers", subscriptions, List::size).register(registry);
+    }
+
+    public SseEmitter subscribe(String app) {
+        SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+        Subscription subscription = new Subscription(app, emitter);
+        subscriptions.add(subscription);
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(() -> subscriptions.remove(subscription));
+        emitter.onError(e -> subscriptions.remove(subscription));
+        executor.execute(() -> sendSnapshot(subscription));
+        log.debug("Подписка на счетчики просмотров сервиса {}", app);
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onCountersChanged(ViewCountersChangedEvent event) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        executor.execute(() -> publish(event.getAppIds()));
+    }
+
+    //Уменьшившиеся счетчики не приходят как изменения, поэтому подписчики получают все счетчики заново
+    @TransactionalEventListener
+    public void onCountersReset(ViewCountersResetEvent event) {
+        subscriptions.forEach(subscription -> executor.execute(() -> sendSnapshot(subscription)));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+        subscriptions.clear();
+    }
+
+    private void publish(List<Long> appIds) {
+        List<ViewStatsDto> counters;
+        try {
+            Map<Long, Long> visitorsByAppId = visitorRepo.getVisitorsByAppId(appIds);
+            counters = AppMapper.toViewStatsDtoList(appCache.getByIds(appIds), visitorsByAppId);
+        } catch (RuntimeException e) {
+            log.error("Не удалось получить счетчики просмотров: {}", e.getMessage(), e);
+            return;
+        }
+        Map<String, List<ViewStatsDto>> countersByApp = counters.stream()
+                .collect(Collectors.groupingBy(ViewStatsDto::getApp));
+        subscriptions.forEach(subscription -> {
+            List<ViewStatsDto> changed = countersByApp.get(subscription.app);
+            if (changed != null) {
+                send(subscription, VIEWS, changed);
+            }
+        });
+    }
+
+    private void sendSnapshot(Subscription subscription) {
+        try {
+            send(subscription, SNAPSHOT, service.getViewCounters(subscription.app));
+        } catch (RuntimeException e) {
+            log.error("Не удалось отправить счетчики просмотров сервиса {}: {}", subscription.app, e.getMessage(), e);
+            subscriptions.remove(subscription);
+            subscription.emitter.completeWithError(e);
+        }
+    }
+
+    private void heartbeat() {
+        subscriptions.forEach(subscription -> {
+            try {
+                subscription.emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                drop(subscription, e);
+            }
+        });
+    }
+
+    private void send(Subscription subscription, String name, List<ViewStatsDto> counters) {
+        try {
+            subscription.emitter.send(SseEmitter.event().name(name).data(counters));
+        } catch (IOException | IllegalStateException e) {
+            drop(subscription, e);
+        }
+    }
+
+    private void drop(Subscription subscription, Exception e) {
+        log.debug("Подписчик на счетчики просмотров сервиса {} отключен: {}", subscription.app, e.getMessage());
+        subscriptions.remove(subscription);
+        subscription.emitter.completeWithError(e);
+    }
+
+    @AllArgsConstructor
+    private static class Subscription {
+        private final String app;
+        private final SseEmitter emitter;
+    }
+}
@@ -0,0 +1,12 @@
+package ru.practicum.views;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class ViewCountersChangedEvent {
+    private final List<Long> appIds;
+}
@@ -0,0 +1,5 @@
+package ru.practicum.views;
+
+//Счетчики могли уменьшиться, например после удаления устаревших посетителей
+public class ViewCountersResetEvent {
+}
@@ -12,4 +12,4 @@ CREATE TABLE IF NOT EXISTS hits
     ip        VARCHAR(46) NOT NULL,
     timestamp TIMESTAMP WITHOUT TIME ZONE,
     CONSTRAINT fk_hits_to_apps FOREIGN KEY (app_id) REFERENCES apps (id) ON DELETE CASCADE
-)
\ No newline at end of file
+);
@@ -0,0 +1,19 @@
+CREATE TABLE IF NOT EXISTS hit_rollups
+(
+    granularity  VARCHAR(6) NOT NULL,
+    app_id       BIGINT     NOT NULL,
+    bucket_start TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits         BIGINT     NOT NULL,
+    CONSTRAINT pk_hit_rollups PRIMARY KEY (granularity, app_id, bucket_start),
+    CONSTRAINT fk_hit_rollups_to_apps FOREIGN KEY (app_id) REFERENCES apps (id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS hit_sketches
+(
+    granularity  VARCHAR(6) NOT NULL,
+    app_id       BIGINT     NOT NULL,
+    bucket_start TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    sketch       BYTEA,
+    CONSTRAINT pk_hit_sketches PRIMARY KEY (granularity, app_id, bucket_start),
+    CONSTRAINT fk_hit_sketches_to_apps FOREIGN KEY (app_id) REFERENCES apps (id) ON DELETE CASCADE
+);
@@ -0,0 +1,17 @@
+CREATE TABLE IF NOT EXISTS unique_visitors
+(
+    app_id    BIGINT      NOT NULL,
+    ip        VARCHAR(46) NOT NULL,
+    last_seen TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_unique_visitors PRIMARY KEY (app_id, ip),
+    CONSTRAINT fk_unique_visitors_to_apps FOREIGN KEY (app_id) REFERENCES apps (id) ON DELETE CASCADE
+);
+
+-- По last_seen (день последнего просмотра) посетители удаляются вместе с устаревшими секциями просмотров
+CREATE INDEX IF NOT EXISTS ix_unique_visitors_last_seen ON unique_visitors (last_seen);
+
+INSERT INTO unique_visitors (app_id, ip, last_seen)
+SELECT app_id, ip, CAST(MAX(timestamp) AS DATE)
+FROM hits
+WHERE timestamp IS NOT NULL
+GROUP BY app_id, ip;
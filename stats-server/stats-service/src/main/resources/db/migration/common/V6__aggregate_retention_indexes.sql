@@ -0,0 +1,2 @@
+CREATE INDEX IF NOT EXISTS ix_hit_rollups_granularity_bucket_start ON hit_rollups (granularity, bucket_start);
+CREATE INDEX IF NOT EXISTS ix_hit_sketches_granularity_bucket_start ON hit_sketches (granularity, bucket_start);
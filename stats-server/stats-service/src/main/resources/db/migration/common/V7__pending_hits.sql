@@ -0,0 +1,17 @@
+-- Просмотры, еще не учтенные в агрегатах, набросках и посетителях. Строка пишется в транзакции
+-- записи просмотра и удаляется в транзакции, добавившей просмотр в агрегаты, поэтому просмотр
+-- не теряется и не учитывается дважды
+CREATE TABLE IF NOT EXISTS pending_hits
+(
+    id        BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    app_id    BIGINT      NOT NULL,
+    ip        VARCHAR(46) NOT NULL,
+    timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT fk_pending_hits_to_apps FOREIGN KEY (app_id) REFERENCES apps (id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS ix_pending_hits_timestamp ON pending_hits (timestamp);
+
+-- Просмотры, потерянные прежним слиянием из памяти, не попали в агрегаты. Агрегаты пересчитываются
+-- по истории при запуске сервиса (HitRollupBackfill), пока таблица пуста
+DELETE FROM hit_rollups;
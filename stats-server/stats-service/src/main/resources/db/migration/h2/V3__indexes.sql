@@ -0,0 +1,14 @@
+-- Дубликаты (name, uri) сводятся к записи с наименьшим id до создания уникального индекса
+UPDATE hits h
+SET app_id = (SELECT MIN(d.id) FROM apps a JOIN apps d ON d.name = a.name AND d.uri = a.uri WHERE a.id = h.app_id)
+WHERE app_id IN (SELECT a.id FROM apps a WHERE EXISTS(
+        SELECT 1 FROM apps d WHERE d.name = a.name AND d.uri = a.uri AND d.id < a.id));
+
+DELETE FROM apps a
+WHERE EXISTS(SELECT 1 FROM apps d WHERE d.name = a.name AND d.uri = a.uri AND d.id < a.id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_app_name_uri ON apps (name, uri);
+CREATE INDEX IF NOT EXISTS ix_apps_uri ON apps (uri);
+
+CREATE INDEX IF NOT EXISTS ix_hits_app_id_timestamp ON hits (app_id, timestamp, ip);
+CREATE INDEX IF NOT EXISTS ix_hits_timestamp ON hits (timestamp);
@@ -0,0 +1,23 @@
+-- Дубликаты (name, uri) сводятся к записи с наименьшим id до создания уникального индекса.
+-- Агрегаты из V2 здесь еще пусты: они заполняются по истории после миграций
+CREATE TEMPORARY TABLE app_duplicates ON COMMIT DROP AS
+SELECT id, keep_id
+FROM (SELECT id, MIN(id) OVER (PARTITION BY name, uri) AS keep_id FROM apps) a
+WHERE id <> keep_id;
+
+UPDATE hits h
+SET app_id = d.keep_id
+FROM app_duplicates d
+WHERE h.app_id = d.id;
+
+DELETE FROM apps a
+USING app_duplicates d
+WHERE a.id = d.id;
+
+-- uri до 2048 символов может не поместиться в строку btree-индекса, поэтому uri индексируется хешем.
+-- Поиск по (name, uri) идет по ix_apps_uri, уникальный индекс нужен для вставки без дубликатов
+CREATE UNIQUE INDEX IF NOT EXISTS uq_app_name_uri ON apps (name, md5(uri));
+CREATE INDEX IF NOT EXISTS ix_apps_uri ON apps USING hash (uri);
+
+CREATE INDEX IF NOT EXISTS ix_hits_app_id_timestamp ON hits (app_id, timestamp) INCLUDE (ip);
+CREATE INDEX IF NOT EXISTS ix_hits_timestamp ON hits (timestamp);
@@ -0,0 +1,63 @@
+-- Секционированная таблица требует время просмотра. Строки без времени не переносятся молча:
+-- миграция останавливается, и их нужно удалить или заполнить время вручную до повторного запуска
+DO
+$$
+    DECLARE
+        missing BIGINT;
+    BEGIN
+        SELECT COUNT(*) INTO missing FROM hits WHERE timestamp IS NULL;
+        IF missing > 0 THEN
+            RAISE EXCEPTION 'В таблице hits % просмотров без времени, перенести их в секции нельзя', missing
+                USING HINT = 'Удалите эти строки или заполните timestamp, затем повторите миграцию';
+        END IF;
+    END
+$$;
+
+ALTER TABLE hits RENAME TO hits_legacy;
+
+CREATE TABLE hits
+(
+    id        BIGINT GENERATED ALWAYS AS IDENTITY,
+    app_id    BIGINT      NOT NULL,
+    ip        VARCHAR(46) NOT NULL,
+    timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_hits PRIMARY KEY (id, timestamp),
+    CONSTRAINT fk_hits_to_apps_partitioned FOREIGN KEY (app_id) REFERENCES apps (id) ON DELETE CASCADE
+) PARTITION BY RANGE (timestamp);
+
+-- История раскладывается по месячным секциям, чтобы секция по умолчанию оставалась пустой
+-- и устаревшие месяцы можно было отсоединить или удалить целиком
+DO
+$$
+    DECLARE
+        month DATE;
+    BEGIN
+        FOR month IN SELECT DISTINCT date_trunc('month', timestamp)::date
+                     FROM hits_legacy
+            LOOP
+                EXECUTE format('CREATE TABLE %I PARTITION OF hits FOR VALUES FROM (%L) TO (%L)',
+                               'hits_p' || to_char(month, 'YYYYMM'), month, (month + interval '1 month')::date);
+            END LOOP;
+    END
+$$;
+
+INSERT INTO hits (id, app_id, ip, timestamp) OVERRIDING SYSTEM VALUE
+SELECT id, app_id, ip, timestamp
+FROM hits_legacy;
+
+CREATE TABLE hits_default PARTITION OF hits DEFAULT;
+
+DO
+$$
+    DECLARE
+        next_id BIGINT;
+    BEGIN
+        SELECT COALESCE(MAX(id), 0) + 1 INTO next_id FROM hits;
+        EXECUTE format('ALTER TABLE hits ALTER COLUMN id RESTART WITH %s', next_id);
+    END
+$$;
+
+DROP TABLE hits_legacy;
+
+CREATE INDEX ix_hits_app_id_timestamp ON hits (app_id, timestamp) INCLUDE (ip);
+CREATE INDEX ix_hits_timestamp ON hits (timestamp);
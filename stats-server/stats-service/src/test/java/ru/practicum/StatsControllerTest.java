@@ -11,7 +11,11 @@ import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.controller.StatsController;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.ingestion.HitIngestionService;
+import ru.practicum.ingestion.IngestionQueueFullException;
+import ru.practicum.model.UniqueMode;
 import ru.practicum.service.StatsService;
+import ru.practicum.views.ViewCounterBroadcaster;
 
 import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
@@ -21,7 +25,11 @@ import java.util.List;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -33,8 +41,10 @@ import static ru.practicum.util.DateTime.encodeDate;
 @WebMvcTest(controllers = StatsController.class)
 class StatsControllerTest {
     private static final String PATH_HIT = "/hit";
+    private static final String PATH_HITS = "/hits";
     private static final String PATH_STATS = "/stats";
-    private static final boolean UNIQUE_DEFAULT = false;
+    private static final String PATH_VIEWS = "/views";
+    private static final UniqueMode UNIQUE_DEFAULT = UniqueMode.NONE;
     private static final List<String> URIS_DEFAULT = Collections.emptyList();
     private static final LocalDateTime NOW = LocalDateTime.now();
 
@@ -50,6 +60,12 @@ class StatsControllerTest {
     @MockBean
     StatsService service;
 
+    @MockBean
+    HitIngestionService ingestionService;
+
+    @MockBean
+    ViewCounterBroadcaster broadcaster;
+
     @Autowired
     private MockMvc mvc;
 
@@ -84,12 +100,35 @@ class StatsControllerTest {
         String json = mapper
                 .setDateFormat(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"))
                 .writeValueAsString(hitDto);
-        doNothing().when(service).addHit(hitDto);
+        doNothing().when(ingestionService).add(hitDto);
         mvc.perform(post(PATH_HIT)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(json))
                 .andDo(print())
                 .andExpect(status().isCreated());
+
+        //Queue Is Full
+        doThrow(new IngestionQueueFullException("Очередь записи просмотров переполнена"))
+                .when(ingestionService).add(any());
+        mvc.perform(post(PATH_HIT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andDo(print())
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void shouldAddBatch() throws Exception {
+        List<EndpointHitDto> hitDtos = List.of(hitDtoBuilder.build(), hitDtoBuilder.uri("/events/2").build());
+        String json = mapper
+                .setDateFormat(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"))
+                .writeValueAsString(hitDtos);
+        mvc.perform(post(PATH_HITS)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andDo(print())
+                .andExpect(status().isCreated());
+        verify(ingestionService).addAll(anyList());
     }
 
     @Test
@@ -119,4 +158,42 @@ class StatsControllerTest {
                 .andExpect(jsonPath("$[0].uri", is(viewStatsDto.getUri()), String.class))
                 .andExpect(jsonPath("$[0].hits", is(viewStatsDto.getHits()), Long.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldGetApproxStat() throws Exception {
+        ViewStatsDto viewStatsDto = viewStatsDtoBuilder.hits(1).build();
+        when(service.getStats(start, end, URIS_DEFAULT, UniqueMode.APPROX)).thenReturn(List.of(viewStatsDto));
+        mvc.perform(get(PATH_STATS)
+                        .param("start", start)
+                        .param("end", end)
+                        .param("unique", "approx"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        //Unknown Mode
+        mvc.perform(get(PATH_STATS)
+                        .param("start", start)
+                        .param("end", end)
+                        .param("unique", "maybe"))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldGetViewCounters() throws Exception {
+        ViewStatsDto viewStatsDto = viewStatsDtoBuilder.hits(3).build();
+        when(service.getViewCounters("ewm-main-service")).thenReturn(List.of(viewStatsDto));
+        mvc.perform(get(PATH_VIEWS)
+                        .param("app", "ewm-main-service"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].hits", is(3)));
+
+        //Without App
+        mvc.perform(get(PATH_VIEWS))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,188 @@
+package ru.practicum.aggregation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.Granularity;
+import ru.practicum.repository.HitRollupRepository;
+import ru.practicum.repository.HitSketchRepository;
+import ru.practicum.repository.PendingHitRepository;
+import ru.practicum.repository.UniqueVisitorRepository;
+import ru.practicum.views.ViewCountersChangedEvent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HitAggregatorTest {
+    @Mock
+    private HitRollupRepository rollupRepo;
+
+    @Mock
+    private HitSketchRepository sketchRepo;
+
+    @Mock
+    private UniqueVisitorRepository visitorRepo;
+
+    @Mock
+    private PendingHitRepository pendingRepo;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry registry;
+    private HitAggregationProperties properties;
+    private HitAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        properties = new HitAggregationProperties();
+        properties.setBatchSize(3);
+        properties.setFlushInterval(Duration.ofHours(1));
+        properties.setShutdownTimeout(Duration.ofSeconds(1));
+        aggregator = new HitAggregator(rollupRepo, sketchRepo, visitorRepo, pendingRepo, eventPublisher, properties,
+                transactionManager, registry);
+    }
+
+    @Test
+    void shouldQueueHitsInCallerTransaction() {
+        List<EndpointHit> hits = makeHits(1, 2);
+
+        aggregator.add(hits);
+
+        verify(pendingRepo).addHits(hits);
+        verifyNoInteractions(rollupRepo, sketchRepo, visitorRepo);
+    }
+
+    @Test
+    void shouldMergeAndDeleteBatchInOneFlush() {
+        List<EndpointHit> hits = makeHits(1, 2);
+        when(pendingRepo.lockBatch(3)).thenReturn(hits).thenReturn(List.of());
+
+        aggregator.flush();
+        aggregator.flush();
+
+        verify(rollupRepo, times(1)).addHits(hits);
+        verify(sketchRepo, times(1)).addHits(hits);
+        verify(visitorRepo, times(1)).addVisitors(hits);
+        verify(pendingRepo, times(1)).deleteByIds(List.of(1L, 2L));
+        assertEquals(0, registry.get("stats.aggregation.pending").gauge().value());
+    }
+
+    @Test
+    void shouldDrainQueueByBatches() {
+        List<EndpointHit> first = makeHits(1, 3);
+        List<EndpointHit> second = makeHits(4, 1);
+        when(pendingRepo.lockBatch(3)).thenReturn(first).thenReturn(second);
+
+        aggregator.flush();
+
+        verify(rollupRepo).addHits(first);
+        verify(rollupRepo).addHits(second);
+        verify(pendingRepo).deleteByIds(List.of(1L, 2L, 3L));
+        verify(pendingRepo).deleteByIds(List.of(4L));
+    }
+
+    @Test
+    void shouldPublishCountersChangedByBatch() {
+        when(pendingRepo.lockBatch(anyInt())).thenReturn(makeHits(1, 2));
+        when(visitorRepo.addVisitors(anyList())).thenReturn(List.of(1L));
+
+        aggregator.flush();
+
+        ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(List.of(1L), ((ViewCountersChangedEvent) event.getValue()).getAppIds());
+    }
+
+    @Test
+    void shouldNotPublishWithoutNewVisitors() {
+        when(pendingRepo.lockBatch(anyInt())).thenReturn(makeHits(1, 2));
+
+        aggregator.flush();
+
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void shouldKeepFailedBatchInQueue() {
+        List<EndpointHit> hits = makeHits(1, 2);
+        when(pendingRepo.lockBatch(anyInt())).thenReturn(hits);
+        doThrow(new QueryTimeoutException("Таймаут")).when(rollupRepo).addHits(anyList());
+
+        aggregator.flush();
+
+        verify(pendingRepo, never()).deleteByIds(anyList());
+        verify(transactionManager).rollback(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void shouldReportPendingHitsAfterFlush() {
+        when(pendingRepo.lockBatch(anyInt())).thenReturn(List.of());
+        when(pendingRepo.count()).thenReturn(4L);
+
+        aggregator.flush();
+
+        assertEquals(4, registry.get("stats.aggregation.pending").gauge().value());
+    }
+
+    @Test
+    void shouldFlushOnStop() throws InterruptedException {
+        when(pendingRepo.lockBatch(anyInt())).thenReturn(makeHits(1, 2));
+        aggregator.start();
+
+        aggregator.stop();
+
+        verify(rollupRepo).addHits(anyList());
+        verify(pendingRepo).deleteByIds(List.of(1L, 2L));
+    }
+
+    @Test
+    void shouldRetireMinuteRollupsBeforeRetention() {
+        properties.setMinuteRetention(Duration.ofDays(7));
+
+        aggregator.retireMinuteRollups();
+
+        verify(rollupRepo).deleteRollupsBefore(eq(Granularity.MINUTE), any(LocalDateTime.class));
+    }
+
+    private List<EndpointHit> makeHits(long firstId, int count) {
+        return LongStream.range(firstId, firstId + count)
+                .mapToObj(id -> EndpointHit.builder()
+                        .id(id)
+                        .appId(1L)
+                        .ip("192.168.0." + id)
+                        .timestamp(Instant.now())
+                        .build())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,142 @@
+package ru.practicum.ingestion;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.service.StatsService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class HitIngestionServiceTest {
+
+    @Mock
+    private StatsService statsService;
+
+    private HitIngestionProperties properties;
+    private SimpleMeterRegistry registry;
+    private EndpointHitDto.EndpointHitDtoBuilder hitDtoBuilder;
+
+    @BeforeEach
+    void setup() {
+        registry = new SimpleMeterRegistry();
+        properties = new HitIngestionProperties();
+        properties.setMode(IngestionMode.ASYNC);
+        properties.setQueueCapacity(2);
+        properties.setBatchSize(10);
+        properties.setFlushInterval(Duration.ofMillis(50));
+
+        hitDtoBuilder = EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("121.0.0.1")
+                .timestamp(LocalDateTime.now());
+    }
+
+    @Test
+    void shouldWriteSynchronously() throws InterruptedException {
+        properties.setMode(IngestionMode.SYNC);
+        HitIngestionService ingestionService = makeService();
+        EndpointHitDto hitDto = hitDtoBuilder.build();
+
+        ingestionService.add(hitDto);
+
+        verify(statsService).addHit(hitDto);
+        ingestionService.stop();
+        verify(statsService, never()).addHits(any());
+    }
+
+    @Test
+    void shouldWriteBatch() throws InterruptedException {
+        HitIngestionService ingestionService = makeService();
+        ingestionService.start();
+        EndpointHitDto hitDto = hitDtoBuilder.build();
+        EndpointHitDto otherHitDto = hitDtoBuilder.ip("121.0.0.2").build();
+
+        ingestionService.add(hitDto);
+        ingestionService.add(otherHitDto);
+
+        verify(statsService, timeout(1000)).addHits(List.of(hitDto, otherHitDto));
+        ingestionService.stop();
+    }
+
+    @Test
+    void shouldRejectWhenQueueIsFull() throws InterruptedException {
+        HitIngestionService ingestionService = makeService();
+        EndpointHitDto hitDto = hitDtoBuilder.build();
+
+        ingestionService.add(hitDto);
+        ingestionService.add(hitDto);
+        assertThrows(IngestionQueueFullException.class, () -> ingestionService.add(hitDto));
+
+        //Drain On Shutdown
+        ingestionService.stop();
+        verify(statsService).addHits(List.of(hitDto, hitDto));
+    }
+
+    @Test
+    void shouldRejectBatchLargerThanFreeSpace() throws InterruptedException {
+        HitIngestionService ingestionService = makeService();
+        EndpointHitDto hitDto = hitDtoBuilder.build();
+
+        ingestionService.add(hitDto);
+        assertThrows(IngestionQueueFullException.class, () -> ingestionService.addAll(List.of(hitDto, hitDto)));
+
+        ingestionService.stop();
+        verify(statsService).addHits(List.of(hitDto));
+    }
+
+    @Test
+    void shouldRetryFailedBatch() throws InterruptedException {
+        properties.setRetryBackoff(Duration.ofMillis(10));
+        EndpointHitDto hitDto = hitDtoBuilder.build();
+        doThrow(new CannotGetJdbcConnectionException("Нет соединения"))
+                .doNothing()
+                .when(statsService).addHits(List.of(hitDto));
+        HitIngestionService ingestionService = makeService();
+        ingestionService.start();
+
+        ingestionService.add(hitDto);
+
+        verify(statsService, timeout(1000).times(2)).addHits(List.of(hitDto));
+        ingestionService.stop();
+        assertEquals(1, registry.get("stats.ingestion.retried").counter().count());
+        assertEquals(0, registry.get("stats.ingestion.failed").counter().count());
+    }
+
+    @Test
+    void shouldCountBatchLostAfterRetries() throws InterruptedException {
+        properties.setMaxRetries(2);
+        properties.setRetryBackoff(Duration.ofMillis(10));
+        EndpointHitDto hitDto = hitDtoBuilder.build();
+        doThrow(new CannotGetJdbcConnectionException("Нет соединения")).when(statsService).addHits(any());
+        HitIngestionService ingestionService = makeService();
+        ingestionService.start();
+
+        ingestionService.add(hitDto);
+
+        verify(statsService, timeout(1000).times(3)).addHits(List.of(hitDto));
+        ingestionService.stop();
+        assertEquals(2, registry.get("stats.ingestion.retried").counter().count());
+        assertEquals(1, registry.get("stats.ingestion.failed").counter().count());
+    }
+
+    private HitIngestionService makeService() {
+        return new HitIngestionService(statsService, properties, registry);
+    }
+}
@@ -0,0 +1,126 @@
+package ru.practicum.partition;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.partition.HitPartitionManager.Partition;
+import ru.practicum.repository.DatabaseDialect;
+import ru.practicum.repository.HitRollupRepository;
+import ru.practicum.repository.HitSketchRepository;
+import ru.practicum.repository.UniqueVisitorRepository;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HitPartitionManagerTest {
+    private static final LocalDate TODAY = LocalDate.of(2023, 3, 15);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private DatabaseDialect dialect;
+
+    @Mock
+    private HitRollupRepository rollupRepo;
+
+    @Mock
+    private HitSketchRepository sketchRepo;
+
+    @Mock
+    private UniqueVisitorRepository visitorRepo;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private HitPartitionProperties properties;
+    private HitPartitionManager manager;
+
+    @BeforeEach
+    void setup() {
+        properties = new HitPartitionProperties();
+        manager = new HitPartitionManager(jdbcTemplate, dialect, properties, rollupRepo, sketchRepo, visitorRepo,
+                eventPublisher, transactionManager);
+    }
+
+    @Test
+    void shouldPlanMissingMonthlyPartitions() {
+        properties.setPremake(2);
+        List<Partition> existing = List.of(month(2023, 3));
+
+        List<LocalDate> toCreate = manager.partitionsToCreate(TODAY, existing);
+
+        assertEquals(List.of(LocalDate.of(2023, 4, 1), LocalDate.of(2023, 5, 1)), toCreate);
+    }
+
+    @Test
+    void shouldPlanDailyPartitions() {
+        properties.setInterval(PartitionInterval.DAY);
+        properties.setPremake(1);
+
+        List<LocalDate> toCreate = manager.partitionsToCreate(TODAY, List.of());
+
+        assertEquals(List.of(TODAY, TODAY.plusDays(1)), toCreate);
+        assertEquals("20230315", PartitionInterval.DAY.suffix(TODAY));
+        assertEquals(TODAY, PartitionInterval.DAY.parseSuffix("20230315"));
+    }
+
+    @Test
+    void shouldRetireOnlyPartitionsOlderThanRetention() {
+        List<Partition> existing = List.of(
+                month(2023, 1),
+                month(2022, 12),
+                month(2022, 11),
+                month(2023, 3));
+        assertEquals(List.of(), manager.partitionsToRetire(TODAY, existing));
+
+        //Граница хранения 15.12.2022: декабрь еще содержит нужные данные
+        properties.setRetention(Period.ofMonths(3));
+        List<Partition> toRetire = manager.partitionsToRetire(TODAY, existing);
+
+        assertEquals(List.of(month(2022, 11)), toRetire);
+        assertEquals(LocalDate.of(2022, 11, 1), PartitionInterval.MONTH.parseSuffix("202211"));
+    }
+
+    @Test
+    void shouldNotOverlapPartitionsOfAnotherInterval() {
+        //Месячная секция из миграции покрывает текущий месяц, дневные создаются начиная со следующего
+        properties.setInterval(PartitionInterval.DAY);
+        properties.setPremake(20);
+
+        List<LocalDate> toCreate = manager.partitionsToCreate(TODAY, List.of(month(2023, 3)));
+
+        assertEquals(LocalDate.of(2023, 4, 1), toCreate.get(0));
+        assertEquals(LocalDate.of(2023, 4, 4), toCreate.get(toCreate.size() - 1));
+    }
+
+    @Test
+    void shouldSkipNonPostgresDatabases() {
+        when(dialect.isPostgres()).thenReturn(false);
+
+        manager.maintain();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    private Partition month(int year, int month) {
+        LocalDate from = LocalDate.of(year, month, 1);
+        return new Partition("hits_p" + PartitionInterval.MONTH.suffix(from), from, from.plusMonths(1));
+    }
+}
@@ -0,0 +1,186 @@
+package ru.practicum.partition;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import ru.practicum.model.App;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.repository.AppRepository;
+import ru.practicum.repository.EndPointHitRepository;
+import ru.practicum.repository.HitRollupRepository;
+import ru.practicum.repository.HitSketchRepository;
+import ru.practicum.repository.PostgresDatabase;
+import ru.practicum.repository.UniqueVisitorRepository;
+import ru.practicum.views.ViewCountersResetEvent;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.practicum.util.DateTime.toInstant;
+
+//Последовательность DDL обслуживания секций на настоящем PostgreSQL
+@SpringBootTest
+@RecordApplicationEvents
+@EnabledIf("ru.practicum.repository.PostgresDatabase#isAvailable")
+class PostgresPartitionTest {
+    private static final LocalDate OLD_MONTH = LocalDate.of(2001, 1, 1);
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        PostgresDatabase.register(registry);
+    }
+
+    @Autowired
+    private HitPartitionManager manager;
+    @Autowired
+    private HitPartitionProperties properties;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private AppRepository appRepo;
+    @Autowired
+    private EndPointHitRepository hitRepo;
+    @Autowired
+    private HitRollupRepository rollupRepo;
+    @Autowired
+    private HitSketchRepository sketchRepo;
+    @Autowired
+    private UniqueVisitorRepository visitorRepo;
+    @Autowired
+    private ApplicationEvents events;
+
+    private long appId;
+
+    @BeforeEach
+    void setup() {
+        appId = appRepo.add(App.builder().name("partition-test").uri("/events/" + System.nanoTime()).build());
+    }
+
+    @AfterEach
+    void cleanup() {
+        properties.setPremake(3);
+        properties.setRetention(null);
+        properties.setRetentionAction(RetentionAction.DETACH);
+        jdbcTemplate.update("delete from apps where id = ?", appId);
+        LocalDate lastNormal = LocalDate.now().withDayOfMonth(1).plusMonths(3);
+        for (String name : jdbcTemplate.queryForList("select relname from pg_class " +
+                "where relname like 'hits\\_p%' and relkind in ('r', 'p')", String.class)) {
+            LocalDate month = PartitionInterval.MONTH.parseSuffix(name.substring("hits_p".length()));
+            if (month.isAfter(lastNormal) || month.equals(OLD_MONTH)) {
+                jdbcTemplate.execute("drop table " + name);
+            }
+        }
+    }
+
+    @Test
+    void shouldMoveRowsFromDefaultWithoutDetachingIt() {
+        LocalDate farMonth = LocalDate.now().withDayOfMonth(1).plusMonths(14);
+        String name = "hits_p" + PartitionInterval.MONTH.suffix(farMonth);
+        hitRepo.addEndpointHits(List.of(makeHit("121.0.0.1", farMonth.atTime(12, 0))));
+        assertEquals(1, count("hits_default"));
+        long defaultOid = oid("hits_default");
+
+        properties.setPremake(14);
+        manager.maintain();
+
+        assertEquals(0, count("hits_default"));
+        assertEquals(1, count(name));
+        assertTrue(isPartition(name));
+        //Секция по умолчанию не отсоединялась и не пересоздавалась
+        assertTrue(isPartition("hits_default"));
+        assertEquals(defaultOid, oid("hits_default"));
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from pg_constraint where conname = ?",
+                Integer.class, name + "_range"));
+    }
+
+    @Test
+    void shouldDropPartitionWithAggregatesAndVisitors() {
+        String name = createOldPartition();
+        properties.setRetention(Period.ofYears(5));
+        properties.setRetentionAction(RetentionAction.DROP);
+
+        manager.maintain();
+
+        assertNull(jdbcTemplate.queryForObject("select to_regclass(?)::text", String.class, name));
+        assertRetiredWithAggregates();
+        //Подписчики на счетчики получат их заново: посетители удалены
+        assertEquals(1, events.stream(ViewCountersResetEvent.class).count());
+    }
+
+    @Test
+    void shouldDetachPartitionWithAggregatesAndVisitors() {
+        String name = createOldPartition();
+        properties.setRetention(Period.ofYears(5));
+
+        manager.maintain();
+
+        assertNotNull(jdbcTemplate.queryForObject("select to_regclass(?)::text", String.class, name));
+        assertFalse(isPartition(name));
+        assertEquals(2, count(name));
+        assertRetiredWithAggregates();
+    }
+
+    private String createOldPartition() {
+        String name = "hits_p" + PartitionInterval.MONTH.suffix(OLD_MONTH);
+        jdbcTemplate.execute(String.format("CREATE TABLE %s PARTITION OF hits FOR VALUES FROM ('%s') TO ('%s')",
+                name, OLD_MONTH, OLD_MONTH.plusMonths(1)));
+        List<EndpointHit> hits = List.of(
+                makeHit("121.0.0.1", OLD_MONTH.atTime(10, 15)),
+                makeHit("121.0.0.2", OLD_MONTH.plusDays(20).atTime(23, 59)),
+                makeHit("121.0.0.2", LocalDateTime.now()));
+        hitRepo.addEndpointHits(hits);
+        rollupRepo.addHits(hits);
+        sketchRepo.addHits(hits);
+        visitorRepo.addVisitors(hits);
+        return name;
+    }
+
+    private void assertRetiredWithAggregates() {
+        Instant from = toInstant(OLD_MONTH.atStartOfDay());
+        Instant to = toInstant(OLD_MONTH.plusMonths(1).atStartOfDay());
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from hit_rollups " +
+                "where app_id = ? and bucket_start < now() - interval '1 year'", Integer.class, appId));
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from hit_sketches " +
+                "where app_id = ? and bucket_start < now() - interval '1 year'", Integer.class, appId));
+        assertTrue(rollupRepo.getViewsByAppId(from, to, List.of(appId)).isEmpty());
+        //Посетитель с просмотром в текущем месяце остается
+        assertEquals(1, visitorRepo.getVisitorsByAppId(List.of(appId)).get(appId));
+    }
+
+    private EndpointHit makeHit(String ip, LocalDateTime timestamp) {
+        return EndpointHit.builder()
+                .appId(appId)
+                .ip(ip)
+                .timestamp(toInstant(timestamp))
+                .build();
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table + " where app_id = ?", Long.class, appId);
+    }
+
+    private long oid(String table) {
+        return jdbcTemplate.queryForObject("select ?::regclass::oid", Long.class, table);
+    }
+
+    private boolean isPartition(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("select exists(select 1 from pg_inherits " +
+                "where inhrelid = to_regclass(?) and inhparent = 'hits'::regclass)", Boolean.class, table));
+    }
+}
@@ -51,6 +51,19 @@ class AppRepositoryTest {
         assertEquals(apps.get(0).getId(), appId);
     }
 
+    @Test
+    void shouldAddIfAbsent() {
+        app = appBuilder.build();
+        List<Long> added = appRepo.addIfAbsent(app);
+        assertThat(added).hasSize(1);
+
+        //Existing app is not inserted again
+        assertThat(appRepo.addIfAbsent(app)).isEmpty();
+        List<App> apps = appRepo.findByAppAndUri(app.getName(), app.getUri());
+        assertThat(apps).hasSize(1);
+        assertEquals(added.get(0), apps.get(0).getId());
+    }
+
     @Test
     void shouldFindByAppAndUri() {
         //EmptyList
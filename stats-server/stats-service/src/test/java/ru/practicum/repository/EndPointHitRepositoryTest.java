@@ -12,6 +12,7 @@ import ru.practicum.model.EndpointHit;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
 
@@ -26,7 +27,7 @@ import static ru.practicum.util.DateTime.toInstant;
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 @Transactional
 class EndPointHitRepositoryTest {
-    private static final LocalDateTime NOW = LocalDateTime.now();
+    private static final LocalDateTime NOW = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
 
     private final EndPointHitRepository hitRepo;
     private final AppRepository appRepo;
@@ -70,6 +71,19 @@ class EndPointHitRepositoryTest {
                 .hasFieldOrPropertyWithValue("appId", hit.getAppId());
     }
 
+    @Test
+    void addEndpointHits() {
+        hit = hitBuilder.build();
+        EndpointHit otherHit = hitBuilder.ip("121.0.0.2").build();
+        hitRepo.addEndpointHits(List.of(hit, hit, otherHit));
+
+        Map<Long, Long> hitsQtyByAppId = hitRepo.getViewsByAppId(start, end);
+        assertEquals(3, hitsQtyByAppId.get(hit.getAppId()));
+
+        hitsQtyByAppId = hitRepo.getUniqueViewsByAppId(start, end);
+        assertEquals(2, hitsQtyByAppId.get(hit.getAppId()));
+    }
+
     @Test
     void getHitsQtyByAppIdWithoutUrisUniqueFalse() {
         //EmptyMap
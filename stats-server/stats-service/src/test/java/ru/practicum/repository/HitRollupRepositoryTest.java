@@ -0,0 +1,207 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.model.App;
+import ru.practicum.model.EndpointHit;
+import ru.practicum.model.Granularity;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.practicum.util.DateTime.toInstant;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Transactional
+class HitRollupRepositoryTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2023, 1, 10, 0, 0);
+
+    private final EndPointHitRepository hitRepo;
+    private final HitRollupRepository rollupRepo;
+    private final HitSketchRepository sketchRepo;
+    private final PendingHitRepository pendingRepo;
+    private final AppRepository appRepo;
+
+    private long appId;
+
+    @BeforeEach
+    void setup() {
+        App app = App.builder()
+                .name("ewm-main-service")
+                .uri("/events/rollup")
+                .build();
+        appId = appRepo.add(app);
+
+        List<EndpointHit> hits = new ArrayList<>();
+        List<LocalDateTime> timestamps = List.of(
+                DAY.minusDays(3).plusHours(5),
+                DAY.minusHours(2).plusMinutes(13).plusSeconds(10),
+                DAY.plusSeconds(30),
+                DAY.plusMinutes(1),
+                DAY.plusHours(1).plusMinutes(59).plusSeconds(59),
+                DAY.plusHours(3).plusSeconds(1),
+                DAY.plusDays(2).plusHours(7).plusMinutes(45).plusSeconds(15));
+        timestamps.forEach(timestamp -> hits.add(EndpointHit.builder()
+                .appId(appId)
+                .ip("121.0.0.1")
+                .timestamp(toInstant(timestamp))
+                .build()));
+        hitRepo.addEndpointHits(hits);
+        rollupRepo.addHits(hits);
+        sketchRepo.addHits(hits);
+    }
+
+    @Test
+    void shouldMatchRawCounts() {
+        List<LocalDateTime[]> ranges = List.of(
+                new LocalDateTime[]{DAY.minusDays(5), DAY.plusDays(5)},
+                new LocalDateTime[]{DAY, DAY.plusMinutes(1)},
+                new LocalDateTime[]{DAY.plusSeconds(10), DAY.plusHours(3).plusSeconds(1)},
+                new LocalDateTime[]{DAY.minusHours(2).plusMinutes(13).plusSeconds(10), DAY.plusHours(1)},
+                new LocalDateTime[]{DAY.minusDays(3).plusHours(5), DAY.plusDays(2).plusHours(7).plusMinutes(45)},
+                new LocalDateTime[]{DAY.plusSeconds(31), DAY.plusSeconds(59)});
+        for (LocalDateTime[] range : ranges) {
+            Instant start = toInstant(range[0]);
+            Instant end = toInstant(range[1]);
+            Map<Long, Long> expected = hitRepo.getViewsByAppId(start, end, List.of(appId));
+            Map<Long, Long> actual = rollupRepo.getViewsByAppId(start, end, List.of(appId));
+            assertEquals(expected, actual, range[0] + " - " + range[1]);
+
+            //На малых множествах HyperLogLog совпадает с точным подсчетом
+            expected = hitRepo.getUniqueViewsByAppId(start, end, List.of(appId));
+            actual = sketchRepo.getUniqueViewsByAppId(start, end, List.of(appId));
+            assertEquals(expected, actual, range[0] + " - " + range[1]);
+        }
+    }
+
+    @Test
+    void shouldAccumulateRollups() {
+        rollupRepo.addHits(List.of(EndpointHit.builder()
+                .appId(appId)
+                .ip("121.0.0.2")
+                .timestamp(toInstant(DAY.plusSeconds(40)))
+                .build()));
+
+        Map<Long, Long> views = rollupRepo.getViewsByAppId(toInstant(DAY.minusDays(1)), toInstant(DAY.plusDays(1)));
+        assertEquals(6, views.get(appId));
+    }
+
+    @Test
+    void shouldCountPendingHitsOnceBeforeAndAfterMerge() {
+        List<EndpointHit> hits = List.of(
+                EndpointHit.builder().appId(appId).ip("121.0.0.3").timestamp(toInstant(DAY.plusSeconds(45))).build(),
+                EndpointHit.builder().appId(appId).ip("121.0.0.3").timestamp(toInstant(DAY.minusDays(4))).build());
+        hitRepo.addEndpointHits(hits);
+        pendingRepo.addHits(hits);
+        Instant start = toInstant(DAY.minusDays(5));
+        Instant end = toInstant(DAY.plusDays(1));
+
+        assertEquals(8, rollupRepo.getViewsByAppId(start, end).get(appId));
+
+        List<EndpointHit> batch = pendingRepo.lockBatch(10);
+        assertEquals(2, batch.size());
+        rollupRepo.addHits(batch);
+        pendingRepo.deleteByIds(List.of(batch.get(0).getId(), batch.get(1).getId()));
+
+        assertEquals(0, pendingRepo.count());
+        assertEquals(8, rollupRepo.getViewsByAppId(start, end).get(appId));
+        assertEquals(hitRepo.getViewsByAppId(start, end, List.of(appId)),
+                rollupRepo.getViewsByAppId(start, end, List.of(appId)));
+    }
+
+    @Test
+    void shouldMergeStoredSketches() {
+        sketchRepo.addHits(List.of(EndpointHit.builder()
+                .appId(appId)
+                .ip("121.0.0.2")
+                .timestamp(toInstant(DAY.plusSeconds(40)))
+                .build()));
+
+        Map<Long, Long> views = sketchRepo.getUniqueViewsByAppId(toInstant(DAY.minusDays(5)),
+                toInstant(DAY.plusDays(5)));
+        assertEquals(2, views.get(appId));
+    }
+
+    @Test
+    void shouldCountFromHourlyRollupsAfterMinuteRetention() {
+        LocalDateTime hour = LocalDateTime.now().minusDays(30).truncatedTo(ChronoUnit.HOURS);
+        List<EndpointHit> hits = List.of(
+                EndpointHit.builder().appId(appId).ip("121.0.0.3").timestamp(toInstant(hour.plusMinutes(5))).build(),
+                EndpointHit.builder().appId(appId).ip("121.0.0.4").timestamp(toInstant(hour.plusMinutes(59))).build(),
+                EndpointHit.builder().appId(appId).ip("121.0.0.5").timestamp(toInstant(hour.plusHours(2))).build());
+        hitRepo.addEndpointHits(hits);
+        rollupRepo.addHits(hits);
+
+        int deleted = rollupRepo.deleteRollupsBefore(Granularity.MINUTE, hour.plusDays(1));
+
+        //Минутные агрегаты setup тоже старше границы
+        assertEquals(10, deleted);
+        Instant start = toInstant(hour.plusMinutes(1));
+        Instant end = toInstant(hour.plusHours(3));
+        assertEquals(hitRepo.getViewsByAppId(start, end, List.of(appId)),
+                rollupRepo.getViewsByAppId(start, end, List.of(appId)));
+    }
+
+    @Test
+    void shouldEstimateUniqueViewsWithinErrorBound() {
+        long popularAppId = appRepo.add(App.builder()
+                .name("ewm-main-service")
+                .uri("/events/popular")
+                .build());
+        //Адреса из нескольких подсетей провайдеров и IPv6, часть посетителей возвращается много раз
+        Random random = new Random(42);
+        List<String> visitors = new ArrayList<>();
+        for (int i = 0; i < 6000; i++) {
+            if (i % 10 == 0) {
+                visitors.add(String.format("2a02:6b8:%x:%x::%x", random.nextInt(1 << 16), random.nextInt(1 << 16),
+                        random.nextInt(1 << 16)));
+            } else {
+                int[] subnets = {5, 31, 46, 77, 95, 178, 188, 213};
+                visitors.add(String.format("%d.%d.%d.%d", subnets[random.nextInt(subnets.length)],
+                        random.nextInt(256), random.nextInt(256), 1 + random.nextInt(254)));
+            }
+        }
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            int visitor = (int) (visitors.size() * Math.pow(random.nextDouble(), 2));
+            hits.add(EndpointHit.builder()
+                    .appId(popularAppId)
+                    .ip(visitors.get(visitor))
+                    .timestamp(toInstant(DAY.plusSeconds(random.nextInt(2 * 24 * 60 * 60))))
+                    .build());
+        }
+        hitRepo.addEndpointHits(hits);
+        //Наброски сливаются пакетами, как при записи агрегатором
+        for (int from = 0; from < hits.size(); from += 1000) {
+            sketchRepo.addHits(hits.subList(from, from + 1000));
+        }
+
+        double bound = 3 * 1.04 / Math.sqrt(1 << 12);
+        List<LocalDateTime[]> ranges = List.of(
+                new LocalDateTime[]{DAY, DAY.plusDays(2)},
+                new LocalDateTime[]{DAY.plusHours(5).plusMinutes(30), DAY.plusDays(1).plusHours(20)},
+                new LocalDateTime[]{DAY.plusDays(1), DAY.plusDays(1).plusHours(6)});
+        for (LocalDateTime[] range : ranges) {
+            Instant start = toInstant(range[0]);
+            Instant end = toInstant(range[1]);
+            long exact = hitRepo.getUniqueViewsByAppId(start, end, List.of(popularAppId)).get(popularAppId);
+            long estimate = sketchRepo.getUniqueViewsByAppId(start, end, List.of(popularAppId)).get(popularAppId);
+            double error = Math.abs(estimate - exact) / (double) exact;
+            assertTrue(error < bound, range[0] + " - " + range[1] + ": " + estimate + " vs " + exact);
+        }
+    }
+}
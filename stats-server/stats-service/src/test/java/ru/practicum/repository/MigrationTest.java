@@ -0,0 +1,128 @@
+package ru.practicum.repository;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MigrationTest {
+
+    @Test
+    void shouldMergeDuplicateAppsOnH2() {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:migration-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "test", "test");
+        shouldMergeDuplicateApps(dataSource, "h2", "PUBLIC");
+    }
+
+    @Test
+    void shouldMergeDuplicateAppsOnPostgres() {
+        assumeTrue(PostgresDatabase.isAvailable(), "PostgreSQL недоступен");
+        DataSource dataSource = PostgresDatabase.dataSource();
+        String schema = "migration_" + UUID.randomUUID().toString().replace("-", "");
+        try {
+            shouldMergeDuplicateApps(dataSource, "postgresql", schema);
+        } finally {
+            new JdbcTemplate(dataSource).execute("drop schema if exists " + schema + " cascade");
+        }
+    }
+
+    @Test
+    void shouldBackfillHistoryIntoMonthlyPartitions() {
+        assumeTrue(PostgresDatabase.isAvailable(), "PostgreSQL недоступен");
+        DataSource dataSource = PostgresDatabase.dataSource();
+        String schema = "migration_" + UUID.randomUUID().toString().replace("-", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        try {
+            migrate(dataSource, "postgresql", schema, "3");
+            jdbcTemplate.update("insert into " + schema + ".apps (name, uri) values ('ewm-main-service', '/events/1')");
+            for (String timestamp : List.of("2023-01-10 12:00:00", "2023-01-31 23:59:59", "2023-03-01 00:00:00")) {
+                jdbcTemplate.update("insert into " + schema + ".hits (app_id, ip, timestamp) " +
+                        "select id, '121.0.0.1', cast(? as timestamp) from " + schema + ".apps", timestamp);
+            }
+
+            migrate(dataSource, "postgresql", schema, "latest");
+
+            assertEquals(List.of("hits_default", "hits_p202301", "hits_p202303"), jdbcTemplate.queryForList(
+                    "select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid " +
+                            "where i.inhparent = cast(? as regclass) order by c.relname",
+                    String.class, schema + ".hits"));
+            assertEquals(2, jdbcTemplate.queryForObject("select count(*) from " + schema + ".hits_p202301",
+                    Integer.class));
+            assertEquals(0, jdbcTemplate.queryForObject("select count(*) from " + schema + ".hits_default",
+                    Integer.class));
+            assertEquals(Timestamp.valueOf("2023-03-01 00:00:00"), jdbcTemplate.queryForObject(
+                    "select last_seen from " + schema + ".unique_visitors", Timestamp.class));
+        } finally {
+            jdbcTemplate.execute("drop schema if exists " + schema + " cascade");
+        }
+    }
+
+    @Test
+    void shouldStopPartitioningOnHitsWithoutTimestamp() {
+        assumeTrue(PostgresDatabase.isAvailable(), "PostgreSQL недоступен");
+        DataSource dataSource = PostgresDatabase.dataSource();
+        String schema = "migration_" + UUID.randomUUID().toString().replace("-", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        try {
+            migrate(dataSource, "postgresql", schema, "3");
+            jdbcTemplate.update("insert into " + schema + ".apps (name, uri) values ('ewm-main-service', '/events/1')");
+            jdbcTemplate.update("insert into " + schema + ".hits (app_id, ip, timestamp) " +
+                    "select id, '121.0.0.1', null from " + schema + ".apps");
+
+            FlywayException exception = assertThrows(FlywayException.class,
+                    () -> migrate(dataSource, "postgresql", schema, "latest"));
+
+            assertThat(exception.getMessage()).contains("без времени");
+            //Миграция откатилась: строка осталась в прежней таблице
+            assertEquals(1, jdbcTemplate.queryForObject("select count(*) from " + schema + ".hits",
+                    Integer.class));
+        } finally {
+            jdbcTemplate.execute("drop schema if exists " + schema + " cascade");
+        }
+    }
+
+    private void shouldMergeDuplicateApps(DataSource dataSource, String vendor, String schema) {
+        migrate(dataSource, vendor, schema, "2");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        String apps = schema + ".apps";
+        String hits = schema + ".hits";
+        for (String uri : List.of("/events/1", "/events/1", "/events/2", "/events/1")) {
+            jdbcTemplate.update("insert into " + apps + " (name, uri) values ('ewm-main-service', ?)", uri);
+        }
+        List<Long> ids = jdbcTemplate.queryForList("select id from " + apps + " order by id", Long.class);
+        for (Long id : ids) {
+            jdbcTemplate.update("insert into " + hits + " (app_id, ip, timestamp) " +
+                    "values (?, '121.0.0.1', timestamp '2023-01-10 12:00:00')", id);
+        }
+
+        migrate(dataSource, vendor, schema, "latest");
+
+        assertEquals(List.of(ids.get(0), ids.get(2)),
+                jdbcTemplate.queryForList("select id from " + apps + " order by id", Long.class));
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "select count(*) from " + hits + " where app_id = ?", Integer.class, ids.get(0)));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from " + hits + " where app_id = ?", Integer.class, ids.get(2)));
+    }
+
+    private void migrate(DataSource dataSource, String vendor, String schema, String target) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .schemas(schema)
+                .locations("classpath:db/migration/common", "classpath:db/migration/" + vendor)
+                .target(target)
+                .load()
+                .migrate();
+    }
+}
@@ -0,0 +1,42 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/*
+ * База PostgreSQL для тестов запросов и миграций. Внешняя база задается -Dtest.postgres.url
+ * (и при необходимости test.postgres.username, test.postgres.password), иначе поднимается контейнер.
+ * Без Docker и внешней базы такие тесты пропускаются.
+ */
+public class PostgresDatabase {
+    private static final String URL_PROPERTY = "test.postgres.url";
+    private static PostgreSQLContainer<?> container;
+
+    public static boolean isAvailable() {
+        return System.getProperty(URL_PROPERTY) != null || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    public static void register(DynamicPropertyRegistry registry) {
+        DriverManagerDataSource dataSource = dataSource();
+        registry.add("spring.datasource.driverClassName", () -> "org.postgresql.Driver");
+        registry.add("spring.datasource.url", dataSource::getUrl);
+        registry.add("spring.datasource.username", dataSource::getUsername);
+        registry.add("spring.datasource.password", dataSource::getPassword);
+    }
+
+    public static synchronized DriverManagerDataSource dataSource() {
+        String url = System.getProperty(URL_PROPERTY);
+        if (url != null) {
+            return new DriverManagerDataSource(url, System.getProperty("test.postgres.username", "postgres"),
+                    System.getProperty("test.postgres.password", ""));
+        }
+        if (container == null) {
+            container = new PostgreSQLContainer<>(DockerImageName.parse("postgres:14-alpine"));
+            container.start();
+        }
+        return new DriverManagerDataSource(container.getJdbcUrl(), container.getUsername(), container.getPassword());
+    }
+}
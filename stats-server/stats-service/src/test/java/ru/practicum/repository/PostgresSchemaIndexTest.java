@@ -0,0 +1,106 @@
+package ru.practicum.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.practicum.util.DateTime.toInstant;
+
+/*
+ * Планы запросов репозиториев на PostgreSQL с секционированной таблицей просмотров.
+ * Индексы секций называются по секции, поэтому проверяется часть имени.
+ */
+@SpringBootTest
+@EnabledIf("ru.practicum.repository.PostgresDatabase#isAvailable")
+@Transactional
+class PostgresSchemaIndexTest {
+    private static final int APPS = 20_000;
+    private static final int HITS = 200_000;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        PostgresDatabase.register(registry);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private AppRepository appRepo;
+
+    @Autowired
+    private EndPointHitRepository hitRepo;
+
+    private LocalDateTime monthStart;
+    private List<Long> appIds;
+
+    @BeforeEach
+    void setup() {
+        monthStart = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        jdbcTemplate.update("insert into apps (name, uri) " +
+                "select 'ewm-main-service', '/plans/' || g from generate_series(1, ?) g", APPS);
+        appIds = jdbcTemplate.queryForList("select id from apps where uri in ('/plans/1', '/plans/2')", Long.class);
+        //Просмотры текущего месяца попадают в его секцию
+        jdbcTemplate.update("insert into hits (app_id, ip, timestamp) " +
+                "select a.id, '10.0.' || (g % 250) || '.' || (g % 200), ?::timestamp + (g % 40000) * interval '1 minute' " +
+                "from generate_series(1, ?) g join apps a on a.uri = '/plans/' || (g % ? + 1)",
+                monthStart.toString(), HITS, APPS);
+        jdbcTemplate.execute("analyze apps");
+        jdbcTemplate.execute("analyze hits");
+    }
+
+    @Test
+    void shouldFindAppByNameAndUri() {
+        assertThat(explain(() -> appRepo.findByAppAndUri("ewm-main-service", "/plans/42")))
+                .singleElement().asString()
+                .containsPattern("Index Scan using (ix_apps_uri|uq_app_name_uri)");
+    }
+
+    @Test
+    void shouldFindAppsByUriHashIndex() {
+        assertThat(explain(() -> appRepo.getAppsByUris(List.of("/plans/1", "/plans/2"))))
+                .singleElement().asString()
+                .contains("ix_apps_uri");
+    }
+
+    @Test
+    void shouldCountUniqueViewsByAppIdTimestampIndex() {
+        Instant start = toInstant(monthStart.plusDays(1));
+        Instant end = toInstant(monthStart.plusDays(8));
+        assertThat(explain(() -> hitRepo.getUniqueViewsByAppId(start, end, appIds)))
+                .singleElement().asString()
+                .contains("app_id_timestamp")
+                .doesNotContain("Seq Scan on hits");
+    }
+
+    @Test
+    void shouldCountViewsOfShortPeriodByTimestampIndex() {
+        Instant start = toInstant(monthStart.plusDays(3));
+        Instant end = toInstant(monthStart.plusDays(3).plusHours(1));
+        assertThat(explain(() -> hitRepo.getViewsByAppId(start, end)))
+                .singleElement().asString()
+                .contains("_timestamp_idx")
+                .doesNotContain("Seq Scan on hits");
+    }
+
+    private List<String> explain(Runnable repositoryCall) {
+        return QueryPlans.explain(namedJdbcTemplate, repositoryCall);
+    }
+}
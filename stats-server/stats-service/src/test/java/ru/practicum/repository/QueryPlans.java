@@ -0,0 +1,40 @@
+package ru.practicum.repository;
+
+import org.mockito.invocation.Invocation;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mockingDetails;
+
+//Планы запросов, которые репозиторий выполнил через шпиона NamedParameterJdbcTemplate
+public class QueryPlans {
+
+    @SuppressWarnings("unchecked")
+    public static List<String> explain(NamedParameterJdbcTemplate spy, Runnable repositoryCall) {
+        clearInvocations(spy);
+        repositoryCall.run();
+        Map<String, SqlParameterSource> queries = new LinkedHashMap<>();
+        for (Invocation invocation : mockingDetails(spy).getInvocations()) {
+            Object[] arguments = invocation.getArguments();
+            if (arguments.length < 2 || !(arguments[0] instanceof String)
+                    || !((String) arguments[0]).startsWith("select")) {
+                continue;
+            }
+            SqlParameterSource parameters = arguments[1] instanceof SqlParameterSource
+                    ? (SqlParameterSource) arguments[1]
+                    : new MapSqlParameterSource((Map<String, ?>) arguments[1]);
+            queries.putIfAbsent((String) arguments[0], parameters);
+        }
+        return queries.entrySet().stream()
+                .map(query -> String.join("\n",
+                        spy.queryForList("explain " + query.getKey(), query.getValue(), String.class)))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,60 @@
+package ru.practicum.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.practicum.util.DateTime.toInstant;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class SchemaIndexTest {
+    private static final Instant START = toInstant(LocalDateTime.of(2023, 1, 1, 0, 0));
+    private static final Instant END = toInstant(LocalDateTime.of(2023, 2, 1, 0, 0));
+
+    @SpyBean
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private AppRepository appRepo;
+
+    @Autowired
+    private EndPointHitRepository hitRepo;
+
+    @Test
+    void shouldUseAppIdTimestampIndexForStatsByApps() {
+        assertThat(explain(() -> hitRepo.getUniqueViewsByAppId(START, END, List.of(1L, 2L, 3L))))
+                .singleElement().asString()
+                .containsIgnoringCase("IX_HITS_APP_ID_TIMESTAMP");
+    }
+
+    @Test
+    void shouldUseTimestampIndexForStatsWithoutApps() {
+        assertThat(explain(() -> hitRepo.getViewsByAppId(START, END)))
+                .singleElement().asString()
+                .containsIgnoringCase("IX_HITS_TIMESTAMP");
+    }
+
+    @Test
+    void shouldUseIndexesForAppLookups() {
+        assertThat(explain(() -> appRepo.findByAppAndUri("ewm-main-service", "/events/1")))
+                .singleElement().asString()
+                .containsIgnoringCase("UQ_APP_NAME_URI");
+
+        assertThat(explain(() -> appRepo.getAppsByUris(List.of("/events/1", "/events/2"))))
+                .singleElement().asString()
+                .containsIgnoringCase("IX_APPS_URI");
+    }
+
+    private List<String> explain(Runnable repositoryCall) {
+        return QueryPlans.explain(namedJdbcTemplate, repositoryCall);
+    }
+}
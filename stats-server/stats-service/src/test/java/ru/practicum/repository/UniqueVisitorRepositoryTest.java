@@ -0,0 +1,100 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.model.App;
+import ru.practicum.model.EndpointHit;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.practicum.util.DateTime.toInstant;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Transactional
+class UniqueVisitorRepositoryTest {
+    private final UniqueVisitorRepository visitorRepo;
+    private final AppRepository appRepo;
+
+    private long appId;
+    private long otherAppId;
+
+    @BeforeEach
+    void setup() {
+        appId = appRepo.add(App.builder().name("visitors-service").uri("/events/1").build());
+        otherAppId = appRepo.add(App.builder().name("visitors-service").uri("/events/2").build());
+    }
+
+    @Test
+    void shouldReturnOnlyAppsWithNewVisitors() {
+        List<Long> changed = visitorRepo.addVisitors(List.of(
+                makeHit(appId, "121.0.0.1"),
+                makeHit(appId, "121.0.0.1"),
+                makeHit(appId, "121.0.0.2"),
+                makeHit(otherAppId, "121.0.0.1")));
+        assertEquals(2, changed.size());
+        assertTrue(changed.containsAll(List.of(appId, otherAppId)));
+
+        changed = visitorRepo.addVisitors(List.of(
+                makeHit(appId, "121.0.0.1"),
+                makeHit(otherAppId, "121.0.0.3")));
+        assertEquals(List.of(otherAppId), changed);
+
+        changed = visitorRepo.addVisitors(List.of(makeHit(appId, "121.0.0.2")));
+        assertTrue(changed.isEmpty());
+    }
+
+    @Test
+    void shouldCountVisitors() {
+        visitorRepo.addVisitors(List.of(
+                makeHit(appId, "121.0.0.1"),
+                makeHit(appId, "121.0.0.2"),
+                makeHit(otherAppId, "121.0.0.1")));
+
+        assertEquals(Map.of(appId, 2L), visitorRepo.getVisitorsByAppId(List.of(appId)));
+        assertEquals(Map.of(appId, 2L, otherAppId, 1L), visitorRepo.getVisitorsByAppName("visitors-service"));
+        assertTrue(visitorRepo.getVisitorsByAppName("unknown-service").isEmpty());
+    }
+
+    @Test
+    void shouldDeleteVisitorsNotSeenSinceDay() {
+        LocalDateTime day = LocalDateTime.of(2023, 1, 10, 0, 0);
+        visitorRepo.addVisitors(List.of(
+                makeHit(appId, "121.0.0.1", day.minusDays(1).plusHours(23)),
+                makeHit(appId, "121.0.0.2", day.minusDays(3)),
+                makeHit(otherAppId, "121.0.0.1", day.minusDays(5))));
+        //Повторный просмотр продлевает хранение посетителя
+        visitorRepo.addVisitors(List.of(makeHit(appId, "121.0.0.2", day.plusHours(1))));
+
+        assertEquals(2, visitorRepo.deleteSeenBefore(day));
+
+        assertEquals(Map.of(appId, 1L), visitorRepo.getVisitorsByAppName("visitors-service"));
+    }
+
+    private EndpointHit makeHit(long appId, String ip, LocalDateTime timestamp) {
+        return EndpointHit.builder()
+                .appId(appId)
+                .ip(ip)
+                .timestamp(toInstant(timestamp))
+                .build();
+    }
+
+    private EndpointHit makeHit(long appId, String ip) {
+        return EndpointHit.builder()
+                .appId(appId)
+                .ip(ip)
+                .timestamp(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,117 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.App;
+import ru.practicum.repository.AppRepository;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class AppCacheTest {
+    private static final String APP = "app-cache-test";
+
+    private final AppCache appCache;
+    private final AppRepository appRepo;
+    private final PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldAddAppOnceForConcurrentHits() throws Exception {
+        String uri = "/events/concurrent";
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Long>> tasks = IntStream.range(0, threads)
+                    .mapToObj(i -> (Callable<Long>) () -> appCache.getOrAddId(APP, uri))
+                    .collect(Collectors.toList());
+            Set<Long> ids = executor.invokeAll(tasks).stream()
+                    .map(this::getUnchecked)
+                    .collect(Collectors.toSet());
+
+            assertThat(ids).hasSize(1);
+            assertThat(appRepo.findByAppAndUri(APP, uri)).hasSize(1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldNotCacheIdOfRolledBackApp() {
+        String uri = "/events/rolled-back";
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        long rolledBackId = transaction.execute(status -> {
+            long id = appCache.getOrAddId(APP, uri);
+            status.setRollbackOnly();
+            return id;
+        });
+        long appId = appCache.getOrAddId(APP, uri);
+
+        assertNotEquals(rolledBackId, appId);
+        assertEquals(appId, appRepo.findByAppAndUri(APP, uri).get(0).getId());
+    }
+
+    @Test
+    void shouldGetByIds() {
+        long appId = appCache.getOrAddId(APP, "/events/cached");
+
+        List<App> apps = appCache.getByIds(List.of(appId, -1L));
+
+        assertThat(apps).hasSize(1);
+        assertEquals("/events/cached", apps.get(0).getUri());
+    }
+
+    @Test
+    void shouldRetryWhenConcurrentInsertRolledBack() {
+        AppRepository repository = mock(AppRepository.class);
+        //Параллельная вставка помешала добавить uri, но затем откатилась
+        when(repository.findByAppAndUri(APP, "/events/retry")).thenReturn(List.of());
+        when(repository.addIfAbsent(any())).thenReturn(List.of(), List.of(7L));
+
+        assertEquals(7L, new AppCache(repository, 10).getOrAddId(APP, "/events/retry"));
+        verify(repository, times(2)).addIfAbsent(any());
+    }
+
+    @Test
+    void shouldFailClearlyWhenAppIsNeverFound() {
+        AppRepository repository = mock(AppRepository.class);
+        when(repository.findByAppAndUri(APP, "/events/missing")).thenReturn(List.of());
+        when(repository.addIfAbsent(any())).thenReturn(List.of());
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> new AppCache(repository, 10).getOrAddId(APP, "/events/missing"));
+        assertThat(exception.getMessage()).contains("/events/missing");
+    }
+
+    private Long getUnchecked(Future<Long> future) {
+        try {
+            return future.get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -3,16 +3,20 @@ package ru.practicum.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.aggregation.HitAggregator;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.ViewStatsDto;
 import ru.practicum.mapper.EndpointHitMapper;
 import ru.practicum.model.App;
 import ru.practicum.model.EndpointHit;
+import ru.practicum.model.UniqueMode;
 import ru.practicum.repository.AppRepository;
 import ru.practicum.repository.EndPointHitRepository;
+import ru.practicum.repository.HitRollupRepository;
+import ru.practicum.repository.HitSketchRepository;
+import ru.practicum.repository.UniqueVisitorRepository;
 
 import java.time.LocalDateTime;
 import java.util.Collections;
@@ -23,6 +27,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static ru.practicum.util.DateTime.encodeDate;
 
@@ -35,7 +42,19 @@ class StatsServiceTest {
     @Mock
     private EndPointHitRepository hitRepo;
 
-    @InjectMocks
+    @Mock
+    private HitRollupRepository rollupRepo;
+
+    @Mock
+    private HitSketchRepository sketchRepo;
+
+    @Mock
+    private HitAggregator aggregator;
+
+    @Mock
+    private UniqueVisitorRepository visitorRepo;
+
+
     private StatsServiceImpl service;
     private static final LocalDateTime NOW = LocalDateTime.now();
 
@@ -59,6 +78,8 @@ class StatsServiceTest {
         start = encodeDate(NOW.minusHours(1));
         end = encodeDate(NOW);
 
+        AppCache appCache = new AppCache(appRepo, 100);
+        service = new StatsServiceImpl(hitRepo, appRepo, appCache, rollupRepo, sketchRepo, aggregator, visitorRepo);
     }
 
     @Test
@@ -72,13 +93,36 @@ class StatsServiceTest {
                 .name(hitDto.getApp())
                 .uri(hitDto.getUri())
                 .build();
-        when(appRepo.add(appToAdd)).thenReturn(appId);
+        when(appRepo.addIfAbsent(appToAdd)).thenReturn(List.of(appId));
         EndpointHit hit = EndpointHitMapper.toEndpointHit(hitDto, appId);
         EndpointHit hitAdded = EndpointHitMapper.toEndpointHit(hitDtoBuilder.build(), appId);
         hitAdded.setId(1L);
         when(hitRepo.addEndpointHit(hit)).thenReturn(hitAdded);
 
         service.addHit(hitDto);
+
+        verify(hitRepo).addEndpointHit(hit);
+    }
+
+    @Test
+    void shouldAddHitForAppAddedConcurrently() {
+        hitDto = hitDtoBuilder.build();
+        long appId = 1L;
+        App app = App.builder()
+                .id(appId)
+                .name(hitDto.getApp())
+                .uri(hitDto.getUri())
+                .build();
+
+        //App is inserted by another transaction between lookup and insert
+        when(appRepo.findByAppAndUri(hitDto.getApp(), hitDto.getUri()))
+                .thenReturn(Collections.emptyList())
+                .thenReturn(List.of(app));
+        when(appRepo.addIfAbsent(any())).thenReturn(Collections.emptyList());
+
+        service.addHit(hitDto);
+
+        verify(hitRepo).addEndpointHit(EndpointHitMapper.toEndpointHit(hitDto, appId));
     }
 
     @Test
@@ -100,13 +144,44 @@ class StatsServiceTest {
         when(hitRepo.addEndpointHit(hit)).thenReturn(hitAdded);
 
         service.addHit(hitDto);
+        service.addHit(hitDto);
+
+        //Second hit is resolved from cache
+        verify(appRepo, times(1)).findByAppAndUri(hitDto.getApp(), hitDto.getUri());
+        verify(appRepo, never()).addIfAbsent(any());
+    }
+
+    @Test
+    void shouldAddHitsResolvingAppOnce() {
+        hitDto = hitDtoBuilder.build();
+        EndpointHitDto otherHitDto = hitDtoBuilder.ip("121.0.0.2").build();
+        long appId = 1L;
+
+        App app = App.builder()
+                .id(appId)
+                .name(hitDto.getApp())
+                .uri(hitDto.getUri())
+                .build();
+
+        when(appRepo.findByAppAndUri(hitDto.getApp(), hitDto.getUri())).thenReturn(List.of(app));
+
+        service.addHits(List.of(hitDto, otherHitDto));
+
+        verify(appRepo, times(1)).findByAppAndUri(hitDto.getApp(), hitDto.getUri());
+        verify(hitRepo).addEndpointHits(List.of(
+                EndpointHitMapper.toEndpointHit(hitDto, appId),
+                EndpointHitMapper.toEndpointHit(otherHitDto, appId)));
+        verify(aggregator).add(anyList());
+        verify(rollupRepo, never()).addHits(anyList());
+        verify(sketchRepo, never()).addHits(anyList());
+        verify(visitorRepo, never()).addVisitors(anyList());
     }
 
     @Test
     void shouldGetStatsForEmptyListOfUris() {
         //Not Unique  | EmptyList
-        when(hitRepo.getViewsByAppId(any(), any())).thenReturn(Collections.emptyMap());
-        List<ViewStatsDto> viewStatsDTOs = service.getStats(start, end, Collections.emptyList(), false);
+        when(rollupRepo.getViewsByAppId(any(), any())).thenReturn(Collections.emptyMap());
+        List<ViewStatsDto> viewStatsDTOs = service.getStats(start, end, Collections.emptyList(), UniqueMode.NONE);
         assertThat(viewStatsDTOs)
                 .isNotNull()
                 .hasSize(0);
@@ -125,9 +200,9 @@ class StatsServiceTest {
                 .name(appName)
                 .uri(uri)
                 .build();
-        when(hitRepo.getViewsByAppId(any(), any())).thenReturn(hitsQtyByAppId);
+        when(rollupRepo.getViewsByAppId(any(), any())).thenReturn(hitsQtyByAppId);
         when(appRepo.getAppsByIds(List.of(appId))).thenReturn(List.of(app));
-        List<ViewStatsDto> viewStatsDTOs = service.getStats(start, end, Collections.emptyList(), false);
+        List<ViewStatsDto> viewStatsDTOs = service.getStats(start, end, Collections.emptyList(), UniqueMode.NONE);
 
         assertThat(viewStatsDTOs)
                 .isNotNull()
@@ -140,7 +215,7 @@ class StatsServiceTest {
         //Not Unique  | EmptyList
         String uri = "/events/1";
         when(appRepo.getAppsByUris(List.of(uri))).thenReturn(Collections.emptyList());
-        List<ViewStatsDto> viewStatsDTOs = service.getStats(start, end, List.of(uri), false);
+        List<ViewStatsDto> viewStatsDTOs = service.getStats(start, end, List.of(uri), UniqueMode.NONE);
         assertThat(viewStatsDTOs)
                 .isNotNull()
                 .hasSize(0);
@@ -162,8 +237,8 @@ class StatsServiceTest {
                 .build();
 
         when(appRepo.getAppsByUris(List.of(uri))).thenReturn(List.of(app));
-        when(hitRepo.getViewsByAppId(any(), any(), anyList())).thenReturn(hitsQtyByAppId);
-        List<ViewStatsDto> viewStatsDTOs = service.getStats(start, end, List.of(uri), false);
+        when(rollupRepo.getViewsByAppId(any(), any(), anyList())).thenReturn(hitsQtyByAppId);
+        List<ViewStatsDto> viewStatsDTOs = service.getStats(start, end, List.of(uri), UniqueMode.NONE);
         assertThat(viewStatsDTOs)
                 .isNotNull()
                 .hasSize(1);
@@ -186,8 +261,8 @@ class StatsServiceTest {
         //multiple List Of Uris, Single Result
         List<String> uris = List.of("/events/1", "/events/2");
         when(appRepo.getAppsByUris(uris)).thenReturn(List.of(app));
-        when(hitRepo.getViewsByAppId(any(), any(), anyList())).thenReturn(hitsQtyByAppId);
-        List<ViewStatsDto> viewStatsDTOs = service.getStats(start, end, uris, false);
+        when(rollupRepo.getViewsByAppId(any(), any(), anyList())).thenReturn(hitsQtyByAppId);
+        List<ViewStatsDto> viewStatsDTOs = service.getStats(start, end, uris, UniqueMode.NONE);
         assertThat(viewStatsDTOs)
                 .isNotNull()
                 .hasSize(1);
@@ -0,0 +1,59 @@
+package ru.practicum.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    @Test
+    void shouldEstimateWithinError() {
+        int precision = 12;
+        int distinct = 100_000;
+        HyperLogLog sketch = new HyperLogLog(precision);
+        for (int i = 0; i < distinct; i++) {
+            String ip = String.format("10.%d.%d.%d", i >> 16 & 255, i >> 8 & 255, i & 255);
+            sketch.add(ip);
+            sketch.add(ip);
+        }
+        double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+        assertTrue(error < 3 * 1.04 / Math.sqrt(1 << precision), "error " + error);
+    }
+
+    @Test
+    void shouldCountSmallSetsExactly() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        assertEquals(0, sketch.estimate());
+        sketch.add("121.0.0.1");
+        sketch.add("121.0.0.2");
+        sketch.add("121.0.0.1");
+        assertEquals(2, sketch.estimate());
+    }
+
+    @Test
+    void shouldMergeAndSerialize() {
+        HyperLogLog first = new HyperLogLog(12);
+        HyperLogLog second = new HyperLogLog(10);
+        for (int i = 0; i < 1000; i++) {
+            first.add("192.168.0." + i);
+            second.add("192.168.1." + i);
+        }
+        HyperLogLog merged = first.merge(second);
+        assertEquals(10, merged.getPrecision());
+        double error = Math.abs(merged.estimate() - 2000) / 2000.0;
+        assertTrue(error < 3 * 1.04 / Math.sqrt(1 << 10), "error " + error);
+
+        HyperLogLog restored = HyperLogLog.fromBytes(first.toBytes());
+        assertArrayEquals(first.toBytes(), restored.toBytes());
+        assertEquals(first.estimate(), restored.estimate());
+    }
+
+    @Test
+    void shouldRejectWrongPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[]{12, 0}));
+    }
+}
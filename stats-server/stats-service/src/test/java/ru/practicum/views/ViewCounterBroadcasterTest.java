@@ -0,0 +1,169 @@
+package ru.practicum.views;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.practicum.controller.StatsController;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.ingestion.HitIngestionService;
+import ru.practicum.model.App;
+import ru.practicum.repository.UniqueVisitorRepository;
+import ru.practicum.service.AppCache;
+import ru.practicum.service.StatsService;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@ExtendWith(MockitoExtension.class)
+class ViewCounterBroadcasterTest {
+    private static final String APP = "ewm-main-service";
+    private static final String PATH_STREAM = "/views/stream";
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    @Mock
+    private StatsService service;
+
+    @Mock
+    private HitIngestionService ingestionService;
+
+    @Mock
+    private UniqueVisitorRepository visitorRepo;
+
+    @Mock
+    private AppCache appCache;
+
+    private SimpleMeterRegistry registry;
+    private ViewStreamProperties properties;
+    private ViewCounterBroadcaster broadcaster;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        properties = new ViewStreamProperties();
+        properties.setHeartbeat(Duration.ofHours(1));
+        lenient().when(service.getViewCounters(APP)).thenReturn(List.of(makeViewStats(APP, "/events/1", 3)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.stop();
+    }
+
+    @Test
+    void shouldSendSnapshotOnSubscribe() throws Exception {
+        start();
+
+        MvcResult result = subscribe(APP);
+
+        String content = awaitContent(result, "\"hits\":3");
+        assertTrue(content.contains("event:snapshot"));
+        assertTrue(content.contains("\"uri\":\"/events/1\""));
+        assertEquals(1, registry.get("stats.views.stream.subscribers").gauge().value());
+    }
+
+    @Test
+    void shouldSendChangedCountersToSubscribersOfTheirApp() throws Exception {
+        when(service.getViewCounters("other-service")).thenReturn(Collections.emptyList());
+        when(visitorRepo.getVisitorsByAppId(List.of(2L))).thenReturn(Map.of(2L, 7L));
+        when(appCache.getByIds(List.of(2L))).thenReturn(List.of(App.builder().id(2L).name(APP).uri("/events/2").build()));
+        start();
+        MvcResult subscribed = subscribe(APP);
+        MvcResult other = subscribe("other-service");
+        awaitContent(subscribed, "event:snapshot");
+        awaitContent(other, "event:snapshot");
+
+        broadcaster.onCountersChanged(new ViewCountersChangedEvent(List.of(2L)));
+
+        //Имя события и данные пишутся отдельно, поэтому ожидаются сами данные
+        String content = awaitContent(subscribed, "\"hits\":7");
+        assertTrue(content.contains("\"uri\":\"/events/2\""));
+        //Порядок событий сохраняется: изменения приходят после снимка
+        assertTrue(content.indexOf("event:snapshot") < content.indexOf("event:views"));
+        assertFalse(other.getResponse().getContentAsString().contains("event:views"));
+    }
+
+    @Test
+    void shouldResendSnapshotWhenCountersAreReset() throws Exception {
+        when(service.getViewCounters(APP))
+                .thenReturn(List.of(makeViewStats(APP, "/events/1", 3)))
+                .thenReturn(List.of(makeViewStats(APP, "/events/1", 1)));
+        start();
+        MvcResult result = subscribe(APP);
+        awaitContent(result, "\"hits\":3");
+
+        broadcaster.onCountersReset(new ViewCountersResetEvent());
+
+        String content = awaitContent(result, "\"hits\":1");
+        assertTrue(content.lastIndexOf("event:snapshot") > content.indexOf("\"hits\":3"));
+    }
+
+    @Test
+    void shouldSendHeartbeats() throws Exception {
+        properties.setHeartbeat(Duration.ofMillis(50));
+        start();
+
+        MvcResult result = subscribe(APP);
+
+        awaitContent(result, ":heartbeat");
+    }
+
+    @Test
+    void shouldSkipLookupWithoutSubscribers() {
+        start();
+
+        broadcaster.onCountersChanged(new ViewCountersChangedEvent(List.of(1L)));
+
+        verify(visitorRepo, never()).getVisitorsByAppId(anyList());
+    }
+
+    private void start() {
+        broadcaster = new ViewCounterBroadcaster(service, visitorRepo, appCache, properties, registry);
+        mvc = MockMvcBuilders.standaloneSetup(new StatsController(service, ingestionService, broadcaster)).build();
+    }
+
+    private MvcResult subscribe(String app) throws Exception {
+        return mvc.perform(get(PATH_STREAM).param("app", app))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.nanoTime() + WAIT.toNanos();
+        String content = result.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        assertTrue(content.contains(expected), "Нет " + expected + " в потоке: " + content);
+        return content;
+    }
+
+    private ViewStatsDto makeViewStats(String app, String uri, long hits) {
+        return ViewStatsDto.builder()
+                .app(app)
+                .uri(uri)
+                .hits(hits)
+                .build();
+    }
+}